@@ -0,0 +1,107 @@
+package com.example.webrtcandroidapp.ai;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicYuvToRGB;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the previous RenderScript detection input conversion with NV21ToArgbConverter on a device.
+ * Timings are logged under the "NV21ToArgbBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation")
+public class NV21ToArgbConversionBenchmarkTest {
+
+    private static final String TAG = "NV21ToArgbBenchmark";
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 100;
+    private static final int[][] RESOLUTIONS = { { 640, 480 }, { 1280, 720 }, { 1920, 1080 } };
+
+    @Test
+    public void compareWithRenderScript() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+        for (int[] resolution : RESOLUTIONS) {
+            int width = resolution[0];
+            int height = resolution[1];
+            byte[] nv21 = new byte[width * height * 3 / 2];
+            new Random(width).nextBytes(nv21);
+
+            Bitmap renderScriptBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            long setupStart = System.nanoTime();
+            RenderScript renderScript = RenderScript.create(context);
+            ScriptIntrinsicYuvToRGB yuvToRgb = ScriptIntrinsicYuvToRGB.create(renderScript, Element.U8_4(renderScript));
+            Allocation allocationIn = Allocation.createSized(renderScript, Element.U8(renderScript), nv21.length);
+            Allocation allocationOut = Allocation.createFromBitmap(renderScript, renderScriptBitmap);
+            yuvToRgb.setInput(allocationIn);
+            long renderScriptSetupNs = System.nanoTime() - setupStart;
+            long renderScriptNs = measure(() -> {
+                allocationIn.copyFrom(nv21);
+                yuvToRgb.forEach(allocationOut);
+                allocationOut.copyTo(renderScriptBitmap);
+            });
+
+            Bitmap javaBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            int[] argb = new int[width * height];
+            setupStart = System.nanoTime();
+            NV21ToArgbConverter converter = new NV21ToArgbConverter(Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+            long javaSetupNs = System.nanoTime() - setupStart;
+            long javaNs = measure(() -> {
+                converter.convert(nv21, width, height, argb);
+                javaBitmap.setPixels(argb, 0, width, 0, 0, width, height);
+            });
+
+            Log.i(TAG, width + "x" + height
+                    + " renderscript: setup " + renderScriptSetupNs / 1000 + " us, " + renderScriptNs / 1000 + " us/frame"
+                    + " | java: setup " + javaSetupNs / 1000 + " us, " + javaNs / 1000 + " us/frame");
+
+            assertOutputsMatch(renderScriptBitmap, javaBitmap);
+
+            converter.close();
+            allocationIn.destroy();
+            allocationOut.destroy();
+            yuvToRgb.destroy();
+            renderScript.destroy();
+            renderScriptBitmap.recycle();
+            javaBitmap.recycle();
+        }
+    }
+
+    private static long measure(Runnable conversion) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            conversion.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            conversion.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_FRAMES;
+    }
+
+    // Both use BT.601 limited range; allow for rounding differences between implementations
+    private static void assertOutputsMatch(Bitmap expected, Bitmap actual) {
+        for (int y = 0; y < expected.getHeight(); y += 7) {
+            for (int x = 0; x < expected.getWidth(); x += 7) {
+                int expectedPixel = expected.getPixel(x, y);
+                int actualPixel = actual.getPixel(x, y);
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    assertEquals(((expectedPixel >> shift) & 0xFF), ((actualPixel >> shift) & 0xFF), 2);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.webrtcandroidapp.capturers;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.webrtc.NV21Buffer;
+import org.webrtc.VideoFrame;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the previous delivery path - copying the image planes into an NV21 array and converting it with
+ * NV21Buffer - with StridedYuvBuffer on camera-like planes, per frame and per consumer asking for I420.
+ * Timings are logged under the "StridedYuvBufferBenchmark" tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StridedYuvBufferBenchmarkTest {
+
+    private static final String TAG = "StridedYuvBufferBenchmark";
+    private static final int WARMUP_FRAMES = 20;
+    private static final int MEASURED_FRAMES = 100;
+    private static final int ROW_PADDING = 64;
+    private static final int[][] RESOLUTIONS = { { 640, 480 }, { 1280, 720 }, { 1920, 1080 } };
+
+    @Test
+    public void compareWithNV21Buffer() {
+        for (int[] resolution : RESOLUTIONS) {
+            int width = resolution[0];
+            int height = resolution[1];
+            YuvPlanes planes = createCameraPlanes(width, height);
+            YuvPlanes separatePlanes = copyToSeparatePlanes(planes);
+            YuvPlanes.ChromaLayout chromaLayout = StridedYuvBuffer.getChromaLayout(planes);
+            YuvPlanes.ChromaLayout separateLayout = StridedYuvBuffer.getChromaLayout(separatePlanes);
+            assertEquals(YuvPlanes.ChromaLayout.NV21, chromaLayout);
+            assertEquals(YuvPlanes.ChromaLayout.SEPARATE, separateLayout);
+            byte[] nv21 = new byte[NV21PlaneAssembler.getFrameLength(width, height)];
+
+            long nv21Ns = measure(() -> {
+                NV21PlaneAssembler.assemble(planes, nv21);
+                NV21Buffer buffer = new NV21Buffer(nv21, width, height, null);
+                buffer.toI420().release();
+                buffer.release();
+            });
+            long stridedNs = measure(() -> {
+                StridedYuvBuffer buffer = new StridedYuvBuffer(planes, chromaLayout, null);
+                buffer.toI420().release();
+                buffer.release();
+            });
+            long fallbackNs = measure(() -> {
+                StridedYuvBuffer buffer = new StridedYuvBuffer(separatePlanes, separateLayout, null);
+                buffer.toI420().release();
+                buffer.release();
+            });
+
+            Log.i(TAG, width + "x" + height + " [" + chromaLayout + "]"
+                    + " nv21 copy + NV21Buffer: " + nv21Ns / 1000 + " us/frame"
+                    + " | StridedYuvBuffer: " + stridedNs / 1000 + " us/frame"
+                    + " | java fallback: " + fallbackNs / 1000 + " us/frame");
+
+            NV21PlaneAssembler.assemble(planes, nv21);
+            NV21Buffer expected = new NV21Buffer(nv21, width, height, null);
+            assertOutputsEqual(expected, new StridedYuvBuffer(planes, chromaLayout, null));
+            assertOutputsEqual(expected, new StridedYuvBuffer(separatePlanes, separateLayout, null));
+            expected.release();
+        }
+    }
+
+    // One direct block with padded rows and the chroma interleaved as V then U, like most camera HALs deliver
+    private static YuvPlanes createCameraPlanes(int width, int height) {
+        int rowStride = width + ROW_PADDING;
+        int chromaStart = rowStride * height;
+        ByteBuffer block = ByteBuffer.allocateDirect(chromaStart + rowStride * (height / 2 - 1) + width);
+        byte[] samples = new byte[block.capacity()];
+        new Random(width).nextBytes(samples);
+        block.put(samples);
+        return new YuvPlanes().set(width, height, slice(block, 0, chromaStart), rowStride,
+                slice(block, chromaStart + 1, block.capacity() - chromaStart - 1),
+                slice(block, chromaStart, block.capacity() - chromaStart - 1),
+                rowStride, 2);
+    }
+
+    private static YuvPlanes copyToSeparatePlanes(YuvPlanes planes) {
+        ByteBuffer u = ByteBuffer.allocateDirect(planes.getU().capacity());
+        ByteBuffer v = ByteBuffer.allocateDirect(planes.getV().capacity());
+        u.put(planes.getU().duplicate());
+        v.put(planes.getV().duplicate());
+        return new YuvPlanes().set(planes.getWidth(), planes.getHeight(), planes.getY(), planes.getYRowStride(),
+                u, v, planes.getUvRowStride(), planes.getUvPixelStride());
+    }
+
+    private static ByteBuffer slice(ByteBuffer block, int offset, int length) {
+        ByteBuffer duplicate = block.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice();
+    }
+
+    private static long measure(Runnable conversion) {
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            conversion.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_FRAMES; i++) {
+            conversion.run();
+        }
+        return (System.nanoTime() - start) / MEASURED_FRAMES;
+    }
+
+    private static void assertOutputsEqual(VideoFrame.Buffer expectedBuffer, VideoFrame.Buffer actualBuffer) {
+        VideoFrame.I420Buffer expected = expectedBuffer.toI420();
+        VideoFrame.I420Buffer actual = actualBuffer.toI420();
+        int chromaWidth = (expected.getWidth() + 1) / 2;
+        for (int row = 0; row < expected.getHeight(); row++) {
+            for (int column = 0; column < expected.getWidth(); column++) {
+                assertEquals(expected.getDataY().get(row * expected.getStrideY() + column),
+                        actual.getDataY().get(row * actual.getStrideY() + column));
+                if (row % 2 == 0 && column < chromaWidth) {
+                    int chromaRow = row / 2;
+                    assertEquals(expected.getDataU().get(chromaRow * expected.getStrideU() + column),
+                            actual.getDataU().get(chromaRow * actual.getStrideU() + column));
+                    assertEquals(expected.getDataV().get(chromaRow * expected.getStrideV() + column),
+                            actual.getDataV().get(chromaRow * actual.getStrideV() + column));
+                }
+            }
+        }
+        expected.release();
+        actual.release();
+        actualBuffer.release();
+    }
+}
@@ -9,6 +9,7 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.EditText;
 import android.widget.Toast;
@@ -19,6 +20,8 @@ import io.reactivex.disposables.Disposable;
 
 public class MainActivity extends AppCompatActivity implements View.OnClickListener {
 
+    private static final String TAG = "MainActivity";
+
     private final String[] mPermissions = {
             Manifest.permission.CAMERA,
             Manifest.permission.RECORD_AUDIO
@@ -26,6 +29,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
 
     private SignalrService mSignalrService;
     private Disposable mTokenDisposable;
+    private boolean mIsAuthorized = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,7 +53,9 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     @Override
     protected void onDestroy() {
         mSignalrService.dispose();
-        mTokenDisposable.dispose();
+        if (mTokenDisposable != null) {
+            mTokenDisposable.dispose();
+        }
         super.onDestroy();
     }
 
@@ -102,14 +108,30 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     private void getAccessToken() {
         mSignalrService.connect(() -> {
             if (mSignalrService.isConnected()) {
-                mTokenDisposable = mSignalrService.invoke(String.class, "Authorize").subscribe(token -> {
-                    if (token != null) {
-                        SharedPreferences.Editor editor = getSharedPreferences("USER_PREFERENCES", Context.MODE_PRIVATE).edit();
-                        editor.putString("TOKEN", token);
-                        editor.apply();
-                    }
-                });
+                runOnUiThread(this::authorize);
+            }
+        });
+    }
+
+    // Once per activity; a failed attempt is retried after the next (re)connection
+    private void authorize() {
+        if (mIsAuthorized) {
+            return;
+        }
+        mIsAuthorized = true;
+
+        if (mTokenDisposable != null) {
+            mTokenDisposable.dispose();
+        }
+        mTokenDisposable = mSignalrService.invoke(String.class, "Authorize").subscribe(token -> {
+            if (token != null) {
+                SharedPreferences.Editor editor = getSharedPreferences("USER_PREFERENCES", Context.MODE_PRIVATE).edit();
+                editor.putString("TOKEN", token);
+                editor.apply();
             }
+        }, e -> {
+            Log.e(TAG, "authorize: Failed. [Error]: ", e);
+            runOnUiThread(() -> mIsAuthorized = false);
         });
     }
 }
\ No newline at end of file
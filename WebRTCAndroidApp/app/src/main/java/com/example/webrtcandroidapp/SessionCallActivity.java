@@ -2,15 +2,25 @@ package com.example.webrtcandroidapp;
 
 import androidx.appcompat.app.AppCompatActivity;
 
+import android.app.ActivityManager;
+import android.os.BatteryManager;
+import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
 import android.util.Log;
+import android.view.View;
 import android.view.WindowManager;
+import android.widget.TextView;
 import android.widget.Toast;
 
+import com.example.webrtcandroidapp.ai.FaceAnonymizer;
 import com.example.webrtcandroidapp.capturers.AndroidCameraCapturer;
+import com.example.webrtcandroidapp.capturers.CaptureFormatController;
 import com.example.webrtcandroidapp.observers.CustomPeerConnectionObserver;
 import com.example.webrtcandroidapp.observers.CustomSdpObserver;
+import com.example.webrtcandroidapp.power.PowerGovernor;
 import com.example.webrtcandroidapp.services.IceServerService;
 import com.example.webrtcandroidapp.services.SignalrService;
 import com.google.gson.internal.LinkedTreeMap;
@@ -26,7 +36,11 @@ import org.webrtc.MediaStream;
 import org.webrtc.MediaStreamTrack;
 import org.webrtc.PeerConnection;
 import org.webrtc.PeerConnectionFactory;
+import org.webrtc.RTCStats;
+import org.webrtc.RTCStatsReport;
+import org.webrtc.RtpParameters;
 import org.webrtc.RtpReceiver;
+import org.webrtc.RtpSender;
 import org.webrtc.RtpTransceiver;
 import org.webrtc.SessionDescription;
 import org.webrtc.SurfaceTextureHelper;
@@ -35,10 +49,45 @@ import org.webrtc.VideoSource;
 import org.webrtc.VideoTrack;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
 
 public class SessionCallActivity extends AppCompatActivity {
 
     private static final String TAG = "SessionCallActivity";
+    private static final int PIPELINE_METRICS_INTERVAL = 1000;
+    // Set this variable to "false" to keep the capture format fixed during a call
+    private static final boolean USE_ADAPTIVE_CAPTURE_FORMAT = true;
+    // The capturer only measures its load and drops while it anonymizes the frames
+    private static final boolean ADAPTIVE_CAPTURE_FORMAT =
+            USE_ADAPTIVE_CAPTURE_FORMAT && AndroidCameraCapturer.USE_FACE_ANONYMIZATION;
+    // From the best to the cheapest format, all 4:3 so that face tracks stay valid across changes
+    private static final List<CaptureFormatController.Format> CAPTURE_FORMATS = Arrays.asList(
+            new CaptureFormatController.Format(960, 720, 30),
+            new CaptureFormatController.Format(800, 600, 30),
+            new CaptureFormatController.Format(640, 480, 30),
+            new CaptureFormatController.Format(640, 480, 20),
+            new CaptureFormatController.Format(480, 360, 15),
+            new CaptureFormatController.Format(320, 240, 15));
+    private static final int DEFAULT_CAPTURE_FORMAT = 2;
+    private static final int LOW_RAM_CAPTURE_FORMAT = 3;
+    private static final int CAPTURE_FORMAT_INTERVAL = 2000;
+    private static final float CAPTURE_FORMAT_MAX_LOAD = 0.8F;
+    private static final float CAPTURE_FORMAT_MAX_DROP_RATE = 0.05F;
+    private static final float CAPTURE_FORMAT_MIN_BITS_PER_PIXEL = 0.05F;
+    private static final int CAPTURE_FORMAT_HOLD = 10000;
+    private static final int CAPTURE_FORMAT_UP_WINDOWS = 3;
+    // Set this variable to "false" to keep the pipeline at full quality whatever the temperature and battery level
+    private static final boolean USE_POWER_GOVERNOR = true;
+    private static final int POWER_UPDATE_INTERVAL = 5000;
+    private static final int LOW_BATTERY_PERCENT = 20;
+    private static final int CRITICAL_BATTERY_PERCENT = 10;
+    private static final int BATTERY_MARGIN_PERCENT = 5;
+    private static final int POWER_HOLD = 60000;
+    // What each power level changes, on top of the levels before it
+    private static final int POWER_SAVING_DETECTION_INTERVAL = 500;
+    private static final int POWER_SAVING_CAPTURE_FORMAT = 4;
+    private static final int POWER_SAVING_MAX_BITRATE = 300_000;
 
     private String mRoomName;
     private SignalrService mSignalrService;
@@ -50,10 +99,27 @@ public class SessionCallActivity extends AppCompatActivity {
     private AudioTrack mLocalAudioTrack;
     private VideoTrack mLocalVideoTrack;
     private AndroidCameraCapturer mCameraCapturer;
+    private TextView mPipelineMetricsView;
+    private final Handler mPipelineMetricsHandler = new Handler();
+    private final Handler mCaptureFormatHandler = new Handler();
+    private VideoSource mVideoSource;
+    private CaptureFormatController mCaptureFormatController;
+    private volatile long mAvailableOutgoingBitrate;
+    private long mLastCaptureFormatUpdate;
+    private long mLastCapturedFrameCount;
+    private long mLastDroppedFrameCount;
+    private long mLastProcessingTimeNs;
+    private final Handler mPowerHandler = new Handler();
+    private PowerGovernor mPowerGovernor;
+    private PowerManager mPowerManager;
+    private PowerManager.OnThermalStatusChangedListener mThermalStatusListener;
+    private boolean mPowerSavingCapture;
+    private RtpSender mVideoSender;
 
     private boolean mIsInitiator = false;
     private boolean mIsChannelReady = false;
     private boolean mIsStarted = false;
+    private boolean mIsUserMediaAnnounced = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -79,6 +145,12 @@ public class SessionCallActivity extends AppCompatActivity {
 
     @Override
     protected void onDestroy() {
+        mPipelineMetricsHandler.removeCallbacksAndMessages(null);
+        mCaptureFormatHandler.removeCallbacksAndMessages(null);
+        mPowerHandler.removeCallbacksAndMessages(null);
+        if (mThermalStatusListener != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mPowerManager.removeThermalStatusListener(mThermalStatusListener);
+        }
         hangup();
         mRootEglBase.release();
         mCameraCapturer.dispose();
@@ -97,21 +169,38 @@ public class SessionCallActivity extends AppCompatActivity {
         mRemoteVideoView.init(mRootEglBase.getEglBaseContext(), null);
         mRemoteVideoView.setZOrderMediaOverlay(false);
         mRemoteVideoView.setMirror(false);
+        mPipelineMetricsView = findViewById(R.id.pipeline_metrics_view);
     }
 
     private void start() {
-        // #1 connect to signaling server
+        // #1 define signaling communication
+        defineSignaling();
+
+        // #2 get media from current client
+        getUserMedia();
+
+        // #3 connect to signaling server, without blocking - the room is joined again after every reconnection
+        mSignalrService.setMetrics(mCameraCapturer.getMetrics());
         mSignalrService.connect(() -> {
             if (mSignalrService.isConnected()) {
                 mSignalrService.invoke("CreateOrJoinRoom", mRoomName);
+                runOnUiThread(this::announceUserMedia);
             }
         });
+    }
 
-        // #2 define signaling communication
-        defineSignaling();
+    // Only after the first connection, a reconnection must not start another offer against the live call
+    private void announceUserMedia() {
+        if (mIsUserMediaAnnounced) {
+            return;
+        }
+        mIsUserMediaAnnounced = true;
 
-        // #3 get media from current client
-        getUserMedia();
+        // Try to initiate a call
+        sendMessage("got user media");
+        if (mIsInitiator) {
+            initiateCall();
+        }
     }
 
     private void defineSignaling() {
@@ -181,6 +270,7 @@ public class SessionCallActivity extends AppCompatActivity {
 
         // Create VideoSource and VideoTrack instances
         VideoSource videoSource = mPeerConnectionFactory.createVideoSource(false);
+        mVideoSource = videoSource;
         mLocalVideoTrack = mPeerConnectionFactory.createVideoTrack("WebRTC_track_v1", videoSource);
         mLocalVideoTrack.setEnabled(true);
 
@@ -191,17 +281,153 @@ public class SessionCallActivity extends AppCompatActivity {
 
         // Initialize the VideoCapturer
         SurfaceTextureHelper surfaceTextureHelper = SurfaceTextureHelper.create("CaptureThreadOne", mRootEglBase.getEglBaseContext());
-        mCameraCapturer = AndroidCameraCapturer.create(true, true);
+        mCameraCapturer = AndroidCameraCapturer.create(this, true);
         mCameraCapturer.initialize(surfaceTextureHelper, this, videoSource.getCapturerObserver());
 
-        // Start recording
-        mCameraCapturer.startCapture(640, 480, 30);
+        // Start recording, in a format that suits the device class
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        mCaptureFormatController = new CaptureFormatController(CAPTURE_FORMATS,
+                activityManager.isLowRamDevice() ? LOW_RAM_CAPTURE_FORMAT : DEFAULT_CAPTURE_FORMAT,
+                CAPTURE_FORMAT_MAX_LOAD, CAPTURE_FORMAT_MAX_DROP_RATE, CAPTURE_FORMAT_MIN_BITS_PER_PIXEL,
+                CAPTURE_FORMAT_HOLD, CAPTURE_FORMAT_UP_WINDOWS);
+        mCameraCapturer.getMetrics().addCounter("capture format", mCaptureFormatController::getLevel);
+        mCameraCapturer.getMetrics().addCounter("capture format changes", mCaptureFormatController::getChangeCount);
+        CaptureFormatController.Format format = mCaptureFormatController.getFormat();
+        mCameraCapturer.startCapture(format.getWidth(), format.getHeight(), format.getFrameRate());
+        if (ADAPTIVE_CAPTURE_FORMAT) {
+            mLastCaptureFormatUpdate = SystemClock.elapsedRealtime();
+            mCaptureFormatHandler.postDelayed(this::updateCaptureFormat, CAPTURE_FORMAT_INTERVAL);
+        }
+        if (USE_POWER_GOVERNOR) {
+            startPowerGovernor();
+        }
         mLocalVideoTrack.addSink(mLocalVideoView);
+        // Tap the local video to switch between the front and back camera, the call keeps going
+        mLocalVideoView.setOnClickListener(view -> mCameraCapturer.switchCamera(null));
+        if (WebRTCAndroidApp.SHOW_PIPELINE_METRICS) {
+            mPipelineMetricsView.setVisibility(View.VISIBLE);
+            mPipelineMetricsHandler.postDelayed(this::showPipelineMetrics, PIPELINE_METRICS_INTERVAL);
+        }
+    }
 
-        // Try to initiate a call
-        sendMessage("got user media");
-        if(mIsInitiator) {
-            initiateCall();
+    private void showPipelineMetrics() {
+        String metrics = mCameraCapturer.getMetrics().snapshot().toString();
+        Log.d(TAG, "showPipelineMetrics [" + metrics + "]");
+        mPipelineMetricsView.setText(metrics);
+        mPipelineMetricsHandler.postDelayed(this::showPipelineMetrics, PIPELINE_METRICS_INTERVAL);
+    }
+
+    // Adapts the capture format to the processing load, the dropped frames and the bandwidth estimate of the last interval
+    private void updateCaptureFormat() {
+        if (mPeerConnection != null) {
+            mPeerConnection.getStats(this::processStatsReport);
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        long capturedFrameCount = mCameraCapturer.getCapturedFrameCount();
+        long droppedFrameCount = mCameraCapturer.getDroppedFrameCount();
+        long processingTimeNs = mCameraCapturer.getProcessingTimeNs();
+        if (mCaptureFormatController.update(now, now - mLastCaptureFormatUpdate, capturedFrameCount - mLastCapturedFrameCount,
+                droppedFrameCount - mLastDroppedFrameCount, processingTimeNs - mLastProcessingTimeNs, mAvailableOutgoingBitrate)) {
+            changeCaptureFormat(mCaptureFormatController.getFormat());
+        }
+        mLastCaptureFormatUpdate = now;
+        mLastCapturedFrameCount = capturedFrameCount;
+        mLastDroppedFrameCount = droppedFrameCount;
+        mLastProcessingTimeNs = processingTimeNs;
+        mCaptureFormatHandler.postDelayed(this::updateCaptureFormat, CAPTURE_FORMAT_INTERVAL);
+    }
+
+    private void changeCaptureFormat(CaptureFormatController.Format format) {
+        Log.d(TAG, "changeCaptureFormat [" + format + "]");
+        // The camera delivers the closest format it supports, the video source brings it down to the one asked for
+        mCameraCapturer.changeCaptureFormat(format.getWidth(), format.getHeight(), format.getFrameRate());
+        mVideoSource.adaptOutputFormat(format.getWidth(), format.getHeight(), format.getFrameRate());
+    }
+
+    private void startPowerGovernor() {
+        mPowerManager = (PowerManager) getSystemService(POWER_SERVICE);
+        mPowerGovernor = new PowerGovernor(LOW_BATTERY_PERCENT, CRITICAL_BATTERY_PERCENT, BATTERY_MARGIN_PERCENT, POWER_HOLD);
+        mCameraCapturer.getMetrics().addCounter("power level", () -> mPowerGovernor.getLevel().ordinal());
+        mCameraCapturer.getMetrics().addCounter("power step downs", mPowerGovernor::getStepDownCount);
+        mCameraCapturer.getMetrics().addCounter("power step ups", mPowerGovernor::getStepUpCount);
+        for (PowerGovernor.Level level : PowerGovernor.Level.values()) {
+            mCameraCapturer.getMetrics().addCounter("ms at " + level.name().toLowerCase(Locale.US),
+                    () -> mPowerGovernor.getTimeAtLevelMs(level));
+        }
+        // Thermal status changes are applied right away, the battery level is polled
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            mThermalStatusListener = status -> updatePowerLevel();
+            mPowerManager.addThermalStatusListener(getMainExecutor(), mThermalStatusListener);
+        }
+        updatePowerLevel();
+    }
+
+    private void updatePowerLevel() {
+        mPowerHandler.removeCallbacksAndMessages(null);
+        int thermalStatus = Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                ? mPowerManager.getCurrentThermalStatus() : PowerManager.THERMAL_STATUS_NONE;
+        BatteryManager batteryManager = (BatteryManager) getSystemService(BATTERY_SERVICE);
+        int batteryPercent = batteryManager.getIntProperty(BatteryManager.BATTERY_PROPERTY_CAPACITY);
+        if (mPowerGovernor.update(SystemClock.elapsedRealtime(), thermalStatus, batteryPercent, batteryManager.isCharging())) {
+            PowerGovernor.Level level = mPowerGovernor.getLevel();
+            Log.i(TAG, "updatePowerLevel [" + level + ", thermal status " + thermalStatus + ", battery " + batteryPercent + "%]");
+            applyPowerLevel(level);
+        }
+        mPowerHandler.postDelayed(this::updatePowerLevel, POWER_UPDATE_INTERVAL);
+    }
+
+    private void applyPowerLevel(PowerGovernor.Level level) {
+        FaceAnonymizer faceAnonymizer = mCameraCapturer.getFaceAnonymizer();
+        if (faceAnonymizer != null) {
+            faceAnonymizer.setDetectionIntervalFloor(
+                    level.compareTo(PowerGovernor.Level.REDUCED_DETECTION) >= 0 ? POWER_SAVING_DETECTION_INTERVAL : 0);
+            faceAnonymizer.setCheaperAnonymization(level.compareTo(PowerGovernor.Level.CHEAPER_ANONYMIZATION) >= 0);
+        }
+
+        boolean powerSavingCapture = level.compareTo(PowerGovernor.Level.REDUCED_CAPTURE) >= 0;
+        if (powerSavingCapture != mPowerSavingCapture) {
+            mPowerSavingCapture = powerSavingCapture;
+            if (ADAPTIVE_CAPTURE_FORMAT) {
+                // Once lifted, the controller steps back up on its own
+                if (mCaptureFormatController.setMinLevel(powerSavingCapture ? POWER_SAVING_CAPTURE_FORMAT : 0,
+                        SystemClock.elapsedRealtime())) {
+                    changeCaptureFormat(mCaptureFormatController.getFormat());
+                }
+            } else {
+                changeCaptureFormat(powerSavingCapture
+                        ? CAPTURE_FORMATS.get(POWER_SAVING_CAPTURE_FORMAT) : mCaptureFormatController.getFormat());
+            }
+        }
+
+        applyMaxVideoBitrate();
+    }
+
+    // Caps the video encoder while the power level asks for it
+    private void applyMaxVideoBitrate() {
+        if (mVideoSender == null || mPowerGovernor == null) {
+            return;
+        }
+
+        Integer maxBitrate = mPowerGovernor.getLevel() == PowerGovernor.Level.CAPPED_BITRATE ? POWER_SAVING_MAX_BITRATE : null;
+        RtpParameters parameters = mVideoSender.getParameters();
+        for (RtpParameters.Encoding encoding : parameters.encodings) {
+            encoding.maxBitrateBps = maxBitrate;
+        }
+        if (!mVideoSender.setParameters(parameters)) {
+            Log.e(TAG, "applyMaxVideoBitrate failed.");
+        }
+    }
+
+    // The bandwidth estimate is on the candidate pair in use
+    private void processStatsReport(RTCStatsReport report) {
+        for (RTCStats stats : report.getStatsMap().values()) {
+            if (stats.getType().equals("candidate-pair") && Boolean.TRUE.equals(stats.getMembers().get("nominated"))) {
+                Object bitrate = stats.getMembers().get("availableOutgoingBitrate");
+                if (bitrate instanceof Number) {
+                    mAvailableOutgoingBitrate = ((Number) bitrate).longValue();
+                }
+            }
         }
     }
 
@@ -213,7 +439,8 @@ public class SessionCallActivity extends AppCompatActivity {
 
             if (mPeerConnection != null && mLocalAudioTrack != null && mLocalVideoTrack != null) {
                 mPeerConnection.addTrack(mLocalAudioTrack, Arrays.asList("WebRTC-stream"));
-                mPeerConnection.addTrack(mLocalVideoTrack, Arrays.asList("WebRTC-stream"));
+                mVideoSender = mPeerConnection.addTrack(mLocalVideoTrack, Arrays.asList("WebRTC-stream"));
+                applyMaxVideoBitrate();
             }
 
             mIsStarted = true;
@@ -358,6 +585,7 @@ public class SessionCallActivity extends AppCompatActivity {
         if (mPeerConnection != null) {
             mPeerConnection.close();
             mPeerConnection = null;
+            mVideoSender = null;
         }
     }
 }
\ No newline at end of file
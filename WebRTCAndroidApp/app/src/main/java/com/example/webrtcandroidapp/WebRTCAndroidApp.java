@@ -2,17 +2,49 @@ package com.example.webrtcandroidapp;
 
 import android.app.Application;
 
+import com.example.webrtcandroidapp.ai.DeferredFaceDetector;
+import com.example.webrtcandroidapp.ai.MediaPipeFaceDetector;
+import com.example.webrtcandroidapp.capturers.AndroidCameraCapturer;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
 public class WebRTCAndroidApp extends Application {
 
     // Set this variable to "true" in case smart glasses' display optimization is needed
     public static final boolean USE_SMARTGLASS_OPTIMIZATION = false;
 
+    // Set this variable to "true" to show (and log) the frame pipeline latencies and counters during a call
+    public static final boolean SHOW_PIPELINE_METRICS = false;
+
     public static WebRTCAndroidApp mInstance;
 
+    private DeferredFaceDetector mFaceDetector;
+
     @Override
     public void onCreate() {
         super.onCreate();
         mInstance = this;
+        if (AndroidCameraCapturer.USE_FACE_ANONYMIZATION) {
+            prewarmFaceDetector();
+        }
+    }
+
+    // Starts loading the face detection model in the background, ahead of the next call
+    public synchronized void prewarmFaceDetector() {
+        if (mFaceDetector == null) {
+            mFaceDetector = createFaceDetector();
+        }
+    }
+
+    // Hands over the pre-warmed detector (still warming up, possibly), or starts a new one
+    public synchronized DeferredFaceDetector takeFaceDetector() {
+        DeferredFaceDetector faceDetector = mFaceDetector != null ? mFaceDetector : createFaceDetector();
+        mFaceDetector = null;
+        return faceDetector;
+    }
+
+    private DeferredFaceDetector createFaceDetector() {
+        return new DeferredFaceDetector("FaceDetectorWarmUpThread", new PipelineMetrics(),
+                metrics -> new MediaPipeFaceDetector(this, metrics));
     }
 
     public static WebRTCAndroidApp get() { return mInstance; }
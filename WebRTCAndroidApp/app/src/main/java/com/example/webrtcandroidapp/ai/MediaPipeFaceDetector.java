@@ -0,0 +1,359 @@
+package com.example.webrtcandroidapp.ai;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import com.example.webrtcandroidapp.WebRTCAndroidApp;
+import com.example.webrtcandroidapp.capturers.NV21PlaneAssembler;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+import com.google.common.collect.ImmutableList;
+import com.google.mediapipe.formats.proto.DetectionProto;
+import com.google.mediapipe.formats.proto.LocationDataProto;
+import com.google.mediapipe.solutions.facedetection.FaceDetection;
+import com.google.mediapipe.solutions.facedetection.FaceDetectionOptions;
+import com.google.mediapipe.solutions.facedetection.FaceDetectionResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MediaPipeFaceDetector implements FaceDetector {
+
+    private static final String TAG = "MediaPipeFaceDetector";
+
+    private static final int MAX_CONVERSION_THREADS = 4;
+    private static final float DUPLICATE_DETECTION_IOU = 0.5F;
+    // Crops around regions of interest; must not be fewer than the regions FaceAnonymizer asks for
+    private static final int MAX_DETECTION_CROPS = 3;
+    // From the cheapest to the one finding the smallest faces: the short-range model, the short-range model with a
+    // second, larger input for small faces, and the full-range model for distant faces. Small faces score lower, so the
+    // more sensitive tiers accept lower confidences; a false positive only masks more of the frame
+    private static final List<DetectorTierManager.Tier> DETECTOR_TIERS = Arrays.asList(
+            new DetectorTierManager.Tier("short range", 0, 0.15F, 0.6F, 128),
+            new DetectorTierManager.Tier("short range + small faces", 0, 0.08F, 0.5F, 128, 256),
+            new DetectorTierManager.Tier("full range", 1, 0.04F, 0.4F, 192));
+    // Smart glasses mostly see distant faces, so they start with the full-range model
+    private static final int DEFAULT_DETECTOR_TIER = WebRTCAndroidApp.USE_SMARTGLASS_OPTIMIZATION ? 2 : 0;
+    private static final int DETECTOR_TIER_LATENCY_BUDGET = 100;
+    private static final int DETECTOR_TIER_FACE_WINDOW = 3000;
+    private static final int MIN_DETECTOR_TIER_SWITCH_INTERVAL = 2000;
+    private static final int DETECTOR_TIER_PROBE_INTERVAL = 10000;
+
+    private final Object mBitmapLock = new Object();
+    // Guards the detections pending per cycle, shared by the result thread and tier switches
+    private final Object mResultLock = new Object();
+    private final Context mContext;
+    private final PipelineMetrics mMetrics;
+    private final NV21ToArgbConverter mArgbConverter = new NV21ToArgbConverter(
+            Math.min(MAX_CONVERSION_THREADS, Runtime.getRuntime().availableProcessors() / 2));
+    private final DetectorTierManager mTierManager = new DetectorTierManager(DETECTOR_TIERS, DEFAULT_DETECTOR_TIER,
+            DETECTOR_TIER_LATENCY_BUDGET, DETECTOR_TIER_FACE_WINDOW, MIN_DETECTOR_TIER_SWITCH_INTERVAL,
+            DETECTOR_TIER_PROBE_INTERVAL);
+    private final List<FDBoundingBox> mPendingDetections = new ArrayList<>();
+
+    // Replaced together with the tier, under the bitmap lock and while no detector graph is running
+    private volatile DetectionPyramid mDetectionPyramid;
+    private volatile DetectionCrops mDetectionCrops;
+    // Timestamp slots per detection cycle, one per detector input
+    private volatile int mInputSlots;
+    private int mTier = -1;
+    // The first result of a new graph includes its set-up and doesn't count towards the tier latency
+    private volatile boolean mGraphWarmedUp;
+    private FaceDetection mFaceDetection;
+    private Listener mListener;
+    private int[][] mLevelPixels;
+    private Bitmap[] mLevelBitmaps;
+    private int[][] mCropPixels;
+    private Bitmap[] mCropBitmaps;
+
+    private int mCalculatedWidth;
+    private int mCalculatedHeight;
+    private long mLastDetectionTimestamp;
+    private long mPendingDetectionCycle = -1;
+    private int mPendingDetectionInputs;
+    // Results of a closed graph can still arrive and are ignored, their inputs are gone
+    private int mGraphGeneration;
+
+    public MediaPipeFaceDetector(Context context, PipelineMetrics metrics) {
+        mContext = context;
+        mMetrics = metrics;
+        mMetrics.addCounter("detector tier", mTierManager::getTierIndex);
+        mMetrics.addCounter("detector tier switches", mTierManager::getSwitchCount);
+        synchronized (mBitmapLock) {
+            applyTier(mTierManager.getTierIndex());
+        }
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void setFrameSize(int width, int height) {
+        Log.d(TAG, "setFrameSize");
+
+        if (width > 0 && height > 0) {
+            // Any dimension changing needs new detection inputs, also when only one does
+            if (mCalculatedWidth != width || mCalculatedHeight != height) {
+                synchronized (mBitmapLock) {
+                    mCalculatedWidth = width;
+                    mCalculatedHeight = height;
+                    setupBitmapUtils();
+                }
+
+                Log.d(TAG, "setFrameSize: Done.");
+            }
+        } else {
+            Log.w(TAG, "setFrameSize: Skipping - invalid width or height.");
+        }
+    }
+
+    @Override
+    public void detect(byte[] nv21, long timestampMs, List<FDBoundingBox> regions) {
+        synchronized (mBitmapLock) {
+            if (mFaceDetection == null) {
+                return;
+            }
+            // Tier switches are decided on the result thread and applied here, between detections
+            if (mTier != mTierManager.getTierIndex()) {
+                applyTier(mTierManager.getTierIndex());
+            }
+            // Frames of the previous size may still arrive right after a resolution change
+            if (mLevelBitmaps == null || nv21.length != NV21PlaneAssembler.getFrameLength(mCalculatedWidth, mCalculatedHeight)) {
+                return;
+            }
+
+            long cycleTimestamp = nextDetectionCycleTimestamp(timestampMs);
+            long start = System.nanoTime();
+            boolean cropped;
+            try {
+                // Regions that can't be cropped are covered by a whole-frame detection instead
+                cropped = !regions.isEmpty() && mDetectionCrops.update(nv21, regions, cycleTimestamp / mInputSlots);
+                if (!cropped) {
+                    mDetectionPyramid.update(nv21);
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "detect: Downscaling failed.", e);
+                return;
+            }
+
+            Bitmap[] bitmaps = cropped ? mCropBitmaps : mLevelBitmaps;
+            int inputCount = cropped ? mDetectionCrops.getCropCount() : mDetectionPyramid.getLevelCount();
+            for (int i = 0; i < inputCount; i++) {
+                DetectionPyramid.Level input = cropped ? mDetectionCrops.getCrop(i) : mDetectionPyramid.getLevel(i);
+                int[] pixels = cropped ? getCropPixels(i, input) : mLevelPixels[i];
+                try {
+                    mArgbConverter.convert(input.getNV21(), input.getWidth(), input.getHeight(), pixels);
+                    bitmaps[i].setPixels(pixels, 0, input.getWidth(), 0, 0, input.getWidth(), input.getHeight());
+                } catch (Exception e) {
+                    Log.e(TAG, "detect: Conversion failed.", e);
+                    return;
+                }
+            }
+            mMetrics.recordSince(PipelineMetrics.Stage.CONVERSION, start);
+
+            for (int i = 0; i < inputCount; i++) {
+                mFaceDetection.send(bitmaps[i], cycleTimestamp + i);
+            }
+        }
+    }
+
+    // Ready once constructed - the model is loaded in setupFaceDetection
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        Log.d(TAG, "close: Detector tiers:\n" + mTierManager);
+
+        synchronized (mBitmapLock) {
+            disposeBitmapUtils();
+            if (mFaceDetection != null) {
+                mFaceDetection.close();
+                mFaceDetection = null;
+            }
+        }
+        mArgbConverter.close();
+    }
+
+    public DetectorTierManager getTierManager() {
+        return mTierManager;
+    }
+
+    // Rebuilds the detector graph and its inputs for the tier; the capture pipeline keeps running meanwhile
+    private void applyTier(int tierIndex) {
+        DetectorTierManager.Tier tier = DETECTOR_TIERS.get(tierIndex);
+        Log.d(TAG, "applyTier: " + tier.getName());
+
+        if (mFaceDetection != null) {
+            mFaceDetection.close();
+            mFaceDetection = null;
+        }
+        // Whatever the old graph still had pending is reported now, before the inputs change
+        synchronized (mResultLock) {
+            mGraphGeneration++;
+            if (mPendingDetectionInputs > 0 && mListener != null) {
+                mListener.onFacesDetected(mPendingDetections, mPendingDetectionCycle);
+            }
+            mPendingDetections.clear();
+            mPendingDetectionInputs = 0;
+            mPendingDetectionCycle = -1;
+            mGraphWarmedUp = false;
+        }
+        mLastDetectionTimestamp = 0;
+
+        int[] inputSizes = tier.getInputSizes();
+        mDetectionPyramid = new DetectionPyramid(inputSizes);
+        mDetectionCrops = new DetectionCrops(inputSizes[0], MAX_DETECTION_CROPS);
+        mInputSlots = Math.max(inputSizes.length, MAX_DETECTION_CROPS);
+        mTier = tierIndex;
+        if (mCalculatedWidth > 0 && mCalculatedHeight > 0) {
+            setupBitmapUtils();
+        }
+        setupFaceDetection(tier.getModelSelection(), tier.getMinDetectionConfidence());
+    }
+
+    // Timestamps must keep increasing; the inputs of one detection cycle share a base divisible by the slot count
+    private long nextDetectionCycleTimestamp(long timestampMs) {
+        long timestamp = Math.max(timestampMs * mInputSlots, mLastDetectionTimestamp + mInputSlots);
+        timestamp -= timestamp % mInputSlots;
+        mLastDetectionTimestamp = timestamp;
+        return timestamp;
+    }
+
+    // Crop sizes only change with the frame size, when the crop size doesn't fit the frame
+    private int[] getCropPixels(int index, DetectionPyramid.Level crop) {
+        Bitmap bitmap = mCropBitmaps[index];
+        if (bitmap == null || bitmap.getWidth() != crop.getWidth() || bitmap.getHeight() != crop.getHeight()) {
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+            mCropBitmaps[index] = Bitmap.createBitmap(crop.getWidth(), crop.getHeight(), Bitmap.Config.ARGB_8888);
+            mCropPixels[index] = new int[crop.getWidth() * crop.getHeight()];
+        }
+        return mCropPixels[index];
+    }
+
+    // Only the reduced detection inputs are converted, never the full capture resolution
+    private void setupBitmapUtils() {
+        disposeBitmapUtils();
+        mDetectionPyramid.setFrameSize(mCalculatedWidth, mCalculatedHeight);
+        mDetectionCrops.setFrameSize(mCalculatedWidth, mCalculatedHeight);
+        mCropPixels = new int[MAX_DETECTION_CROPS][];
+        mCropBitmaps = new Bitmap[MAX_DETECTION_CROPS];
+        int levelCount = mDetectionPyramid.getLevelCount();
+        mLevelPixels = new int[levelCount][];
+        mLevelBitmaps = new Bitmap[levelCount];
+        for (int i = 0; i < levelCount; i++) {
+            DetectionPyramid.Level level = mDetectionPyramid.getLevel(i);
+            mLevelPixels[i] = new int[level.getWidth() * level.getHeight()];
+            mLevelBitmaps[i] = Bitmap.createBitmap(level.getWidth(), level.getHeight(), Bitmap.Config.ARGB_8888);
+        }
+    }
+
+    private void disposeBitmapUtils() {
+        try {
+            mLevelPixels = null;
+            if (mLevelBitmaps != null) {
+                for (Bitmap bitmap : mLevelBitmaps) {
+                    bitmap.recycle();
+                }
+                mLevelBitmaps = null;
+            }
+            mCropPixels = null;
+            if (mCropBitmaps != null) {
+                for (Bitmap bitmap : mCropBitmaps) {
+                    if (bitmap != null) {
+                        bitmap.recycle();
+                    }
+                }
+                mCropBitmaps = null;
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "disposeBitmapUtils: Failed.", e);
+        }
+    }
+
+    private void setupFaceDetection(int modelSelection, float minDetectionConfidence) {
+        Log.d(TAG, "setupFaceDetection");
+
+        mFaceDetection = new FaceDetection(mContext, FaceDetectionOptions.builder().setStaticImageMode(false)
+                .setMinDetectionConfidence(minDetectionConfidence).setModelSelection(modelSelection).build());
+        mFaceDetection.setErrorListener(
+                (message, e) -> {
+                    Log.e(TAG, "setupFaceDetection: Failed.", e);
+                });
+        int generation;
+        synchronized (mResultLock) {
+            generation = mGraphGeneration;
+        }
+        mFaceDetection.setResultListener(result -> {
+            synchronized (mResultLock) {
+                if (generation == mGraphGeneration) {
+                    processFaceDetectionResult(result);
+                }
+            }
+        });
+    }
+
+    // Result lock held
+    private void processFaceDetectionResult(FaceDetectionResult result) {
+        long cycle = result.timestamp() / mInputSlots;
+        int input = (int) (result.timestamp() % mInputSlots);
+        int cropCount = mDetectionCrops.getCropCount(cycle);
+        int inputCount = cropCount > 0 ? cropCount : mDetectionPyramid.getLevelCount();
+
+        // An input result may never arrive (e.g. detector error) - don't hold back the detections of an older cycle
+        if (cycle != mPendingDetectionCycle && mPendingDetectionInputs > 0) {
+            reportDetections(mPendingDetectionCycle);
+        }
+        mPendingDetectionCycle = cycle;
+
+        ImmutableList<DetectionProto.Detection> faceDetections = result.multiFaceDetections();
+        if (faceDetections != null) {
+            for (DetectionProto.Detection detection : faceDetections) {
+                LocationDataProto.LocationData.RelativeBoundingBox boundingBox = detection.getLocationData().getRelativeBoundingBox();
+                // Crop results are mapped with the crop regions of their own cycle
+                FDBoundingBox frameBox = cropCount > 0
+                        ? mDetectionCrops.toFrameBox(cycle, input, mPendingDetections.size(), boundingBox.getXmin(),
+                                boundingBox.getYmin(), boundingBox.getWidth(), boundingBox.getHeight())
+                        : mDetectionPyramid.getLevel(input).toFrameBox(mPendingDetections.size(), boundingBox.getXmin(),
+                                boundingBox.getYmin(), boundingBox.getWidth(), boundingBox.getHeight(), mCalculatedWidth, mCalculatedHeight);
+                if (frameBox != null && !isDuplicateDetection(frameBox)) {
+                    mPendingDetections.add(frameBox);
+                }
+            }
+        }
+
+        if (++mPendingDetectionInputs == inputCount) {
+            reportDetections(cycle);
+        }
+    }
+
+    private boolean isDuplicateDetection(FDBoundingBox boundingBox) {
+        for (FDBoundingBox pendingBoundingBox : mPendingDetections) {
+            if (pendingBoundingBox.getIntersectionOverUnion(boundingBox) > DUPLICATE_DETECTION_IOU) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The cycle of a detection is the time (ms) its frame was sent to the detector; result lock held
+    private void reportDetections(long cycle) {
+        if (mGraphWarmedUp) {
+            long now = System.currentTimeMillis();
+            mTierManager.onDetectionCompleted(mPendingDetections, now - cycle, now);
+        }
+        mGraphWarmedUp = true;
+        if (mListener != null) {
+            mListener.onFacesDetected(mPendingDetections, cycle);
+        }
+        mPendingDetections.clear();
+        mPendingDetectionInputs = 0;
+    }
+}
@@ -4,58 +4,64 @@ import android.Manifest;
 import android.content.Context;
 import android.content.pm.PackageManager;
 import android.graphics.ImageFormat;
-import android.hardware.Camera;
 import android.hardware.camera2.CameraCaptureSession;
 import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraDevice;
 import android.hardware.camera2.CameraManager;
 import android.hardware.camera2.CameraMetadata;
 import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.params.StreamConfigurationMap;
 import android.media.Image;
 import android.media.ImageReader;
 import android.os.Handler;
-import android.os.SystemClock;
 import android.util.Log;
+import android.util.Range;
 import android.util.Size;
 import android.view.Surface;
 
 import androidx.annotation.NonNull;
 
 import com.example.webrtcandroidapp.WebRTCAndroidApp;
+import com.example.webrtcandroidapp.ai.DeferredFaceDetector;
 import com.example.webrtcandroidapp.ai.FaceAnonymizer;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
 
-import org.webrtc.Camera1Capturer;
-import org.webrtc.Camera1Enumerator;
+import org.webrtc.Camera2Capturer;
+import org.webrtc.Camera2Enumerator;
 import org.webrtc.CameraEnumerator;
+import org.webrtc.CameraVideoCapturer;
 import org.webrtc.CapturerObserver;
-import org.webrtc.NV21Buffer;
+import org.webrtc.JavaI420Buffer;
 import org.webrtc.SurfaceTextureHelper;
 import org.webrtc.VideoCapturer;
 import org.webrtc.VideoFrame;
 
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class AndroidCameraCapturer extends Camera1Capturer implements VideoCapturer {
+public class AndroidCameraCapturer extends Camera2Capturer implements VideoCapturer {
 
     private static final String TAG = "AndroidCameraCapturer";
 
     // Set this variable to "true" in case face anonymization should be active
-    private static final boolean USE_FACE_ANONYMIZATION = false;
+    public static final boolean USE_FACE_ANONYMIZATION = false;
 
-    private AndroidCameraCapturer(String deviceName, boolean captureToTexture) {
-        super(deviceName, null, captureToTexture);
+    // The camera capturing (or being opened) now
+    private volatile boolean mIsCameraFront;
+
+    private AndroidCameraCapturer(Context context, String deviceName, boolean isCameraFront) {
+        super(context, deviceName, null);
+        mIsCameraFront = isCameraFront;
+        mProcessingCameraFront = isCameraFront;
     }
 
-    public static AndroidCameraCapturer create(boolean captureToTexture, boolean isCameraFront) {
-        return new AndroidCameraCapturer(getDeviceName(captureToTexture, isCameraFront), captureToTexture);
+    public static AndroidCameraCapturer create(Context context, boolean isCameraFront) {
+        return new AndroidCameraCapturer(context, getDeviceName(context, isCameraFront), isCameraFront);
     }
 
-    private static String getDeviceName(boolean captureToTexture, boolean isCameraFront) {
-        CameraEnumerator enumerator = new Camera1Enumerator(captureToTexture);
+    private static String getDeviceName(Context context, boolean isCameraFront) {
+        CameraEnumerator enumerator = new Camera2Enumerator(context);
 
         String deviceName = null;
         for (String device : enumerator.getDeviceNames()) {
@@ -74,29 +80,79 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
 
     //region Properties and methods needed for Face Anonymization
 
-    private final Object mStateLock = new Object();
+    // Detection snapshots in flight: one being analysed and one waiting for the detector, plus a spare
+    private static final int FRAME_POOL_SIZE = 3;
+    // Captured images waiting for the processing thread; when full, the policy below picks the image to drop
+    private static final int PROCESSING_QUEUE_SIZE = 2;
+    private static final FrameProcessingStage.DropPolicy PROCESSING_DROP_POLICY = FrameProcessingStage.DropPolicy.DROP_OLDEST;
+    // Queued images plus the one being processed, the ones held by WebRTC until it releases their frames, and a spare
+    private static final int IMAGE_READER_MAX_IMAGES = PROCESSING_QUEUE_SIZE + 4;
+    // Set this variable to "true" to detect on a second, low-res camera stream instead of on copies of the sent frames
+    private static final boolean USE_ANALYSIS_STREAM = false;
+    private static final int ANALYSIS_STREAM_WIDTH = 320;
+    private static final int ANALYSIS_READER_MAX_IMAGES = 2;
 
+    private final Object mStateLock = new Object();
+    private final NV21FramePool mFramePool = new NV21FramePool(FRAME_POOL_SIZE);
+    // Processing thread only
+    private final YuvPlanes mYuvPlanes = new YuvPlanes();
+    // Chroma layout of the reader the last processed image came from
+    private ImageReader mChromaLayoutReader;
+    private YuvPlanes.ChromaLayout mChromaLayout;
+    // Camera thread only
+    private final YuvPlanes mAnalysisPlanes = new YuvPlanes();
+    private final AtomicLong mReaderStallCount = new AtomicLong();
+    private final AtomicLong mDeliveredFrameCount = new AtomicLong();
+    private final AtomicLong mProcessingTimeNs = new AtomicLong();
+
+    // Replaced by the metrics of the face detector, which already hold its warm-up time
+    private PipelineMetrics mMetrics = new PipelineMetrics();
     private FaceAnonymizer mFaceAnonymizer;
+    private FrameProcessingStage<CapturedImage> mProcessingStage;
     private Handler mCameraThreadHandler;
     private CapturerObserver mObserver;
     private ImageReader mImageReader;
+    private DeferredCloser mImageReaderCloser;
     private Surface mImageSurface;
+    private ImageReader mAnalysisReader;
+    private Surface mAnalysisSurface;
     private Context mContext;
     private CameraDevice mCameraDevice;
     private CameraCaptureSession mCaptureSession;
-    private Surface mSurface;
-    private SurfaceTextureHelper mSurfaceHelper;
+    private Range<Integer> mFpsRange;
+    private CameraVideoCapturer.CameraSwitchHandler mSwitchHandler;
+    private boolean mCapturerStarted;
+    // Processing thread only - whether the frames being processed come from the front camera
+    private boolean mProcessingCameraFront;
 
     private int mWidth;
     private int mHeight;
     private int mFrameRate;
-    private long mLastProcessingTime = 0;
+
+    // Set by the processing thread when detection is due, cleared by the camera thread once it took an analysis image
+    private volatile boolean mAnalysisRequested;
+    // When the camera was opened, until its first image arrives
+    private volatile long mCameraOpenTime;
+    // When a camera switch was requested, until the first image of the new camera arrives
+    private volatile long mCameraSwitchTime;
+    // Sensor timestamp of the first image of the new camera after a switch, until the processing thread reaches it
+    private volatile long mSourceChangeTimestamp;
 
     @Override
     public void initialize(SurfaceTextureHelper surfaceTextureHelper, Context applicationContext, CapturerObserver capturerObserver) {
         if (USE_FACE_ANONYMIZATION) {
-            mFaceAnonymizer = new FaceAnonymizer(applicationContext);
-            mSurfaceHelper = surfaceTextureHelper;
+            // Frames are covered whole until the (pre-warmed) detector is ready
+            DeferredFaceDetector faceDetector = WebRTCAndroidApp.get().takeFaceDetector();
+            mMetrics = faceDetector.getMetrics();
+            // Processing runs off the camera thread, which WebRTC shares through the SurfaceTextureHelper
+            mProcessingStage = new FrameProcessingStage<>("FrameProcessingThread", PROCESSING_QUEUE_SIZE,
+                    PROCESSING_DROP_POLICY, this::processImage, CapturedImage::close);
+            mMetrics.addCounter("frames captured", mProcessingStage::getSubmittedCount);
+            mMetrics.addCounter("frames delivered", mDeliveredFrameCount::get);
+            mMetrics.addCounter("reader stalls", mReaderStallCount::get);
+            mMetrics.addCounter("queue drops", mProcessingStage::getDroppedCount);
+            mMetrics.addCounter("snapshot pool exhausted", mFramePool::getExhaustedCount);
+            mFaceAnonymizer = new FaceAnonymizer(faceDetector, mMetrics);
             mCameraThreadHandler = surfaceTextureHelper.getHandler();
             mContext = applicationContext;
             mObserver = capturerObserver;
@@ -106,13 +162,22 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
 
     @Override
     public void dispose() {
+        if (mProcessingStage != null) {
+            mProcessingStage.shutdown();
+        }
         if (mFaceAnonymizer != null) {
             mFaceAnonymizer.dispose();
+            // Ready for the next call
+            WebRTCAndroidApp.get().prewarmFaceDetector();
         }
+        mFramePool.clear();
+        // Readers still holding frames for WebRTC are closed with the last of them
         closeCameraDevice(mCameraDevice);
         super.dispose();
     }
 
+    // With anonymization the camera is opened here, with only the streams the pipeline reads from: the frames that are
+    // anonymized and sent, and the low-res analysis stream if enabled
     @Override
     public void startCapture(int width, int height, int frameRate) {
         if (USE_FACE_ANONYMIZATION) {
@@ -120,17 +185,16 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
             mHeight = height;
             mFrameRate = frameRate;
 
-            if (mFaceAnonymizer != null) {
-                mFaceAnonymizer.setupBitmapUtils(width, height);
-            }
-
             if (mContext.checkSelfPermission(Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
                 mCameraThreadHandler.post(() -> {
                     synchronized (mStateLock) {
                         try {
                             CameraManager cameraManager = (CameraManager) mContext.getSystemService(Context.CAMERA_SERVICE);
-                            String cameraId = getFrontCameraId(cameraManager);
-                            setUpCameraOutputs(width, height);
+                            String cameraId = getCameraId(cameraManager, mIsCameraFront);
+                            CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+                            setUpCameraOutputs(characteristics, width, height);
+                            mFpsRange = chooseFpsRange(characteristics, frameRate);
+                            mCameraOpenTime = System.nanoTime();
                             cameraManager.openCamera(cameraId, mCameraListener, mCameraThreadHandler);
                         } catch (Exception e) {
                             Log.e(TAG, "startCapture: Failed.", e);
@@ -145,12 +209,73 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
         }
     }
 
-    private String getFrontCameraId(CameraManager cameraManager) {
+    // With anonymization only the camera session is rebuilt; the video source, the image readers (when the other camera
+    // supports their size), the frame pools and the anonymizer are kept
+    @Override
+    public void switchCamera(CameraVideoCapturer.CameraSwitchHandler switchEventsHandler) {
+        if (USE_FACE_ANONYMIZATION) {
+            mCameraThreadHandler.post(() -> switchCameraInternal(switchEventsHandler));
+        } else {
+            super.switchCamera(switchEventsHandler);
+        }
+    }
+
+    // With anonymization a new frame rate only updates the repeating request; a new size rebuilds the capture session on
+    // the open camera, keeping the camera, the pools and the anonymizer
+    @Override
+    public void changeCaptureFormat(int width, int height, int frameRate) {
+        if (USE_FACE_ANONYMIZATION) {
+            mCameraThreadHandler.post(() -> changeCaptureFormatInternal(width, height, frameRate));
+        } else {
+            super.changeCaptureFormat(width, height, frameRate);
+        }
+    }
+
+    public NV21FramePool getFramePool() {
+        return mFramePool;
+    }
+
+    public FrameProcessingStage<CapturedImage> getProcessingStage() {
+        return mProcessingStage;
+    }
+
+    // Times an image could not be taken because all ImageReader images were still in use; the image stays queued in
+    // the reader and is taken with the next one, so a stall is not a drop
+    public long getReaderStallCount() {
+        return mReaderStallCount.get();
+    }
+
+    // Frames taken from the camera and frames dropped before they were sent, with anonymization only
+    public long getCapturedFrameCount() {
+        return mProcessingStage != null ? mProcessingStage.getSubmittedCount() : 0;
+    }
+
+    public long getDroppedFrameCount() {
+        return mProcessingStage != null ? mProcessingStage.getDroppedCount() : 0;
+    }
+
+    // Total time the processing thread spent on frames
+    public long getProcessingTimeNs() {
+        return mProcessingTimeNs.get();
+    }
+
+    public PipelineMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    // Null when face anonymization is disabled
+    public FaceAnonymizer getFaceAnonymizer() {
+        return mFaceAnonymizer;
+    }
+
+    private String getCameraId(CameraManager cameraManager, boolean isCameraFront) {
         String cameraId = null;
+        int lensFacing = isCameraFront ? CameraMetadata.LENS_FACING_FRONT : CameraMetadata.LENS_FACING_BACK;
         try {
             for (String camera : cameraManager.getCameraIdList()) {
                 CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(camera);
-                if (characteristics.get(CameraCharacteristics.LENS_FACING) == CameraMetadata.LENS_FACING_FRONT) {
+                Integer facing = characteristics.get(CameraCharacteristics.LENS_FACING);
+                if (facing != null && facing == lensFacing) {
                     cameraId = camera;
                     break;
                 }
@@ -159,70 +284,257 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
                 cameraId = cameraManager.getCameraIdList()[0];
             }
         } catch (Exception e) {
-            Log.e(TAG, "getFrontCameraId: Failed.", e);
+            Log.e(TAG, "getCameraId: Failed.", e);
         }
         return cameraId;
     }
 
-    private void setUpCameraOutputs(int width, int height) {
+    private void switchCameraInternal(CameraVideoCapturer.CameraSwitchHandler switchEventsHandler) {
+        Log.d(TAG, "switchCameraInternal");
+
+        synchronized (mStateLock) {
+            if (mCameraDevice == null || mImageReader == null || mSwitchHandler != null) {
+                Log.w(TAG, "switchCameraInternal: Not allowed in this state.");
+                if (switchEventsHandler != null) {
+                    switchEventsHandler.onCameraSwitchError("Camera not running or already switching");
+                }
+                return;
+            }
+
+            try {
+                CameraManager cameraManager = (CameraManager) mContext.getSystemService(Context.CAMERA_SERVICE);
+                boolean isCameraFront = !mIsCameraFront;
+                String cameraId = getCameraId(cameraManager, isCameraFront);
+                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(cameraId);
+
+                mCameraSwitchTime = System.nanoTime();
+                if (mCaptureSession != null) {
+                    mCaptureSession.close();
+                    mCaptureSession = null;
+                }
+                mCameraDevice.close();
+                mCameraDevice = null;
+
+                if (!isOutputSupported(characteristics, mImageReader)
+                        || (mAnalysisReader != null && !isOutputSupported(characteristics, mAnalysisReader))) {
+                    retireImageReaders();
+                    setUpCameraOutputs(characteristics, mWidth, mHeight);
+                }
+                mFpsRange = chooseFpsRange(characteristics, mFrameRate);
+                mIsCameraFront = isCameraFront;
+                mSwitchHandler = switchEventsHandler != null ? switchEventsHandler : mNoSwitchHandler;
+                cameraManager.openCamera(cameraId, mCameraListener, mCameraThreadHandler);
+            } catch (Exception e) {
+                Log.e(TAG, "switchCameraInternal: Failed.", e);
+                mCameraSwitchTime = 0;
+                mSwitchHandler = null;
+                if (switchEventsHandler != null) {
+                    switchEventsHandler.onCameraSwitchError(e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void changeCaptureFormatInternal(int width, int height, int frameRate) {
+        Log.d(TAG, "changeCaptureFormatInternal: " + width + "x" + height + "@" + frameRate);
+
+        synchronized (mStateLock) {
+            mWidth = width;
+            mHeight = height;
+            mFrameRate = frameRate;
+            // Not capturing or busy switching - the new format applies when the camera opens
+            if (mCameraDevice == null || mCaptureSession == null || mSwitchHandler != null) {
+                return;
+            }
+
+            try {
+                CameraManager cameraManager = (CameraManager) mContext.getSystemService(Context.CAMERA_SERVICE);
+                CameraCharacteristics characteristics = cameraManager.getCameraCharacteristics(mCameraDevice.getId());
+                mFpsRange = chooseFpsRange(characteristics, frameRate);
+                Size size = chooseSize(characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP)
+                        .getOutputSizes(ImageFormat.YUV_420_888), width, height);
+                if (size.getWidth() == mImageReader.getWidth() && size.getHeight() == mImageReader.getHeight()) {
+                    applyParametersInternal();
+                    return;
+                }
+
+                mCaptureSession.close();
+                mCaptureSession = null;
+                retireImageReaders();
+                setUpCameraOutputs(characteristics, width, height);
+                createCaptureSession(mCameraDevice);
+            } catch (Exception e) {
+                Log.e(TAG, "changeCaptureFormatInternal: Failed.", e);
+            }
+        }
+    }
+
+    // Images of the frame reader may still be held by WebRTC, so it is closed with the last of them; analysis images
+    // never leave the camera thread, so that reader can be closed right away
+    private void retireImageReaders() {
+        mImageReader.setOnImageAvailableListener(null, null);
+        mImageReaderCloser.retire();
+        mImageReader = null;
+        mImageReaderCloser = null;
+        if (mAnalysisReader != null) {
+            mAnalysisReader.close();
+            mAnalysisReader = null;
+        }
+    }
+
+    private void closeRetiredImageReader(ImageReader imageReader) {
+        Log.d(TAG, "closeRetiredImageReader: " + imageReader.getWidth() + "x" + imageReader.getHeight());
+
+        imageReader.close();
+    }
+
+    private static boolean isOutputSupported(CameraCharacteristics characteristics, ImageReader imageReader) {
+        StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+        for (Size size : map.getOutputSizes(ImageFormat.YUV_420_888)) {
+            if (size.getWidth() == imageReader.getWidth() && size.getHeight() == imageReader.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Output sizes are picked from the ones the camera supports, so that the ISP doesn't have to scale
+    private void setUpCameraOutputs(CameraCharacteristics characteristics, int width, int height) {
         try {
-            Size previewSize = new Size(width, height);
-            mImageReader = ImageReader.newInstance(previewSize.getWidth(), previewSize.getHeight(), ImageFormat.YUV_420_888, 2);
-            mImageReader.setOnImageAvailableListener(mOnImageAvailableListener, mCameraThreadHandler);
+            StreamConfigurationMap map = characteristics.get(CameraCharacteristics.SCALER_STREAM_CONFIGURATION_MAP);
+            Size[] sizes = map.getOutputSizes(ImageFormat.YUV_420_888);
+            Size size = chooseSize(sizes, width, height);
+            ImageReader imageReader = ImageReader.newInstance(size.getWidth(), size.getHeight(), ImageFormat.YUV_420_888, IMAGE_READER_MAX_IMAGES);
+            imageReader.setOnImageAvailableListener(mOnImageAvailableListener, mCameraThreadHandler);
+            mImageReader = imageReader;
+            mImageReaderCloser = new DeferredCloser(() -> closeRetiredImageReader(imageReader));
+
+            // Detected boxes are relative, so the detector can work on a smaller stream than the one anonymized
+            Size detectionSize = size;
+            if (USE_ANALYSIS_STREAM) {
+                detectionSize = chooseSize(sizes, ANALYSIS_STREAM_WIDTH, ANALYSIS_STREAM_WIDTH * size.getHeight() / size.getWidth());
+                mAnalysisReader = ImageReader.newInstance(detectionSize.getWidth(), detectionSize.getHeight(),
+                        ImageFormat.YUV_420_888, ANALYSIS_READER_MAX_IMAGES);
+                mAnalysisReader.setOnImageAvailableListener(mOnAnalysisImageAvailableListener, mCameraThreadHandler);
+            }
+            mFaceAnonymizer.setFrameSize(detectionSize.getWidth(), detectionSize.getHeight());
+            // Snapshots of the previous resolution are not needed anymore
+            mFramePool.trim(NV21PlaneAssembler.getFrameLength(detectionSize.getWidth(), detectionSize.getHeight()));
         } catch (Exception e) {
             Log.e(TAG, "setUpCameraOutputs: Failed.", e);
         }
     }
 
-    private void processImage(Image img) {
+    private static Size chooseSize(Size[] sizes, int width, int height) {
+        int[] widths = new int[sizes.length];
+        int[] heights = new int[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            widths[i] = sizes[i].getWidth();
+            heights[i] = sizes[i].getHeight();
+        }
+        int index = CameraFormatSelector.chooseSize(widths, heights, width, height);
+        return index >= 0 ? sizes[index] : new Size(width, height);
+    }
+
+    private static Range<Integer> chooseFpsRange(CameraCharacteristics characteristics, int frameRate) {
+        Range<Integer>[] ranges = characteristics.get(CameraCharacteristics.CONTROL_AE_AVAILABLE_TARGET_FPS_RANGES);
+        if (ranges == null || ranges.length == 0) {
+            return new Range<>(frameRate, frameRate);
+        }
+        int[] minimums = new int[ranges.length];
+        int[] maximums = new int[ranges.length];
+        for (int i = 0; i < ranges.length; i++) {
+            minimums[i] = ranges[i].getLower();
+            maximums[i] = ranges[i].getUpper();
+        }
+        Range<Integer> range = ranges[CameraFormatSelector.chooseFpsRange(minimums, maximums, frameRate)];
+        Log.d(TAG, "chooseFpsRange: " + range);
+        return range;
+    }
+
+    // Takes ownership of the image - it is closed once WebRTC releases the frame that wraps its planes
+    private void processImage(CapturedImage capturedImage) {
+        Image img = capturedImage.mImage;
+        VideoFrame.Buffer buffer;
+        long timestampNS;
+        long frameStart = System.nanoTime();
+        long start = frameStart;
         try {
-            int width = img.getWidth();
-            int height = img.getHeight();
-
-            byte[] nv21;
-            int baseRotation;
-
-            ByteBuffer yBuffer = img.getPlanes()[0].getBuffer();
-            ByteBuffer uBuffer = img.getPlanes()[1].getBuffer();
-            ByteBuffer vBuffer = img.getPlanes()[2].getBuffer();
-
-            int ySize = yBuffer.remaining();
-            int uSize = uBuffer.remaining();
-            int vSize = vBuffer.remaining();
-
-            if (WebRTCAndroidApp.USE_SMARTGLASS_OPTIMIZATION) {
-                nv21 = new byte[ySize + uSize + vSize];
-                yBuffer.get(nv21, 0, ySize);
-                vBuffer.get(nv21, ySize, vSize);
-                uBuffer.get(nv21, ySize + vSize, uSize);
-                baseRotation = 0;
-            } else {
-                nv21 = new byte[ySize * 2];
-                yBuffer.get(nv21, 0, ySize);
-                vBuffer.get(nv21, ySize, vSize);
-                uBuffer.get(nv21, (int) (ySize * 1.5), uSize);
-                baseRotation = 90;
+            // Sensor timestamp of the exposure, not the time the frame got through the queue
+            timestampNS = img.getTimestamp();
+            // Images of the old camera queued before a switch are still processed as such
+            long sourceChangeTimestamp = mSourceChangeTimestamp;
+            if (sourceChangeTimestamp != 0 && timestampNS >= sourceChangeTimestamp) {
+                mSourceChangeTimestamp = 0;
+                mProcessingCameraFront = !mProcessingCameraFront;
+                mFaceAnonymizer.onSourceChanged();
+            }
+            Image.Plane[] planes = img.getPlanes();
+            mYuvPlanes.set(img.getWidth(), img.getHeight(), planes[0].getBuffer(), planes[0].getRowStride(),
+                    planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+            // Fixed by the reader's configuration, so it is looked up once per reader
+            if (capturedImage.mReader != mChromaLayoutReader) {
+                mChromaLayoutReader = capturedImage.mReader;
+                mChromaLayout = StridedYuvBuffer.getChromaLayout(mYuvPlanes);
+                Log.d(TAG, "processImage: Chroma layout " + mChromaLayout);
             }
+            buffer = wrapPlanes(mYuvPlanes, mChromaLayout, capturedImage::close);
+            mMetrics.recordSince(PipelineMetrics.Stage.PLANE_WRAP, start);
+        } catch (Exception e) {
+            Log.e(TAG, "processImage: Failed.", e);
+            capturedImage.close();
+            return;
+        }
 
-            byte[] nv21Original = Arrays.copyOf(nv21, nv21.length);
-            mFaceAnonymizer.removeFacesFromNV21(nv21, ySize);
-            boolean hasUnconfirmedDetections = mFaceAnonymizer.hasUnconfirmedDetections();
-            if (hasUnconfirmedDetections || (System.currentTimeMillis() - mLastProcessingTime) > 200) {
-                mFaceAnonymizer.analyzeImage(nv21Original);
-                mLastProcessingTime = System.currentTimeMillis();
+        try {
+            // Detection gets an unmodified NV21 snapshot, taken only when detection is actually due - from the next
+            // analysis image when there is an analysis stream
+            if (mAnalysisReader != null) {
+                if (!mAnalysisRequested && mFaceAnonymizer.isDetectionDue(mYuvPlanes)) {
+                    mAnalysisRequested = true;
+                }
+            } else if (mFaceAnonymizer.isDetectionDue(mYuvPlanes)) {
+                start = System.nanoTime();
+                byte[] nv21Original = mFramePool.acquire(NV21PlaneAssembler.getFrameLength(mYuvPlanes.getWidth(), mYuvPlanes.getHeight()));
+                try {
+                    NV21PlaneAssembler.assemble(mYuvPlanes, nv21Original);
+                } catch (Exception e) {
+                    mFramePool.release(nv21Original);
+                    throw e;
+                }
+                mMetrics.recordSince(PipelineMetrics.Stage.SNAPSHOT_COPY, start);
+                mFaceAnonymizer.analyzeImage(nv21Original, () -> mFramePool.release(nv21Original));
             }
+            mFaceAnonymizer.removeFaces(mYuvPlanes);
 
-            long timestampNS = TimeUnit.MILLISECONDS.toNanos(SystemClock.elapsedRealtime());
-            NV21Buffer buffer = new NV21Buffer(nv21, width, height, null);
-            final int FACE_ANONYMIZATION_ROTATION = 180;
+            int baseRotation = WebRTCAndroidApp.USE_SMARTGLASS_OPTIMIZATION ? 0 : 90;
+            // Front sensors are mounted the other way round
+            final int FACE_ANONYMIZATION_ROTATION = mProcessingCameraFront ? 180 : 0;
             VideoFrame videoFrame = new VideoFrame(buffer, FACE_ANONYMIZATION_ROTATION + baseRotation, timestampNS);
+            start = System.nanoTime();
             mObserver.onFrameCaptured(videoFrame);
-            videoFrame.release();
+            mMetrics.recordSince(PipelineMetrics.Stage.DELIVERY, start);
+            mDeliveredFrameCount.incrementAndGet();
         } catch (Exception e) {
             Log.e(TAG, "processImage: Failed.", e);
+        } finally {
+            buffer.release();
+            mProcessingTimeNs.addAndGet(System.nanoTime() - frameStart);
         }
     }
 
+    // Planar chroma is wrapped as is; interleaved chroma (the common case) needs the strided buffer
+    private static VideoFrame.Buffer wrapPlanes(YuvPlanes planes, YuvPlanes.ChromaLayout chromaLayout, Runnable releaseCallback) {
+        if (planes.getUvPixelStride() == 1) {
+            return JavaI420Buffer.wrap(planes.getWidth(), planes.getHeight(),
+                    planes.getY(), planes.getYRowStride(),
+                    planes.getU(), planes.getUvRowStride(),
+                    planes.getV(), planes.getUvRowStride(),
+                    releaseCallback);
+        }
+        return new StridedYuvBuffer(planes, chromaLayout, releaseCallback);
+    }
+
     private void applyParametersInternal() {
         Log.d(TAG, "applyParametersInternal");
 
@@ -233,12 +545,12 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
             }
 
             try {
-                CaptureRequest.Builder builder = mCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_PREVIEW);
-                builder.addTarget(mSurface);
-                if (mImageSurface != null && mImageSurface.isValid()) {
-                    builder.addTarget(mImageSurface);
+                CaptureRequest.Builder builder = mCameraDevice.createCaptureRequest(CameraDevice.TEMPLATE_RECORD);
+                builder.addTarget(mImageSurface);
+                if (mAnalysisSurface != null) {
+                    builder.addTarget(mAnalysisSurface);
                 }
-                builder.set(CaptureRequest.SENSOR_FRAME_DURATION, 1000000000L / mFrameRate);
+                builder.set(CaptureRequest.CONTROL_AE_TARGET_FPS_RANGE, mFpsRange);
                 mCaptureSession.setRepeatingRequest(builder.build(), null, null);
             } catch (Exception e) {
                 Log.e(TAG, "applyParametersInternal: Failed.", e);
@@ -246,14 +558,37 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
         }
     }
 
+    // The frames that are sent all come from the image reader, the camera produces no other stream
+    private void createCaptureSession(CameraDevice cameraDevice) {
+        try {
+            List<Surface> surfaceList = new ArrayList<>();
+            mImageSurface = mImageReader != null ? mImageReader.getSurface() : null;
+            if (mImageSurface == null) {
+                return;
+            }
+            surfaceList.add(mImageSurface);
+            mAnalysisSurface = mAnalysisReader != null ? mAnalysisReader.getSurface() : null;
+            if (mAnalysisSurface != null) {
+                surfaceList.add(mAnalysisSurface);
+            }
+
+            cameraDevice.createCaptureSession(surfaceList, mCaptureSessionListener, mCameraThreadHandler);
+        } catch (Exception e) {
+            Log.e(TAG, "createCaptureSession: Failed.", e);
+        }
+    }
+
     private void closeCameraDevice(CameraDevice cameraDevice) {
         Log.d(TAG, "closeCameraDevice");
 
         try {
             cameraDevice.close();
             if (mImageReader != null) {
-                mImageReader.close();
-                mImageReader = null;
+                retireImageReaders();
+            }
+            if (mAnalysisReader != null) {
+                mAnalysisReader.close();
+                mAnalysisReader = null;
             }
         } catch (Exception e) {
             Log.e(TAG, "closeCameraDevice: Failed. ", e);
@@ -266,25 +601,7 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
             Log.d(TAG, "mCameraListener::onOpened");
             mCameraDevice = cameraDevice;
             synchronized (mStateLock) {
-                try {
-                    List<Surface> surfaceList = new ArrayList<>();
-
-                    mSurfaceHelper.setTextureSize(mWidth, mHeight);
-                    mSurface = new Surface(mSurfaceHelper.getSurfaceTexture());
-                    surfaceList.add(mSurface);
-
-                    if (mFaceAnonymizer != null) {
-                        mImageSurface = mImageReader != null ? mImageReader.getSurface() : null;
-                        if (mImageSurface == null) {
-                            return;
-                        }
-                        surfaceList.add(mImageSurface);
-                    }
-
-                    cameraDevice.createCaptureSession(surfaceList, mCaptureSessionListener, mCameraThreadHandler);
-                } catch (Exception e) {
-                    Log.e(TAG, "mCameraListener::onOpened: Failed.", e);
-                }
+                createCaptureSession(cameraDevice);
             }
         }
 
@@ -292,12 +609,14 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
         public void onDisconnected(@NonNull CameraDevice cameraDevice) {
             Log.w(TAG, "mCameraListener::onDisconnected");
             closeCameraDevice(cameraDevice);
+            onCameraSwitchFailed("Camera disconnected");
         }
 
         @Override
         public void onError(@NonNull CameraDevice cameraDevice, int error) {
             Log.e(TAG, "mCameraListener::onError");
             closeCameraDevice(cameraDevice);
+            onCameraSwitchFailed("Camera error " + error);
         }
     };
 
@@ -305,7 +624,12 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
         @Override
         public void onConfigured(@NonNull CameraCaptureSession cameraCaptureSession) {
             Log.d(TAG, "mCaptureSessionListener::onConfigured");
-            if (mObserver != null) {
+            CameraVideoCapturer.CameraSwitchHandler switchHandler = takeSwitchHandler();
+            // After a switch or a format change the capturer is still started, WebRTC only hears about a new camera
+            if (switchHandler != null) {
+                switchHandler.onCameraSwitchDone(mIsCameraFront);
+            } else if (!mCapturerStarted && mObserver != null) {
+                mCapturerStarted = true;
                 mObserver.onCapturerStarted(true);
             }
             mCaptureSession = cameraCaptureSession;
@@ -315,19 +639,120 @@ public class AndroidCameraCapturer extends Camera1Capturer implements VideoCaptu
         @Override
         public void onConfigureFailed(@NonNull CameraCaptureSession cameraCaptureSession) {
             Log.e(TAG, "mCaptureSessionListener::onConfigureFailed");
+            onCameraSwitchFailed("Capture session configuration failed");
+        }
+    };
+
+    private CameraVideoCapturer.CameraSwitchHandler takeSwitchHandler() {
+        synchronized (mStateLock) {
+            CameraVideoCapturer.CameraSwitchHandler switchHandler = mSwitchHandler;
+            mSwitchHandler = null;
+            return switchHandler;
+        }
+    }
+
+    private void onCameraSwitchFailed(String errorDescription) {
+        CameraVideoCapturer.CameraSwitchHandler switchHandler = takeSwitchHandler();
+        if (switchHandler != null) {
+            mCameraSwitchTime = 0;
+            switchHandler.onCameraSwitchError(errorDescription);
+        }
+    }
+
+    private final CameraVideoCapturer.CameraSwitchHandler mNoSwitchHandler = new CameraVideoCapturer.CameraSwitchHandler() {
+        @Override
+        public void onCameraSwitchDone(boolean isFrontCamera) {
+        }
+
+        @Override
+        public void onCameraSwitchError(String errorDescription) {
         }
     };
 
     private final ImageReader.OnImageAvailableListener mOnImageAvailableListener =
         reader -> {
-            try (Image img = reader.acquireLatestImage()) {
-                if (img != null) {
-                    processImage(img);
-                }
+            // Every image is taken and queued, so frames are only dropped by the processing stage's policy
+            if (reader != mImageReader) {
+                return;
+            }
+            Image img;
+            try {
+                img = reader.acquireNextImage();
+            } catch (IllegalStateException e) {
+                mReaderStallCount.incrementAndGet();
+                Log.w(TAG, "onImageAvailable: Reader stalled - all images still in use.");
+                return;
             } catch (Exception e) {
                 Log.e(TAG, "onImageAvailable: Failed.", e);
+                return;
+            }
+            if (img != null) {
+                long cameraOpenTime = mCameraOpenTime;
+                if (cameraOpenTime != 0) {
+                    mCameraOpenTime = 0;
+                    mMetrics.recordSince(PipelineMetrics.Stage.CAMERA_START, cameraOpenTime);
+                }
+                long cameraSwitchTime = mCameraSwitchTime;
+                if (cameraSwitchTime != 0) {
+                    mCameraSwitchTime = 0;
+                    mSourceChangeTimestamp = img.getTimestamp();
+                    mMetrics.recordSince(PipelineMetrics.Stage.CAMERA_SWITCH, cameraSwitchTime);
+                }
+                mImageReaderCloser.onAcquired();
+                mProcessingStage.submit(new CapturedImage(img, reader, mImageReaderCloser));
+            }
+        };
+
+    // Analysis images are only copied when the processing thread asked for one; the others are closed right away
+    private final ImageReader.OnImageAvailableListener mOnAnalysisImageAvailableListener =
+        reader -> {
+            Image img = null;
+            try {
+                img = reader.acquireLatestImage();
+                if (img == null || !mAnalysisRequested) {
+                    return;
+                }
+                mAnalysisRequested = false;
+
+                long start = System.nanoTime();
+                Image.Plane[] planes = img.getPlanes();
+                mAnalysisPlanes.set(img.getWidth(), img.getHeight(), planes[0].getBuffer(), planes[0].getRowStride(),
+                        planes[1].getBuffer(), planes[2].getBuffer(), planes[1].getRowStride(), planes[1].getPixelStride());
+                byte[] nv21Original = mFramePool.acquire(NV21PlaneAssembler.getFrameLength(img.getWidth(), img.getHeight()));
+                try {
+                    NV21PlaneAssembler.assemble(mAnalysisPlanes, nv21Original);
+                } catch (Exception e) {
+                    mFramePool.release(nv21Original);
+                    throw e;
+                }
+                mMetrics.recordSince(PipelineMetrics.Stage.SNAPSHOT_COPY, start);
+                mFaceAnonymizer.analyzeImage(nv21Original, () -> mFramePool.release(nv21Original));
+            } catch (Exception e) {
+                Log.e(TAG, "onAnalysisImageAvailable: Failed.", e);
+            } finally {
+                if (img != null) {
+                    img.close();
+                }
             }
         };
 
     //endregion
+
+    // A camera image along with the reader it came from and that reader's closer
+    public static final class CapturedImage {
+        private final Image mImage;
+        private final ImageReader mReader;
+        private final DeferredCloser mReaderCloser;
+
+        private CapturedImage(Image image, ImageReader reader, DeferredCloser readerCloser) {
+            mImage = image;
+            mReader = reader;
+            mReaderCloser = readerCloser;
+        }
+
+        private void close() {
+            mImage.close();
+            mReaderCloser.onReleased();
+        }
+    }
 }
@@ -0,0 +1,150 @@
+package com.example.webrtcandroidapp.capturers;
+
+import android.util.Log;
+
+import org.webrtc.JavaI420Buffer;
+import org.webrtc.VideoFrame;
+import org.webrtc.YuvHelper;
+
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebRTC frame buffer over the planes of a YUV_420_888 image with interleaved chroma (pixel stride 2), which
+ * JavaI420Buffer cannot wrap. Nothing is copied until a consumer asks for I420; plain crops share the planes.
+ * The conversion to I420 runs natively in libyuv when the chroma planes share one NV12 or NV21 block, as camera
+ * images do, like NV21Buffer did; other layouts fall back to a copy in Java. The layout is found once per source
+ * with getChromaLayout and passed in with every frame.
+ * The release callback runs once the last reference is released.
+ */
+public class StridedYuvBuffer implements VideoFrame.Buffer {
+
+    private static final String TAG = "StridedYuvBuffer";
+    private static final Field ADDRESS_FIELD = getAddressField();
+
+    private final YuvPlanes mPlanes;
+    private final YuvPlanes.ChromaLayout mChromaLayout;
+    private final Runnable mReleaseCallback;
+    private final AtomicInteger mRefCount = new AtomicInteger(1);
+
+    public StridedYuvBuffer(YuvPlanes planes, YuvPlanes.ChromaLayout chromaLayout, Runnable releaseCallback) {
+        // Own view of the planes, the caller may reuse its instance for the next frame
+        mPlanes = new YuvPlanes().set(planes.getWidth(), planes.getHeight(), planes.getY().slice(), planes.getYRowStride(),
+                planes.getU().slice(), planes.getV().slice(), planes.getUvRowStride(), planes.getUvPixelStride());
+        mChromaLayout = chromaLayout;
+        mReleaseCallback = releaseCallback;
+    }
+
+    @Override
+    public int getWidth() {
+        return mPlanes.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return mPlanes.getHeight();
+    }
+
+    @Override
+    public VideoFrame.I420Buffer toI420() {
+        int width = mPlanes.getWidth();
+        int height = mPlanes.getHeight();
+        JavaI420Buffer i420Buffer = JavaI420Buffer.allocate(width, height);
+        // The interleaved block starts at the first plane; its last row reaches one sample into the other plane,
+        // which shares the memory
+        if (mChromaLayout == YuvPlanes.ChromaLayout.NV12) {
+            YuvHelper.nv12ToI420(mPlanes.getY(), mPlanes.getYRowStride(), mPlanes.getU(), mPlanes.getUvRowStride(),
+                    i420Buffer.getDataY(), i420Buffer.getStrideY(), i420Buffer.getDataU(), i420Buffer.getStrideU(),
+                    i420Buffer.getDataV(), i420Buffer.getStrideV(), width, height);
+            return i420Buffer;
+        }
+        if (mChromaLayout == YuvPlanes.ChromaLayout.NV21) {
+            YuvHelper.nv12ToI420(mPlanes.getY(), mPlanes.getYRowStride(), mPlanes.getV(), mPlanes.getUvRowStride(),
+                    i420Buffer.getDataY(), i420Buffer.getStrideY(), i420Buffer.getDataV(), i420Buffer.getStrideV(),
+                    i420Buffer.getDataU(), i420Buffer.getStrideU(), width, height);
+            return i420Buffer;
+        }
+
+        YuvPlanes i420Planes = new YuvPlanes().set(width, height, i420Buffer.getDataY(), i420Buffer.getStrideY(),
+                i420Buffer.getDataU(), i420Buffer.getDataV(), i420Buffer.getStrideU(), 1);
+        YuvPlaneCopier.copy(mPlanes, i420Planes);
+        return i420Buffer;
+    }
+
+    @Override
+    public void retain() {
+        if (mRefCount.getAndIncrement() <= 0) {
+            throw new IllegalStateException("retain() called on an object with refcount <= 0");
+        }
+    }
+
+    @Override
+    public void release() {
+        int refCount = mRefCount.decrementAndGet();
+        if (refCount < 0) {
+            throw new IllegalStateException("release() called on an object with refcount < 1");
+        }
+        if (refCount == 0 && mReleaseCallback != null) {
+            mReleaseCallback.run();
+        }
+    }
+
+    @Override
+    public VideoFrame.Buffer cropAndScale(int cropX, int cropY, int cropWidth, int cropHeight, int scaleWidth, int scaleHeight) {
+        if (cropWidth == scaleWidth && cropHeight == scaleHeight && cropX % 2 == 0 && cropY % 2 == 0) {
+            int uvOffset = cropY / 2 * mPlanes.getUvRowStride() + cropX / 2 * mPlanes.getUvPixelStride();
+            YuvPlanes cropped = new YuvPlanes().set(cropWidth, cropHeight,
+                    offset(mPlanes.getY(), cropY * mPlanes.getYRowStride() + cropX), mPlanes.getYRowStride(),
+                    offset(mPlanes.getU(), uvOffset), offset(mPlanes.getV(), uvOffset),
+                    mPlanes.getUvRowStride(), mPlanes.getUvPixelStride());
+            retain();
+            return new StridedYuvBuffer(cropped, mChromaLayout, this::release);
+        }
+
+        VideoFrame.I420Buffer i420Buffer = toI420();
+        VideoFrame.Buffer scaledBuffer = i420Buffer.cropAndScale(cropX, cropY, cropWidth, cropHeight, scaleWidth, scaleHeight);
+        i420Buffer.release();
+        return scaledBuffer;
+    }
+
+    // Compares where the chroma planes start, never writing to memory the camera owns; direct buffers whose address
+    // can't be read are treated as separate planes
+    public static YuvPlanes.ChromaLayout getChromaLayout(YuvPlanes planes) {
+        if (!planes.getU().isDirect() || !planes.getV().isDirect()) {
+            return planes.getChromaLayout();
+        }
+        return YuvPlanes.getChromaLayout(planes.getUvPixelStride(), getAddress(planes.getU()), getAddress(planes.getV()));
+    }
+
+    private static long getAddress(ByteBuffer buffer) {
+        if (ADDRESS_FIELD == null) {
+            return -1;
+        }
+        try {
+            return ADDRESS_FIELD.getLong(buffer);
+        } catch (Exception e) {
+            Log.e(TAG, "getAddress: Failed.", e);
+            return -1;
+        }
+    }
+
+    // The native address of a direct buffer's index 0, slices included
+    private static Field getAddressField() {
+        try {
+            Field field = Buffer.class.getDeclaredField("address");
+            field.setAccessible(true);
+            return field;
+        } catch (Exception e) {
+            Log.w(TAG, "getAddressField: Failed - chroma planes are copied in Java.", e);
+            return null;
+        }
+    }
+
+    private static ByteBuffer offset(ByteBuffer buffer, int offset) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        return duplicate.slice();
+    }
+}
@@ -1,18 +1,26 @@
 package com.example.webrtcandroidapp.services;
 
 import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 
 import com.example.webrtcandroidapp.BuildConfig;
 import com.example.webrtcandroidapp.WebRTCAndroidApp;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
 import com.microsoft.signalr.Action;
 import com.microsoft.signalr.Action1;
 import com.microsoft.signalr.HubConnection;
 import com.microsoft.signalr.HubConnectionBuilder;
 import com.microsoft.signalr.HubConnectionState;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Completable;
 import io.reactivex.Single;
+import io.reactivex.disposables.Disposable;
 
+import static io.reactivex.internal.functions.Functions.EMPTY_ACTION;
 import static io.reactivex.internal.functions.Functions.emptyConsumer;
 
 public class SignalrService {
@@ -22,8 +30,23 @@ public class SignalrService {
     }
 
     private static final String TAG = "SignalrService";
+    private static final int RECONNECT_INITIAL_DELAY = 1000;
+    private static final int RECONNECT_MAX_DELAY = 30000;
+    private static final float RECONNECT_JITTER = 0.5F;
+
+    private final ReconnectBackoff mReconnectBackoff = new ReconnectBackoff(RECONNECT_INITIAL_DELAY, RECONNECT_MAX_DELAY, RECONNECT_JITTER);
+    private final AtomicLong mReconnectCount = new AtomicLong();
+    private final AtomicLong mReconnectAttemptCount = new AtomicLong();
+    private volatile long mConnectTimeMs = -1;
 
-    private HubConnection mHubConnection;
+    private volatile HubConnection mHubConnection;
+    private PipelineMetrics mMetrics = new PipelineMetrics();
+    private SignalrConnectionListener mListener;
+    private Completable mConnect;
+    private Disposable mReconnectDisposable;
+    private boolean mConnectRequested;
+    private boolean mReconnectPending;
+    private boolean mDisposed;
 
     public SignalrService(String path, boolean withToken) {
         Log.d(TAG, "SignalrService; path: " + path);
@@ -41,23 +64,48 @@ public class SignalrService {
             } else {
                 mHubConnection = HubConnectionBuilder.create(hubUrl).build();
             }
+            mHubConnection.onClosed(this::onClosed);
         } catch (Exception e) {
             Log.e(TAG, "SignalrService: Failed. [Error]: ", e);
         }
     }
 
-    public void connect(SignalrConnectionListener listener) {
+    // Records the connection times and counts the reconnections in the given metrics; setting the same metrics again
+    // does not add the counters twice
+    public synchronized void setMetrics(PipelineMetrics metrics) {
+        if (metrics == mMetrics) {
+            return;
+        }
+        mMetrics = metrics;
+        mMetrics.addCounter("signaling connect ms", () -> mConnectTimeMs);
+        mMetrics.addCounter("signaling reconnects", mReconnectCount::get);
+        mMetrics.addCounter("signaling reconnect attempts", mReconnectAttemptCount::get);
+    }
+
+    // Connects without blocking the caller; the returned Completable completes once connected, or fails with the first
+    // attempt. Failed attempts and dropped connections are retried with jittered exponential backoff until disconnect.
+    // The listener is called on a connection thread after every successful connection, reconnections included
+    public synchronized Completable connect(SignalrConnectionListener listener) {
         Log.d(TAG, "connect");
 
-        try {
-            mHubConnection.start().doOnComplete(() -> {
-                if(listener != null) {
-                    listener.onConnected();
-                }
-            }).doOnError(emptyConsumer()).blockingAwait();
-        } catch (Exception e) {
-            Log.e(TAG, "connect: Failed. [Error]: ", e);
+        if (mHubConnection == null) {
+            Log.e(TAG, "connect: Failed. - mHubConnection is null.");
+            return Completable.error(new IllegalStateException("mHubConnection is null"));
+        }
+
+        mListener = listener;
+        mConnectRequested = true;
+        if (mHubConnection.getConnectionState() == HubConnectionState.CONNECTED) {
+            if (listener != null) {
+                listener.onConnected();
+            }
+            return Completable.complete();
         }
+        if (mConnect == null || (mHubConnection.getConnectionState() == HubConnectionState.DISCONNECTED && !mReconnectPending)) {
+            mConnect = start(mHubConnection, false).cache();
+            mConnect.subscribe(EMPTY_ACTION, emptyConsumer());
+        }
+        return mConnect;
     }
 
     public void define(String methodName, Action callback) {
@@ -121,10 +169,15 @@ public class SignalrService {
     public void disconnect() {
         Log.d(TAG, "disconnect");
 
+        HubConnection hubConnection;
+        synchronized (this) {
+            cancelReconnect();
+            hubConnection = mHubConnection;
+        }
         try {
-            mHubConnection.stop();
+            hubConnection.stop();
         } catch (Exception e) {
-            Log.e(TAG, "disconnect: Failed. [Connection]: " + (mHubConnection != null ? mHubConnection.getConnectionState() : null));
+            Log.e(TAG, "disconnect: Failed. [Connection]: " + (hubConnection != null ? hubConnection.getConnectionState() : null));
         }
     }
 
@@ -132,10 +185,92 @@ public class SignalrService {
         Log.d(TAG, "dispose");
 
         disconnect();
-        mHubConnection = null;
+        synchronized (this) {
+            mDisposed = true;
+            cancelReconnect();
+            mHubConnection = null;
+        }
     }
 
     public boolean isConnected() {
         return mHubConnection != null && mHubConnection.getConnectionState() == HubConnectionState.CONNECTED;
     }
+
+    // Duration of the last successful connection attempt; -1 until connected
+    public long getConnectTimeMs() {
+        return mConnectTimeMs;
+    }
+
+    public long getReconnectCount() {
+        return mReconnectCount.get();
+    }
+
+    private Completable start(HubConnection hubConnection, boolean reconnect) {
+        long startTime = SystemClock.elapsedRealtime();
+        return hubConnection.start()
+                .doOnComplete(() -> onConnected(startTime, reconnect))
+                .doOnError(e -> {
+                    Log.e(TAG, "connect: Failed. [Error]: ", e);
+                    scheduleReconnect();
+                });
+    }
+
+    private void onConnected(long startTime, boolean reconnect) {
+        SignalrConnectionListener listener;
+        synchronized (this) {
+            mConnectTimeMs = SystemClock.elapsedRealtime() - startTime;
+            mMetrics.record(PipelineMetrics.Stage.SIGNALING_CONNECT, TimeUnit.MILLISECONDS.toNanos(mConnectTimeMs));
+            mReconnectBackoff.reset();
+            if (reconnect) {
+                mReconnectCount.incrementAndGet();
+            }
+            listener = mListener;
+        }
+        Log.d(TAG, "onConnected; connectTimeMs: " + mConnectTimeMs + ", reconnect: " + reconnect);
+
+        if (listener != null) {
+            listener.onConnected();
+        }
+    }
+
+    private void onClosed(Exception exception) {
+        Log.d(TAG, "onClosed; exception: " + exception);
+
+        scheduleReconnect();
+    }
+
+    // A failed attempt may also close the connection, only one reconnection is scheduled for both
+    private synchronized void scheduleReconnect() {
+        if (mDisposed || !mConnectRequested || mReconnectPending || mHubConnection == null) {
+            return;
+        }
+
+        long delayMs = mReconnectBackoff.nextDelayMs();
+        Log.d(TAG, "scheduleReconnect; delayMs: " + delayMs + ", attempt: " + mReconnectBackoff.getAttempt());
+        mReconnectPending = true;
+        mReconnectDisposable = Completable.timer(delayMs, TimeUnit.MILLISECONDS).subscribe(this::reconnect);
+    }
+
+    private void reconnect() {
+        HubConnection hubConnection;
+        synchronized (this) {
+            mReconnectPending = false;
+            hubConnection = mHubConnection;
+            if (mDisposed || !mConnectRequested || hubConnection == null
+                    || hubConnection.getConnectionState() != HubConnectionState.DISCONNECTED) {
+                return;
+            }
+            mReconnectAttemptCount.incrementAndGet();
+        }
+        start(hubConnection, true).subscribe(EMPTY_ACTION, emptyConsumer());
+    }
+
+    private void cancelReconnect() {
+        mConnectRequested = false;
+        mReconnectPending = false;
+        if (mReconnectDisposable != null) {
+            mReconnectDisposable.dispose();
+            mReconnectDisposable = null;
+        }
+    }
 }
@@ -0,0 +1,71 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.AnonymizationMode;
+import com.example.webrtcandroidapp.ai.NV21Anonymizer;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one anonymized area in each anonymization mode, on the strided planes of a camera image - the numbers
+ * behind the fallback order of AnonymizationBudget.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AnonymizationModeBenchmark {
+
+    @Param({"640x480", "1920x1080"})
+    public String resolution;
+
+    @Param({"0.1", "0.5"})
+    public float boxSize;
+
+    @Param({"BLUR", "PIXELATE", "FILL"})
+    public AnonymizationMode mode;
+
+    private NV21Anonymizer mAnonymizer;
+    private YuvPlanes mPlanes;
+    private int mTop;
+    private int mLeft;
+    private int mBoxWidth;
+    private int mBoxHeight;
+
+    @Setup
+    public void setup() {
+        int width = BenchmarkFrames.parseWidth(resolution);
+        int height = BenchmarkFrames.parseHeight(resolution);
+        mPlanes = YuvPlanes.wrapNV21(BenchmarkFrames.createNV21(width, height), width, height);
+        // Direct luma like a camera image; chroma stays interleaved with a pixel stride of 2
+        ByteBuffer y = ByteBuffer.allocateDirect(width * height);
+        y.put(BenchmarkFrames.createNV21(width, height), 0, width * height).clear();
+        mPlanes.set(width, height, y, width, mPlanes.getU(), mPlanes.getV(), width, 2);
+        mAnonymizer = new NV21Anonymizer();
+        mBoxWidth = (int) (width * boxSize);
+        mBoxHeight = Math.min(mBoxWidth, height);
+        mTop = (height - mBoxHeight) / 2 & ~1;
+        mLeft = (width - mBoxWidth) / 2 & ~1;
+    }
+
+    @Benchmark
+    public YuvPlanes applyAnonymization() {
+        mAnonymizer.applyAnonymization(mPlanes, mode, mTop, mLeft, mBoxHeight, mBoxWidth);
+        return mPlanes;
+    }
+}
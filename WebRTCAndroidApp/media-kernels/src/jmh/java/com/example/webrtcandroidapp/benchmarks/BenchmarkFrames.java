@@ -0,0 +1,64 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkFrames {
+
+    private static final long SEED = 20240101L;
+
+    private BenchmarkFrames() {
+    }
+
+    static int parseWidth(String resolution) {
+        return Integer.parseInt(resolution.substring(0, resolution.indexOf('x')));
+    }
+
+    static int parseHeight(String resolution) {
+        return Integer.parseInt(resolution.substring(resolution.indexOf('x') + 1));
+    }
+
+    static byte[] createNV21(int width, int height) {
+        byte[] nv21 = new byte[width * height * 2];
+        new Random(SEED).nextBytes(nv21);
+        return nv21;
+    }
+
+    // Confirmed boxes of the given relative width, spread over the frame at deterministic positions
+    static List<FDBoundingBox> createBoxes(int count, float relativeSize, float aspectRatio) {
+        Random random = new Random(SEED);
+        List<FDBoundingBox> boxes = new ArrayList<>();
+        float boxHeight = Math.min(relativeSize * aspectRatio, 1F);
+        for (int i = 0; i < count; i++) {
+            float xMin = random.nextFloat() * (1F - relativeSize);
+            float yMin = random.nextFloat() * (1F - boxHeight);
+            FDBoundingBox box = new FDBoundingBox(i, xMin, yMin, relativeSize, boxHeight);
+            box.confirm();
+            boxes.add(box);
+        }
+        return boxes;
+    }
+
+    // A crowd: faces packed into the middle band of the frame so that neighbours overlap, each also reported by a
+    // second, slightly shifted box the way a stale track and its fresh detection are
+    static List<FDBoundingBox> createCrowdedBoxes(int faces, float relativeSize, float aspectRatio) {
+        Random random = new Random(SEED);
+        List<FDBoundingBox> boxes = new ArrayList<>();
+        float boxHeight = Math.min(relativeSize * aspectRatio, 1F);
+        float shift = relativeSize * 0.1F;
+        for (int i = 0; i < faces; i++) {
+            float xMin = random.nextFloat() * (1F - relativeSize - shift);
+            float yMin = 0.25F + random.nextFloat() * Math.max(0.5F - boxHeight - shift, 0F);
+            FDBoundingBox box = new FDBoundingBox(boxes.size(), xMin, yMin, relativeSize, boxHeight);
+            box.confirm();
+            boxes.add(box);
+            FDBoundingBox shifted = new FDBoundingBox(boxes.size(), xMin + shift, yMin + shift, relativeSize, boxHeight);
+            shifted.confirm();
+            boxes.add(shifted);
+        }
+        return boxes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.DetectionCrops;
+import com.example.webrtcandroidapp.ai.DetectionPyramid;
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.NV21ToArgbConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of preparing the detector input: converting the full capture frame versus downscaling to the detection
+ * pyramid and converting only the reduced levels, or cropping two regions of interest around tracked faces.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DetectionInputBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    private NV21ToArgbConverter mConverter;
+    private DetectionPyramid mSingleLevelPyramid;
+    private DetectionPyramid mTwoLevelPyramid;
+    private byte[] mFrame;
+    private int[] mFullArgb;
+    private int[][] mLevelArgb;
+    private DetectionCrops mCrops;
+    private List<FDBoundingBox> mRegions;
+    private int mWidth;
+    private int mHeight;
+
+    @Setup
+    public void setup() {
+        mWidth = BenchmarkFrames.parseWidth(resolution);
+        mHeight = BenchmarkFrames.parseHeight(resolution);
+        mFrame = BenchmarkFrames.createNV21(mWidth, mHeight);
+        mFullArgb = new int[mWidth * mHeight];
+        mConverter = new NV21ToArgbConverter(1);
+        mSingleLevelPyramid = new DetectionPyramid(128);
+        mSingleLevelPyramid.setFrameSize(mWidth, mHeight);
+        mTwoLevelPyramid = new DetectionPyramid(128, 256);
+        mTwoLevelPyramid.setFrameSize(mWidth, mHeight);
+        mLevelArgb = new int[2][];
+        for (int i = 0; i < 2; i++) {
+            DetectionPyramid.Level level = mTwoLevelPyramid.getLevel(i);
+            mLevelArgb[i] = new int[level.getWidth() * level.getHeight()];
+        }
+        mCrops = new DetectionCrops(128, 2);
+        mCrops.setFrameSize(mWidth, mHeight);
+        mRegions = BenchmarkFrames.createBoxes(2, 0.15F, (float) mWidth / mHeight);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mConverter.close();
+    }
+
+    @Benchmark
+    public int[] fullFrame() {
+        mConverter.convert(mFrame, mWidth, mHeight, mFullArgb);
+        return mFullArgb;
+    }
+
+    @Benchmark
+    public int[][] singleLevel() {
+        return convertLevels(mSingleLevelPyramid);
+    }
+
+    @Benchmark
+    public int[][] twoLevels() {
+        return convertLevels(mTwoLevelPyramid);
+    }
+
+    @Benchmark
+    public int[][] regionCrops() {
+        mCrops.update(mFrame, mRegions, 0);
+        for (int i = 0; i < mCrops.getCropCount(); i++) {
+            DetectionPyramid.Level crop = mCrops.getCrop(i);
+            mConverter.convert(crop.getNV21(), crop.getWidth(), crop.getHeight(), mLevelArgb[1]);
+        }
+        return mLevelArgb;
+    }
+
+    private int[][] convertLevels(DetectionPyramid pyramid) {
+        pyramid.update(mFrame);
+        for (int i = 0; i < pyramid.getLevelCount(); i++) {
+            DetectionPyramid.Level level = pyramid.getLevel(i);
+            mConverter.convert(level.getNV21(), level.getWidth(), level.getHeight(), mLevelArgb[i]);
+        }
+        return mLevelArgb;
+    }
+}
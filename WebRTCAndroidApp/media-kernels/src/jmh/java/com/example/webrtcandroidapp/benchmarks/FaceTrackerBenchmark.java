@@ -0,0 +1,62 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.FaceTracker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame track prediction from a published snapshot (expected to report no allocation with -prof gc) and a
+ * detection update.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FaceTrackerBenchmark {
+
+    @Param({"1", "5", "20"})
+    public int faces;
+
+    private FaceTracker mTracker;
+    private FaceTracker.Predictor mPredictor;
+    private List<FDBoundingBox> mDetections;
+    private long mTimestamp;
+
+    @Setup
+    public void setup() {
+        mDetections = BenchmarkFrames.createBoxes(faces, 0.1F, 1F);
+        mTracker = new FaceTracker(0.2F, 1000, 500);
+        mTracker.update(mDetections, 0);
+        mTracker.update(mDetections, 200);
+        mPredictor = new FaceTracker.Predictor();
+        mTimestamp = 200;
+    }
+
+    @Benchmark
+    public List<FDBoundingBox> predict() {
+        return mPredictor.predict(mTracker.getSnapshot(), ++mTimestamp);
+    }
+
+    @Benchmark
+    public List<FDBoundingBox> update() {
+        mTimestamp += 200;
+        mTracker.update(mDetections, mTimestamp);
+        return mTracker.getBoundingBoxes();
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.AnonymizationMode;
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.MaskPass;
+import com.example.webrtcandroidapp.ai.NV21Anonymizer;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mask pass over the planes of a camera-like 1080p image with 0 (serial) to 3 pool threads helping the calling thread,
+ * for small and large masks. The parallel area threshold is 0 here, so the small masks show the split overhead that
+ * FaceAnonymizer's threshold avoids.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MaskPassBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"0", "1", "2", "3"})
+    public int threads;
+
+    @Param({"1", "4"})
+    public int faces;
+
+    @Param({"0.1", "0.3"})
+    public float boxSize;
+
+    @Param({"BLUR", "PIXELATE"})
+    public AnonymizationMode mode;
+
+    private NV21Anonymizer mAnonymizer;
+    private List<FDBoundingBox> mBoxes;
+    private YuvPlanes mPlanes;
+
+    @Setup
+    public void setup() {
+        mBoxes = BenchmarkFrames.createBoxes(faces, boxSize, (float) WIDTH / HEIGHT);
+        mPlanes = YuvPlanes.wrapNV21(BenchmarkFrames.createNV21(WIDTH, HEIGHT), WIDTH, HEIGHT);
+        mPlanes.set(WIDTH, HEIGHT, ByteBuffer.allocateDirect(WIDTH * HEIGHT), WIDTH,
+                mPlanes.getU(), mPlanes.getV(), WIDTH, 2);
+        mAnonymizer = new NV21Anonymizer(new MaskPass(threads, 0));
+        mAnonymizer.getBudget().setPreferredMode(mode, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mAnonymizer.dispose();
+    }
+
+    @Benchmark
+    public YuvPlanes removeFaces() {
+        mAnonymizer.removeFaces(mPlanes, mBoxes);
+        return mPlanes;
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.MaskPlanner;
+import com.example.webrtcandroidapp.ai.NV21Anonymizer;
+import com.example.webrtcandroidapp.ai.YuvPlanePixelator;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Crowded scenes from 1 to 50 faces, each reported twice with overlapping boxes: the planning step alone, pixelation of
+ * the merged mask (NV21Anonymizer.removeFaces), and for comparison pixelating every box on its own.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MaskPlannerBenchmark {
+
+    private static final int WIDTH = 1280;
+    private static final int HEIGHT = 720;
+    private static final float OVERLAY_COMPENSATION_FACTOR = 0.1F;
+
+    @Param({"1", "5", "10", "25", "50"})
+    public int faces;
+
+    @Param({"0.05", "0.15"})
+    public float boxSize;
+
+    private List<FDBoundingBox> mBoxes;
+    private YuvPlanes mPlanes;
+    private NV21Anonymizer mAnonymizer;
+    private MaskPlanner mPlanner;
+    private YuvPlanePixelator mPixelator;
+    // top, left, width, height per box, mapped like NV21Anonymizer does
+    private int[] mAreas;
+    private int mBlockSize;
+
+    @Setup
+    public void setup() {
+        mBoxes = BenchmarkFrames.createCrowdedBoxes(faces, boxSize, (float) WIDTH / HEIGHT);
+        mPlanes = YuvPlanes.wrapNV21(BenchmarkFrames.createNV21(WIDTH, HEIGHT), WIDTH, HEIGHT);
+        mAnonymizer = new NV21Anonymizer();
+        mPlanner = new MaskPlanner();
+        mPixelator = new YuvPlanePixelator();
+
+        mAreas = new int[mBoxes.size() * 4];
+        for (int i = 0; i < mBoxes.size(); i++) {
+            FDBoundingBox box = mBoxes.get(i);
+            int width = (int) (WIDTH * box.getWidth());
+            int height = (int) (HEIGHT * box.getHeight());
+            int compensation = (int) (Math.min(width, height) * OVERLAY_COMPENSATION_FACTOR);
+            mAreas[i * 4] = ((int) (HEIGHT * box.getYMin()) & ~1) - compensation;
+            mAreas[i * 4 + 1] = ((int) (WIDTH * box.getXMin()) & ~1) - compensation;
+            mAreas[i * 4 + 2] = width + compensation * 2;
+            mAreas[i * 4 + 3] = height + compensation * 2;
+        }
+        mBlockSize = Math.max(WIDTH / 80, mAreas[2] / 50);
+    }
+
+    @Benchmark
+    public MaskPlanner plan() {
+        mPlanner.reset(WIDTH, HEIGHT);
+        for (int i = 0; i < mAreas.length; i += 4) {
+            mPlanner.addArea(mAreas[i], mAreas[i + 1], mAreas[i + 2], mAreas[i + 3]);
+        }
+        mPlanner.plan(mBlockSize);
+        return mPlanner;
+    }
+
+    @Benchmark
+    public YuvPlanes pixelateMergedMask() {
+        mAnonymizer.removeFaces(mPlanes, mBoxes);
+        return mPlanes;
+    }
+
+    @Benchmark
+    public YuvPlanes pixelateEachBox() {
+        for (int i = 0; i < mAreas.length; i += 4) {
+            mPixelator.pixelate(mPlanes, mAreas[i], mAreas[i + 1], mAreas[i + 2], mAreas[i + 3], mBlockSize);
+        }
+        return mPlanes;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.MotionGate;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the motion check on an unchanged frame (the skip path), to compare against a 33 ms frame budget.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MotionGateBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"0", "5"})
+    public int faces;
+
+    private MotionGate mGate;
+    private List<FDBoundingBox> mTracks;
+    private YuvPlanes mPlanes;
+
+    @Setup
+    public void setup() {
+        int width = BenchmarkFrames.parseWidth(resolution);
+        int height = BenchmarkFrames.parseHeight(resolution);
+        mPlanes = YuvPlanes.wrapNV21(BenchmarkFrames.createNV21(width, height), width, height);
+        mTracks = BenchmarkFrames.createBoxes(faces, 0.1F, 1F);
+        mGate = new MotionGate(6F, 3F, Long.MAX_VALUE, Long.MAX_VALUE);
+        mGate.shouldAnalyze(mPlanes, mTracks, 0);
+    }
+
+    @Benchmark
+    public boolean unchangedFrame() {
+        return mGate.shouldAnalyze(mPlanes, mTracks, 1);
+    }
+}
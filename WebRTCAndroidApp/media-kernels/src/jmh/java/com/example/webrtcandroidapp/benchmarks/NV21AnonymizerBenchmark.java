@@ -0,0 +1,88 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.NV21Anonymizer;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-frame cost of removing faces from an NV21 frame and from the strided planes of a camera image
+ * (FaceAnonymizer.removeFaces), and of a single anonymized area (NV21Anonymizer.applyAnonymization).
+ * Run with the gc profiler for bytes allocated per frame.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NV21AnonymizerBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"0", "1", "5", "20"})
+    public int faces;
+
+    @Param({"0.1", "0.25", "0.5"})
+    public float boxSize;
+
+    private NV21Anonymizer mAnonymizer;
+    private List<FDBoundingBox> mBoxes;
+    private byte[] mFrame;
+    private YuvPlanes mPlanes;
+    private int mWidth;
+    private int mHeight;
+    private int mBoxWidth;
+    private int mBoxHeight;
+
+    @Setup
+    public void setup() {
+        mWidth = BenchmarkFrames.parseWidth(resolution);
+        mHeight = BenchmarkFrames.parseHeight(resolution);
+        mFrame = BenchmarkFrames.createNV21(mWidth, mHeight);
+        mBoxes = BenchmarkFrames.createBoxes(faces, boxSize, (float) mWidth / mHeight);
+        mPlanes = YuvPlanes.wrapNV21(BenchmarkFrames.createNV21(mWidth, mHeight), mWidth, mHeight);
+        // Direct luma like a camera image; chroma stays interleaved with a pixel stride of 2
+        mPlanes.set(mWidth, mHeight, ByteBuffer.allocateDirect(mWidth * mHeight), mWidth,
+                mPlanes.getU(), mPlanes.getV(), mWidth, 2);
+        mAnonymizer = new NV21Anonymizer();
+        mBoxWidth = (int) (mWidth * boxSize);
+        mBoxHeight = Math.min(mBoxWidth, mHeight);
+    }
+
+    @Benchmark
+    public byte[] removeFaces() {
+        mAnonymizer.removeFaces(mFrame, mWidth * mHeight, mWidth, mHeight, mBoxes);
+        return mFrame;
+    }
+
+    @Benchmark
+    public YuvPlanes removeFacesFromPlanes() {
+        mAnonymizer.removeFaces(mPlanes, mBoxes);
+        return mPlanes;
+    }
+
+    @Benchmark
+    public byte[] applyAnonymization() {
+        int top = (mHeight - mBoxHeight) / 2 & ~1;
+        int left = (mWidth - mBoxWidth) / 2 & ~1;
+        mAnonymizer.applyAnonymization(mFrame, mWidth * mHeight, top, left, mBoxHeight, mBoxWidth, mWidth, mHeight);
+        return mFrame;
+    }
+}
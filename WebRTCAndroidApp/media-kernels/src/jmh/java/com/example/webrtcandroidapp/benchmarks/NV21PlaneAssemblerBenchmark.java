@@ -0,0 +1,66 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.capturers.NV21FramePool;
+import com.example.webrtcandroidapp.capturers.NV21PlaneAssembler;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detection snapshot assembly as done by AndroidCameraCapturer.processImage when detection is due, with padded direct
+ * buffers standing in for the YUV_420_888 image planes. Frames sent to WebRTC are no longer copied at all.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NV21PlaneAssemblerBenchmark {
+
+    private static final int ROW_PADDING = 64;
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "2"})
+    public int uvPixelStride;
+
+    private YuvPlanes mPlanes;
+    private NV21FramePool mFramePool;
+
+    @Setup
+    public void setup() {
+        int width = BenchmarkFrames.parseWidth(resolution);
+        int height = BenchmarkFrames.parseHeight(resolution);
+        int yRowStride = width + ROW_PADDING;
+        int uvRowStride = width / 2 * uvPixelStride + ROW_PADDING;
+        mPlanes = new YuvPlanes().set(width, height,
+                ByteBuffer.allocateDirect(yRowStride * height), yRowStride,
+                ByteBuffer.allocateDirect(uvRowStride * height / 2),
+                ByteBuffer.allocateDirect(uvRowStride * height / 2),
+                uvRowStride, uvPixelStride);
+        mFramePool = new NV21FramePool(4);
+    }
+
+    @Benchmark
+    public byte[] detectionSnapshot() {
+        byte[] snapshot = mFramePool.acquire(NV21PlaneAssembler.getFrameLength(mPlanes.getWidth(), mPlanes.getHeight()));
+        NV21PlaneAssembler.assemble(mPlanes, snapshot);
+        mFramePool.release(snapshot);
+        return snapshot;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.webrtcandroidapp.benchmarks;
+
+import com.example.webrtcandroidapp.ai.NV21ToArgbConverter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detection input conversion (NV21 to ARGB). The on-device comparison with the RenderScript intrinsic lives in the
+ * app's instrumented tests (NV21ToArgbConversionBenchmarkTest).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NV21ToArgbBenchmark {
+
+    @Param({"640x480", "1280x720", "1920x1080"})
+    public String resolution;
+
+    @Param({"1", "2", "4"})
+    public int parallelism;
+
+    private NV21ToArgbConverter mConverter;
+    private byte[] mFrame;
+    private int[] mArgb;
+    private int mWidth;
+    private int mHeight;
+
+    @Setup
+    public void setup() {
+        mWidth = BenchmarkFrames.parseWidth(resolution);
+        mHeight = BenchmarkFrames.parseHeight(resolution);
+        mFrame = BenchmarkFrames.createNV21(mWidth, mHeight);
+        mArgb = new int[mWidth * mHeight];
+        mConverter = new NV21ToArgbConverter(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        mConverter.close();
+    }
+
+    @Benchmark
+    public int[] convert() {
+        mConverter.convert(mFrame, mWidth, mHeight, mArgb);
+        return mArgb;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the anonymization mode of a frame so that its estimated cost stays within the per-frame budget: the preferred
+ * mode if it fits, otherwise the next cheaper one that does, and FILL if none does. The cost of each mode is tracked
+ * as smoothed nanoseconds per anonymized pixel; a mode that was never measured is assumed to fit. Estimates of modes
+ * that are skipped slowly decay, so one slow frame (e.g. a GC pause) does not rule a mode out for good. A budget of 0
+ * disables the fallback. Not thread-safe, except for the counter.
+ */
+public class AnonymizationBudget {
+
+    private static final float COST_SMOOTHING = 0.2F;
+    private static final float SKIPPED_COST_DECAY = 0.98F;
+    // Smaller areas are dominated by fixed costs and timer resolution
+    private static final int MIN_MEASURED_AREA = 4096;
+    private static final AnonymizationMode[] MODES = AnonymizationMode.values();
+
+    private final float[] mCostPerPixel = new float[MODES.length];
+    private final AtomicLong mFallbackCount = new AtomicLong();
+
+    private AnonymizationMode mPreferredMode;
+    private long mBudgetNs;
+
+    public AnonymizationBudget(AnonymizationMode preferredMode, long budgetNs) {
+        mPreferredMode = preferredMode;
+        mBudgetNs = budgetNs;
+    }
+
+    public void setPreferredMode(AnonymizationMode preferredMode, long budgetNs) {
+        mPreferredMode = preferredMode;
+        mBudgetNs = budgetNs;
+    }
+
+    public AnonymizationMode select(long area) {
+        if (mBudgetNs <= 0 || area <= 0) {
+            return mPreferredMode;
+        }
+
+        AnonymizationMode mode = mPreferredMode;
+        while (mode != AnonymizationMode.FILL && mCostPerPixel[mode.ordinal()] * area > mBudgetNs) {
+            mCostPerPixel[mode.ordinal()] *= SKIPPED_COST_DECAY;
+            mode = mode.cheaper();
+        }
+        if (mode != mPreferredMode) {
+            mFallbackCount.incrementAndGet();
+        }
+        return mode;
+    }
+
+    public void onApplied(AnonymizationMode mode, long area, long elapsedNs) {
+        if (area < MIN_MEASURED_AREA) {
+            return;
+        }
+
+        float costPerPixel = (float) elapsedNs / area;
+        float estimate = mCostPerPixel[mode.ordinal()];
+        mCostPerPixel[mode.ordinal()] = estimate > 0F
+                ? estimate + COST_SMOOTHING * (costPerPixel - estimate)
+                : costPerPixel;
+    }
+
+    public AnonymizationMode getPreferredMode() {
+        return mPreferredMode;
+    }
+
+    public float getCostPerPixelNs(AnonymizationMode mode) {
+        return mCostPerPixel[mode.ordinal()];
+    }
+
+    // Frames anonymized with a cheaper mode than the preferred one
+    public long getFallbackCount() {
+        return mFallbackCount.get();
+    }
+}
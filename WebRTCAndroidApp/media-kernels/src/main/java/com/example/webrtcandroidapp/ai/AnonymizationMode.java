@@ -0,0 +1,19 @@
+package com.example.webrtcandroidapp.ai;
+
+/**
+ * How face areas are made unrecognisable, ordered from the most to the least expensive per anonymized pixel.
+ */
+public enum AnonymizationMode {
+    // Box blur, constant cost per pixel whatever the radius
+    BLUR,
+    // Blocks of the anchor sample value
+    PIXELATE,
+    // Solid grey, the cheapest fallback
+    FILL;
+
+    private static final AnonymizationMode[] MODES = values();
+
+    public AnonymizationMode cheaper() {
+        return this == FILL ? FILL : MODES[ordinal() + 1];
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a face detector on its own thread and warms it up with a blank frame, so that model loading and graph setup
+ * stay off the call start-up path. It can be created early (e.g. at app start) and handed to a FaceAnonymizer later.
+ * Until the warm-up result is back - or the warm-up times out - the detector is not ready and detections are dropped;
+ * the listener and the latest frame size are applied once it is. The metrics given to the factory are the ones the
+ * warm-up time is recorded in.
+ */
+public class DeferredFaceDetector implements FaceDetector {
+
+    public interface Factory {
+        FaceDetector create(PipelineMetrics metrics);
+    }
+
+    private static final int WARM_UP_FRAME_WIDTH = 320;
+    private static final int WARM_UP_FRAME_HEIGHT = 240;
+    private static final long WARM_UP_TIMEOUT_MS = 5000;
+
+    private final Object mLock = new Object();
+    private final PipelineMetrics mMetrics;
+    private final CountDownLatch mWarmUpResult = new CountDownLatch(1);
+    private final Thread mThread;
+
+    private volatile FaceDetector mDetector;
+    private volatile Listener mListener;
+    private volatile RuntimeException mFailure;
+    private int mFrameWidth;
+    private int mFrameHeight;
+    private boolean mClosed;
+
+    public DeferredFaceDetector(String threadName, PipelineMetrics metrics, Factory factory) {
+        mMetrics = metrics;
+        mThread = new Thread(() -> warmUp(factory), threadName);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void setFrameSize(int width, int height) {
+        synchronized (mLock) {
+            mFrameWidth = width;
+            mFrameHeight = height;
+            if (mDetector != null) {
+                mDetector.setFrameSize(width, height);
+            }
+        }
+    }
+
+    @Override
+    public void detect(byte[] nv21, long timestampMs, List<FDBoundingBox> regions) {
+        FaceDetector detector = mDetector;
+        if (detector != null) {
+            detector.detect(nv21, timestampMs, regions);
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        return mDetector != null;
+    }
+
+    @Override
+    public void close() {
+        synchronized (mLock) {
+            mClosed = true;
+            if (mDetector != null) {
+                mDetector.close();
+                mDetector = null;
+            }
+        }
+        mThread.interrupt();
+    }
+
+    public PipelineMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    // Why the detector could not be built, if it failed; it then never becomes ready
+    public RuntimeException getFailure() {
+        return mFailure;
+    }
+
+    private void warmUp(Factory factory) {
+        long start = System.nanoTime();
+        FaceDetector detector;
+        try {
+            detector = factory.create(mMetrics);
+            detector.setListener(this::onFacesDetected);
+            detector.setFrameSize(WARM_UP_FRAME_WIDTH, WARM_UP_FRAME_HEIGHT);
+            detector.detect(new byte[WARM_UP_FRAME_WIDTH * WARM_UP_FRAME_HEIGHT * 3 / 2], 0, Collections.emptyList());
+        } catch (RuntimeException e) {
+            mFailure = e;
+            return;
+        }
+
+        boolean interrupted = false;
+        try {
+            mWarmUpResult.await(WARM_UP_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        // After a timeout, later results are passed on
+        mWarmUpResult.countDown();
+
+        synchronized (mLock) {
+            if (mClosed || interrupted) {
+                detector.close();
+                return;
+            }
+            if (mFrameWidth > 0 && mFrameHeight > 0) {
+                detector.setFrameSize(mFrameWidth, mFrameHeight);
+            }
+            mMetrics.recordSince(PipelineMetrics.Stage.DETECTOR_WARM_UP, start);
+            mDetector = detector;
+        }
+    }
+
+    // The warm-up result is swallowed, later ones are passed on
+    private void onFacesDetected(List<FDBoundingBox> faces, long timestampMs) {
+        if (mWarmUpResult.getCount() > 0) {
+            mWarmUpResult.countDown();
+            return;
+        }
+
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onFacesDetected(faces, timestampMs);
+        }
+    }
+}
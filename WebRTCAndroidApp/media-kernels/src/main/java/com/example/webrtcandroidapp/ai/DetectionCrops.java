@@ -0,0 +1,125 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Square detection inputs cropped from a full NV21 frame around regions of interest, one per region. A crop is the
+ * region grown to a square - at least the crop size where the frame allows, so small regions are not upscaled - kept
+ * inside the frame and box-downscaled to the crop size. Regions that don't fit a square crop, or more regions than
+ * there are crops, are refused; the caller then detects on the whole frame.
+ * Crops are rebuilt every detection cycle while results may still be pending for older cycles, so the crop regions of
+ * the last few cycles are remembered and boxes are mapped back with the regions of the cycle they were detected on.
+ * update is meant for the detection thread, the mapping methods can be called from any thread.
+ */
+public class DetectionCrops {
+
+    private static final int CYCLE_HISTORY = 8;
+
+    private final int mCropSize;
+    private final DetectionPyramid.Level[] mCrops;
+    // Per remembered cycle: its id, crop count and the left, top, width, height of each crop region
+    private final long[] mCycles = new long[CYCLE_HISTORY];
+    private final int[] mCycleCropCounts = new int[CYCLE_HISTORY];
+    private final int[] mCycleRegions;
+
+    private int mFrameWidth;
+    private int mFrameHeight;
+    private int mCropCount;
+
+    public DetectionCrops(int cropSize, int maxCrops) {
+        mCropSize = cropSize;
+        mCrops = new DetectionPyramid.Level[maxCrops];
+        for (int i = 0; i < maxCrops; i++) {
+            mCrops[i] = new DetectionPyramid.Level(cropSize);
+        }
+        mCycleRegions = new int[CYCLE_HISTORY * maxCrops * 4];
+        Arrays.fill(mCycles, -1);
+    }
+
+    public int getMaxCrops() {
+        return mCrops.length;
+    }
+
+    public synchronized void setFrameSize(int frameWidth, int frameHeight) {
+        mFrameWidth = frameWidth;
+        mFrameHeight = frameHeight;
+    }
+
+    // Builds the crops of a cycle from frame-relative regions; false if they can't all be cropped (nothing is built)
+    public boolean update(byte[] nv21, List<FDBoundingBox> regions, long cycle) {
+        mCropCount = 0;
+        int maxSide = Math.min(mFrameWidth, mFrameHeight) & ~1;
+        if (regions.isEmpty() || regions.size() > mCrops.length || maxSide < 2) {
+            return false;
+        }
+
+        for (int i = 0; i < regions.size(); i++) {
+            FDBoundingBox region = regions.get(i);
+            int regionWidth = Math.round(region.getWidth() * mFrameWidth);
+            int regionHeight = Math.round(region.getHeight() * mFrameHeight);
+            if (Math.max(regionWidth, regionHeight) > maxSide) {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < regions.size(); i++) {
+            FDBoundingBox region = regions.get(i);
+            int regionSide = Math.max(Math.round(region.getWidth() * mFrameWidth), Math.round(region.getHeight() * mFrameHeight));
+            int side = Math.min(Math.max(regionSide, mCropSize) + 1 & ~1, maxSide);
+            int centerX = Math.round((region.getXMin() + region.getWidth() / 2) * mFrameWidth);
+            int centerY = Math.round((region.getYMin() + region.getHeight() / 2) * mFrameHeight);
+            int left = Math.min(Math.max(centerX - side / 2, 0), mFrameWidth - side) & ~1;
+            int top = Math.min(Math.max(centerY - side / 2, 0), mFrameHeight - side) & ~1;
+            mCrops[i].setRegion(left, top, side, side);
+            mCrops[i].update(nv21, mFrameWidth, mFrameHeight);
+        }
+        mCropCount = regions.size();
+
+        int slot = (int) Math.floorMod(cycle, (long) CYCLE_HISTORY);
+        synchronized (this) {
+            mCycles[slot] = cycle;
+            mCycleCropCounts[slot] = mCropCount;
+            for (int i = 0; i < mCropCount; i++) {
+                int index = (slot * mCrops.length + i) * 4;
+                mCycleRegions[index] = mCrops[i].getRegionLeft();
+                mCycleRegions[index + 1] = mCrops[i].getRegionTop();
+                mCycleRegions[index + 2] = mCrops[i].getRegionWidth();
+                mCycleRegions[index + 3] = mCrops[i].getRegionHeight();
+            }
+        }
+        return true;
+    }
+
+    // Crops built by the last update
+    public int getCropCount() {
+        return mCropCount;
+    }
+
+    public DetectionPyramid.Level getCrop(int index) {
+        return mCrops[index];
+    }
+
+    // 0 when the cycle had no crops or is no longer remembered
+    public synchronized int getCropCount(long cycle) {
+        int slot = (int) Math.floorMod(cycle, (long) CYCLE_HISTORY);
+        return mCycles[slot] == cycle ? mCycleCropCounts[slot] : 0;
+    }
+
+    // Maps a box relative to a crop of the given cycle back to the frame; null when the cycle is no longer remembered
+    public synchronized FDBoundingBox toFrameBox(long cycle, int cropIndex, long fdId, float xMin, float yMin, float width, float height) {
+        int slot = (int) Math.floorMod(cycle, (long) CYCLE_HISTORY);
+        if (mCycles[slot] != cycle || cropIndex >= mCycleCropCounts[slot]) {
+            return null;
+        }
+
+        int index = (slot * mCrops.length + cropIndex) * 4;
+        float scaleX = (float) mCycleRegions[index + 2] / mFrameWidth;
+        float scaleY = (float) mCycleRegions[index + 3] / mFrameHeight;
+        return new FDBoundingBox(fdId,
+                (float) mCycleRegions[index] / mFrameWidth + xMin * scaleX,
+                (float) mCycleRegions[index + 1] / mFrameHeight + yMin * scaleY,
+                width * scaleX,
+                height * scaleY);
+    }
+}
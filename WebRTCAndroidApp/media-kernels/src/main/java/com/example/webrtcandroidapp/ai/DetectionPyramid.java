@@ -0,0 +1,139 @@
+package com.example.webrtcandroidapp.ai;
+
+/**
+ * Reduced-size detection inputs built from a full NV21 frame. Each level is the whole frame box-downscaled so that
+ * its longer side matches the level's target size (never upscaled), with even dimensions as NV21 requires.
+ * Boxes detected on a level are relative to the level's source region and are mapped back with toFrameBox.
+ * Levels can also be cropped to a region of the frame (see DetectionCrops).
+ */
+public class DetectionPyramid {
+
+    public static class Level {
+        private final int mTargetSize;
+        private final NV21Downscaler mDownscaler = new NV21Downscaler();
+
+        private byte[] mNV21 = new byte[0];
+        private int mWidth;
+        private int mHeight;
+        private int mRegionLeft;
+        private int mRegionTop;
+        private int mRegionWidth;
+        private int mRegionHeight;
+
+        Level(int targetSize) {
+            mTargetSize = targetSize;
+        }
+
+        public byte[] getNV21() {
+            return mNV21;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        public FDBoundingBox toFrameBox(long fdId, float xMin, float yMin, float width, float height, int frameWidth, int frameHeight) {
+            float scaleX = (float) mRegionWidth / frameWidth;
+            float scaleY = (float) mRegionHeight / frameHeight;
+            return new FDBoundingBox(fdId,
+                    (float) mRegionLeft / frameWidth + xMin * scaleX,
+                    (float) mRegionTop / frameHeight + yMin * scaleY,
+                    width * scaleX,
+                    height * scaleY);
+        }
+
+        void setFrameSize(int frameWidth, int frameHeight) {
+            float scale = Math.min(1F, (float) mTargetSize / Math.max(frameWidth, frameHeight));
+            mWidth = Math.max(2, Math.round(frameWidth * scale) & ~1);
+            mHeight = Math.max(2, Math.round(frameHeight * scale) & ~1);
+            mRegionLeft = 0;
+            mRegionTop = 0;
+            mRegionWidth = frameWidth;
+            mRegionHeight = frameHeight;
+            if (mNV21.length != mWidth * mHeight * 3 / 2) {
+                mNV21 = new byte[mWidth * mHeight * 3 / 2];
+            }
+        }
+
+        // The region position must be even; it is downscaled to at most the target size on its longer side
+        void setRegion(int left, int top, int width, int height) {
+            float scale = Math.min(1F, (float) mTargetSize / Math.max(width, height));
+            mWidth = Math.max(2, Math.round(width * scale) & ~1);
+            mHeight = Math.max(2, Math.round(height * scale) & ~1);
+            mRegionLeft = left;
+            mRegionTop = top;
+            mRegionWidth = width;
+            mRegionHeight = height;
+            if (mNV21.length != mWidth * mHeight * 3 / 2) {
+                mNV21 = new byte[mWidth * mHeight * 3 / 2];
+            }
+        }
+
+        int getRegionLeft() {
+            return mRegionLeft;
+        }
+
+        int getRegionTop() {
+            return mRegionTop;
+        }
+
+        int getRegionWidth() {
+            return mRegionWidth;
+        }
+
+        int getRegionHeight() {
+            return mRegionHeight;
+        }
+
+        void update(byte[] nv21, int frameWidth, int frameHeight) {
+            if (mRegionWidth == frameWidth && mRegionHeight == frameHeight && mWidth == frameWidth && mHeight == frameHeight) {
+                System.arraycopy(nv21, 0, mNV21, 0, mNV21.length);
+            } else {
+                mDownscaler.downscale(nv21, frameWidth, frameHeight, mRegionLeft, mRegionTop, mRegionWidth, mRegionHeight,
+                        mNV21, mWidth, mHeight);
+            }
+        }
+    }
+
+    private final Level[] mLevels;
+
+    private int mFrameWidth;
+    private int mFrameHeight;
+
+    public DetectionPyramid(int... targetSizes) {
+        if (targetSizes.length == 0) {
+            throw new IllegalArgumentException("At least one level is required");
+        }
+
+        mLevels = new Level[targetSizes.length];
+        for (int i = 0; i < targetSizes.length; i++) {
+            mLevels[i] = new Level(targetSizes[i]);
+        }
+    }
+
+    public void setFrameSize(int frameWidth, int frameHeight) {
+        mFrameWidth = frameWidth;
+        mFrameHeight = frameHeight;
+        for (Level level : mLevels) {
+            level.setFrameSize(frameWidth, frameHeight);
+        }
+    }
+
+    public void update(byte[] nv21) {
+        for (Level level : mLevels) {
+            level.update(nv21, mFrameWidth, mFrameHeight);
+        }
+    }
+
+    public int getLevelCount() {
+        return mLevels.length;
+    }
+
+    public Level getLevel(int index) {
+        return mLevels[index];
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides for each detection whether to scan the whole frame or only regions of interest around the current tracks.
+ * Regions are the predicted track boxes padded on every side by a fraction of their size, clamped to the frame and
+ * merged while they overlap. The whole frame is scanned on a slower cadence to pick up new faces, and whenever regions
+ * would not pay off: no tracks, more regions than allowed, or regions covering too much of the frame.
+ * Meant for the detection thread only; the counters can be read from any thread.
+ */
+public class DetectionRegionPlanner {
+
+    private final float mPadding;
+    private final int mMaxRegions;
+    private final float mMaxCoverage;
+    private final long mFullScanIntervalMs;
+    private final AtomicLong mFullScanCount = new AtomicLong();
+    private final AtomicLong mRegionScanCount = new AtomicLong();
+
+    private long mLastFullScanTime = Long.MIN_VALUE;
+
+    public DetectionRegionPlanner(float padding, int maxRegions, float maxCoverage, long fullScanIntervalMs) {
+        mPadding = padding;
+        mMaxRegions = maxRegions;
+        mMaxCoverage = maxCoverage;
+        mFullScanIntervalMs = fullScanIntervalMs;
+    }
+
+    // Frame-relative regions to detect on at nowMs, or an empty list for a full-frame scan
+    public List<FDBoundingBox> plan(List<FDBoundingBox> tracks, long nowMs) {
+        if (tracks.isEmpty() || mLastFullScanTime == Long.MIN_VALUE || nowMs - mLastFullScanTime >= mFullScanIntervalMs) {
+            return onFullScan(nowMs);
+        }
+
+        List<FDBoundingBox> regions = new ArrayList<>(tracks.size());
+        for (int i = 0; i < tracks.size(); i++) {
+            FDBoundingBox track = tracks.get(i);
+            float padX = track.getWidth() * mPadding;
+            float padY = track.getHeight() * mPadding;
+            float left = Math.max(0F, track.getXMin() - padX);
+            float top = Math.max(0F, track.getYMin() - padY);
+            float right = Math.min(1F, track.getXMin() + track.getWidth() + padX);
+            float bottom = Math.min(1F, track.getYMin() + track.getHeight() + padY);
+            if (right > left && bottom > top) {
+                regions.add(new FDBoundingBox(regions.size(), left, top, right - left, bottom - top));
+            }
+        }
+        mergeOverlapping(regions);
+
+        float coverage = 0F;
+        for (int i = 0; i < regions.size(); i++) {
+            coverage += regions.get(i).getWidth() * regions.get(i).getHeight();
+        }
+        if (regions.isEmpty() || regions.size() > mMaxRegions || coverage > mMaxCoverage) {
+            return onFullScan(nowMs);
+        }
+
+        mRegionScanCount.incrementAndGet();
+        return regions;
+    }
+
+    public long getFullScanCount() {
+        return mFullScanCount.get();
+    }
+
+    public long getRegionScanCount() {
+        return mRegionScanCount.get();
+    }
+
+    private List<FDBoundingBox> onFullScan(long nowMs) {
+        mLastFullScanTime = nowMs;
+        mFullScanCount.incrementAndGet();
+        return Collections.emptyList();
+    }
+
+    private static void mergeOverlapping(List<FDBoundingBox> regions) {
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = 0; i < regions.size() && !merged; i++) {
+                for (int j = i + 1; j < regions.size() && !merged; j++) {
+                    FDBoundingBox a = regions.get(i);
+                    FDBoundingBox b = regions.get(j);
+                    if (a.getIntersectionOverUnion(b) > 0F) {
+                        float left = Math.min(a.getXMin(), b.getXMin());
+                        float top = Math.min(a.getYMin(), b.getYMin());
+                        float right = Math.max(a.getXMin() + a.getWidth(), b.getXMin() + b.getWidth());
+                        float bottom = Math.max(a.getYMin() + a.getHeight(), b.getYMin() + b.getHeight());
+                        a.set(left, top, right - left, bottom - top);
+                        regions.remove(j);
+                        merged = true;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the face detection interval between configurable bounds. The interval never drops below the smoothed
+ * detection latency (with some headroom), snaps back to that floor when tracks are new, appear, disappear or their
+ * predictions diverge from the detections, and otherwise backs off step by step towards the maximum. The minimum can
+ * be raised at runtime (e.g. to save power), up to the maximum.
+ * isDetectionDue and onDetectionScheduled are meant for the capture thread, onDetectionCompleted for the detector.
+ */
+public class DetectionScheduler {
+
+    public enum Reason {
+        INITIAL,
+        TRACKS_CHANGING,
+        BACKING_OFF,
+        STEADY
+    }
+
+    private static final float LATENCY_HEADROOM = 1.5F;
+    private static final float LATENCY_SMOOTHING = 0.2F;
+    private static final float BACKOFF_FACTOR = 1.5F;
+    private static final float DIVERGENCE_THRESHOLD = 0.25F;
+
+    private final long mMinIntervalMs;
+    private final long mMaxIntervalMs;
+    private final AtomicLong mScheduledCount = new AtomicLong();
+    private final AtomicLong mCompletedCount = new AtomicLong();
+
+    private volatile long mIntervalFloorMs;
+    private volatile long mIntervalMs;
+    private volatile long mLastLatencyMs = -1;
+    private volatile float mSmoothedLatencyMs = -1F;
+    private volatile Reason mReason = Reason.INITIAL;
+    private volatile long mLastScheduledTime = Long.MIN_VALUE;
+
+    public DetectionScheduler(long minIntervalMs, long maxIntervalMs) {
+        if (minIntervalMs < 0 || maxIntervalMs < minIntervalMs) {
+            throw new IllegalArgumentException("Invalid interval bounds " + minIntervalMs + ".." + maxIntervalMs);
+        }
+        mMinIntervalMs = minIntervalMs;
+        mMaxIntervalMs = maxIntervalMs;
+        mIntervalFloorMs = minIntervalMs;
+        mIntervalMs = minIntervalMs;
+    }
+
+    public boolean isDetectionDue(long nowMs) {
+        long lastScheduledTime = mLastScheduledTime;
+        return lastScheduledTime == Long.MIN_VALUE || nowMs - lastScheduledTime >= Math.max(mIntervalMs, mIntervalFloorMs);
+    }
+
+    public void onDetectionScheduled(long nowMs) {
+        mLastScheduledTime = nowMs;
+        mScheduledCount.incrementAndGet();
+    }
+
+    public void onDetectionCompleted(long latencyMs, boolean hasUnconfirmedTracks, int trackChanges, float predictionError) {
+        latencyMs = Math.max(0, latencyMs);
+        float smoothedLatencyMs = mSmoothedLatencyMs < 0
+                ? latencyMs : mSmoothedLatencyMs + LATENCY_SMOOTHING * (latencyMs - mSmoothedLatencyMs);
+        long floorMs = clamp(Math.round(smoothedLatencyMs * LATENCY_HEADROOM));
+
+        long intervalMs;
+        Reason reason;
+        if (hasUnconfirmedTracks || trackChanges > 0 || predictionError > DIVERGENCE_THRESHOLD) {
+            intervalMs = floorMs;
+            reason = Reason.TRACKS_CHANGING;
+        } else {
+            intervalMs = clamp(Math.max(Math.round(mIntervalMs * BACKOFF_FACTOR), floorMs));
+            reason = intervalMs == mMaxIntervalMs ? Reason.STEADY : Reason.BACKING_OFF;
+        }
+
+        mLastLatencyMs = latencyMs;
+        mSmoothedLatencyMs = smoothedLatencyMs;
+        mIntervalMs = intervalMs;
+        mReason = reason;
+        mCompletedCount.incrementAndGet();
+    }
+
+    // Makes the next detection due right away, at the minimum interval; the smoothed latency is kept
+    public void restart() {
+        mIntervalMs = mIntervalFloorMs;
+        mReason = Reason.INITIAL;
+        mLastScheduledTime = Long.MIN_VALUE;
+    }
+
+    // Raises the minimum interval, taking effect with the next detection; 0 restores the configured minimum
+    public void setIntervalFloorMs(long floorMs) {
+        mIntervalFloorMs = Math.max(mMinIntervalMs, Math.min(mMaxIntervalMs, floorMs));
+    }
+
+    public long getIntervalMs() {
+        return Math.max(mIntervalMs, mIntervalFloorMs);
+    }
+
+    public long getIntervalFloorMs() {
+        return mIntervalFloorMs;
+    }
+
+    public long getLastLatencyMs() {
+        return mLastLatencyMs;
+    }
+
+    public float getSmoothedLatencyMs() {
+        return mSmoothedLatencyMs;
+    }
+
+    public Reason getReason() {
+        return mReason;
+    }
+
+    public long getScheduledCount() {
+        return mScheduledCount.get();
+    }
+
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    private long clamp(long intervalMs) {
+        return Math.max(mIntervalFloorMs, Math.min(mMaxIntervalMs, intervalMs));
+    }
+}
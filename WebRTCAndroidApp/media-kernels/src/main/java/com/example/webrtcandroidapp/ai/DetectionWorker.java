@@ -0,0 +1,159 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs frame detection on a single long-lived thread with a one-slot mailbox: a frame submitted while another is
+ * pending replaces it, and at most one frame is processed at a time. Every submitted frame has its release callback
+ * invoked exactly once - after processing, when replaced, or on shutdown. An inline worker (no thread name) processes
+ * each frame on the submitting thread instead, which makes offline replay reproducible.
+ */
+public class DetectionWorker {
+
+    public interface FrameProcessor {
+        void process(byte[] frame);
+    }
+
+    private static final long SHUTDOWN_TIMEOUT_MS = 500;
+
+    private final AtomicReference<PendingFrame> mMailbox = new AtomicReference<>();
+    private final AtomicBoolean mDrainScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean mShutdown = new AtomicBoolean(false);
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mReplacedCount = new AtomicLong();
+    private final AtomicLong mProcessedCount = new AtomicLong();
+    private final FrameProcessor mProcessor;
+    private final ExecutorService mExecutor;
+
+    public DetectionWorker(FrameProcessor processor) {
+        mProcessor = processor;
+        mExecutor = null;
+    }
+
+    public DetectionWorker(String threadName, FrameProcessor processor) {
+        mProcessor = processor;
+        mExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void submit(byte[] frame, Runnable releaseCallback) {
+        if (mShutdown.get()) {
+            releaseCallback.run();
+            return;
+        }
+
+        mSubmittedCount.incrementAndGet();
+        PendingFrame replaced = mMailbox.getAndSet(new PendingFrame(frame, releaseCallback));
+        if (replaced != null) {
+            mReplacedCount.incrementAndGet();
+            replaced.releaseCallback.run();
+        }
+        scheduleDrain();
+    }
+
+    public void shutdown() {
+        if (!mShutdown.compareAndSet(false, true)) {
+            return;
+        }
+
+        if (mExecutor == null) {
+            releasePending();
+            return;
+        }
+
+        mExecutor.shutdown();
+        releasePending();
+        try {
+            if (!mExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                mExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            mExecutor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        releasePending();
+    }
+
+    // Releases the frame waiting to be processed, if any; the one being processed is not affected
+    public void discardPending() {
+        releasePending();
+    }
+
+    public long getSubmittedCount() {
+        return mSubmittedCount.get();
+    }
+
+    public long getReplacedCount() {
+        return mReplacedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return mProcessedCount.get();
+    }
+
+    private void scheduleDrain() {
+        if (mDrainScheduled.compareAndSet(false, true)) {
+            if (mExecutor == null) {
+                drain();
+                return;
+            }
+            try {
+                mExecutor.execute(this::drain);
+            } catch (Exception e) {
+                // Rejected after shutdown - hand the frame back instead of leaking it
+                mDrainScheduled.set(false);
+                releasePending();
+            }
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            PendingFrame pending = mMailbox.getAndSet(null);
+            if (pending == null) {
+                mDrainScheduled.set(false);
+                // A frame may have arrived between the empty check and clearing the flag
+                if (mMailbox.get() == null || !mDrainScheduled.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            try {
+                if (!mShutdown.get()) {
+                    mProcessor.process(pending.frame);
+                    mProcessedCount.incrementAndGet();
+                }
+            } catch (Exception e) {
+                // The processor reports its own failures; keep the worker alive for the next frame
+            } finally {
+                pending.releaseCallback.run();
+            }
+        }
+    }
+
+    private void releasePending() {
+        PendingFrame pending = mMailbox.getAndSet(null);
+        if (pending != null) {
+            pending.releaseCallback.run();
+        }
+    }
+
+    private static class PendingFrame {
+        final byte[] frame;
+        final Runnable releaseCallback;
+
+        PendingFrame(byte[] frame, Runnable releaseCallback) {
+            this.frame = frame;
+            this.releaseCallback = releaseCallback;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Picks the face detector tier - model and detection input sizes - from the sizes of the recently detected faces and
+ * the measured latency of each tier. Tiers are ordered from the cheapest one to the one that finds the smallest faces.
+ * The cheapest tier whose smallest reliable face, with a margin, fits the small end of the recent faces is chosen,
+ * stepping down to cheaper tiers while the smoothed latency is over the budget; without recent faces the default tier
+ * is used. A tier never reports the faces too small for it, so the most sensitive tier is probed once per probe
+ * interval without a switch. Latency measurements expire, so a tier that was too slow is tried again later, and
+ * switches are held back for a minimum time since every switch rebuilds the detector.
+ * onDetectionCompleted is meant for the detector's result thread, the getters can be read from any thread.
+ */
+public class DetectorTierManager {
+
+    public static class Tier {
+        private final String mName;
+        private final int mModelSelection;
+        private final int[] mInputSizes;
+        private final float mMinFaceSize;
+        private final float mMinDetectionConfidence;
+
+        // The minimum face size is the larger box side relative to the frame that the tier still detects reliably
+        public Tier(String name, int modelSelection, float minFaceSize, float minDetectionConfidence, int... inputSizes) {
+            if (inputSizes.length == 0) {
+                throw new IllegalArgumentException("At least one input size is required");
+            }
+            mName = name;
+            mModelSelection = modelSelection;
+            mInputSizes = inputSizes.clone();
+            mMinFaceSize = minFaceSize;
+            mMinDetectionConfidence = minDetectionConfidence;
+        }
+
+        public String getName() {
+            return mName;
+        }
+
+        public int getModelSelection() {
+            return mModelSelection;
+        }
+
+        public int[] getInputSizes() {
+            return mInputSizes.clone();
+        }
+
+        public float getMinFaceSize() {
+            return mMinFaceSize;
+        }
+
+        public float getMinDetectionConfidence() {
+            return mMinDetectionConfidence;
+        }
+    }
+
+    private static final float LATENCY_SMOOTHING = 0.2F;
+    // The small end of the recent faces, which the chosen tier has to detect
+    private static final float SMALL_FACE_PERCENTILE = 0.2F;
+    // Faces close to the limit of a tier suggest smaller ones it misses
+    private static final float MIN_FACE_SIZE_MARGIN = 1.25F;
+    private static final int MAX_FACE_SAMPLES = 64;
+    private static final long LATENCY_MAX_AGE_MS = 30000;
+
+    private final Tier[] mTiers;
+    private final int mDefaultTier;
+    private final long mLatencyBudgetMs;
+    private final long mFaceWindowMs;
+    private final long mMinSwitchIntervalMs;
+    private final long mProbeIntervalMs;
+    private final float[] mSmoothedLatencyMs;
+    private final long[] mLatencyTimes;
+    private final long[] mDetectionCounts;
+    // Ring of recent face sizes with their detection times
+    private final float[] mFaceSizes = new float[MAX_FACE_SAMPLES];
+    private final long[] mFaceTimes = new long[MAX_FACE_SAMPLES];
+    private final float[] mSortedFaceSizes = new float[MAX_FACE_SAMPLES];
+
+    private int mFaceStart;
+    private int mFaceCount;
+    private volatile int mTier;
+    private volatile long mSwitchCount;
+    private long mLastSwitchTime = Long.MIN_VALUE;
+    private long mNextProbeTime = Long.MIN_VALUE;
+
+    // A probe interval of 0 or less disables the probes
+    public DetectorTierManager(List<Tier> tiers, int defaultTier, long latencyBudgetMs, long faceWindowMs,
+                               long minSwitchIntervalMs, long probeIntervalMs) {
+        if (tiers.isEmpty() || defaultTier < 0 || defaultTier >= tiers.size()) {
+            throw new IllegalArgumentException("Invalid default tier " + defaultTier + " of " + tiers.size());
+        }
+        mTiers = tiers.toArray(new Tier[0]);
+        mDefaultTier = defaultTier;
+        mLatencyBudgetMs = latencyBudgetMs;
+        mFaceWindowMs = faceWindowMs;
+        mMinSwitchIntervalMs = minSwitchIntervalMs;
+        mProbeIntervalMs = probeIntervalMs;
+        mSmoothedLatencyMs = new float[mTiers.length];
+        mLatencyTimes = new long[mTiers.length];
+        mDetectionCounts = new long[mTiers.length];
+        Arrays.fill(mSmoothedLatencyMs, -1F);
+        mTier = defaultTier;
+    }
+
+    // Records a detection of the current tier; returns true when the tier changes
+    public synchronized boolean onDetectionCompleted(List<FDBoundingBox> faces, long latencyMs, long nowMs) {
+        int tier = mTier;
+        latencyMs = Math.max(0, latencyMs);
+        mSmoothedLatencyMs[tier] = mSmoothedLatencyMs[tier] < 0 || nowMs - mLatencyTimes[tier] > LATENCY_MAX_AGE_MS
+                ? latencyMs : mSmoothedLatencyMs[tier] + LATENCY_SMOOTHING * (latencyMs - mSmoothedLatencyMs[tier]);
+        mLatencyTimes[tier] = nowMs;
+        mDetectionCounts[tier]++;
+        if (mNextProbeTime == Long.MIN_VALUE) {
+            mNextProbeTime = nowMs + mProbeIntervalMs;
+        }
+
+        for (FDBoundingBox face : faces) {
+            addFaceSize(Math.max(face.getWidth(), face.getHeight()), nowMs);
+        }
+        while (mFaceCount > 0 && nowMs - mFaceTimes[mFaceStart] > mFaceWindowMs) {
+            mFaceStart = (mFaceStart + 1) % MAX_FACE_SAMPLES;
+            mFaceCount--;
+        }
+
+        int selectedTier = selectTier(nowMs);
+        if (selectedTier == tier || (mLastSwitchTime != Long.MIN_VALUE && nowMs - mLastSwitchTime < mMinSwitchIntervalMs)) {
+            return false;
+        }
+        mTier = selectedTier;
+        mLastSwitchTime = nowMs;
+        mNextProbeTime = nowMs + mProbeIntervalMs;
+        mSwitchCount++;
+        return true;
+    }
+
+    public int getTierIndex() {
+        return mTier;
+    }
+
+    public Tier getTier() {
+        return mTiers[mTier];
+    }
+
+    public int getTierCount() {
+        return mTiers.length;
+    }
+
+    public long getSwitchCount() {
+        return mSwitchCount;
+    }
+
+    // -1 until the tier has been measured
+    public synchronized float getSmoothedLatencyMs(int tier) {
+        return mSmoothedLatencyMs[tier];
+    }
+
+    public synchronized long getDetectionCount(int tier) {
+        return mDetectionCounts[tier];
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < mTiers.length; i++) {
+            builder.append(String.format(Locale.US, "%s%s: %d detections, latency %.1fms%n", mTiers[i].getName(),
+                    i == mTier ? " (current)" : "", mDetectionCounts[i], mSmoothedLatencyMs[i]));
+        }
+        return builder.toString();
+    }
+
+    private int selectTier(long nowMs) {
+        int tier = mDefaultTier;
+        if (mFaceCount > 0) {
+            float smallFaceSize = getSmallFaceSize();
+            tier = mTiers.length - 1;
+            for (int i = 0; i < mTiers.length; i++) {
+                if (mTiers[i].getMinFaceSize() * MIN_FACE_SIZE_MARGIN <= smallFaceSize) {
+                    tier = i;
+                    break;
+                }
+            }
+        }
+        if (mProbeIntervalMs > 0 && tier <= mTier && nowMs >= mNextProbeTime) {
+            tier = mTiers.length - 1;
+        }
+
+        while (tier > 0 && mSmoothedLatencyMs[tier] > mLatencyBudgetMs && nowMs - mLatencyTimes[tier] <= LATENCY_MAX_AGE_MS) {
+            tier--;
+        }
+        return tier;
+    }
+
+    private void addFaceSize(float size, long nowMs) {
+        if (mFaceCount == MAX_FACE_SAMPLES) {
+            mFaceStart = (mFaceStart + 1) % MAX_FACE_SAMPLES;
+            mFaceCount--;
+        }
+        int index = (mFaceStart + mFaceCount) % MAX_FACE_SAMPLES;
+        mFaceSizes[index] = size;
+        mFaceTimes[index] = nowMs;
+        mFaceCount++;
+    }
+
+    private float getSmallFaceSize() {
+        for (int i = 0; i < mFaceCount; i++) {
+            mSortedFaceSizes[i] = mFaceSizes[(mFaceStart + i) % MAX_FACE_SAMPLES];
+        }
+        Arrays.sort(mSortedFaceSizes, 0, mFaceCount);
+        return mSortedFaceSizes[(int) ((mFaceCount - 1) * SMALL_FACE_PERCENTILE)];
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.webrtcandroidapp.ai;
+
+public class FDBoundingBox {
+    private long fdId;
+    private float xMin;
+    private float yMin;
+    private float width;
+    private float height;
+    private boolean confirmed;
+    private long timeCreated;
+    private long lastDetectionTime;
+
+    public FDBoundingBox(long fdId, float xMin, float yMin, float width, float height) {
+        this.fdId = fdId;
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.width = width;
+        this.height = height;
+        this.timeCreated = System.currentTimeMillis();
+        this.confirmed = false;
+        this.lastDetectionTime = System.currentTimeMillis();
+    }
+
+    public long getFdId() {
+        return fdId;
+    }
+
+    public float getYMin() {
+        return yMin;
+    }
+
+    public float getXMin() {
+        return xMin;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public void set(float xMin, float yMin, float width, float height) {
+        this.xMin = xMin;
+        this.yMin = yMin;
+        this.width = width;
+        this.height = height;
+    }
+
+    public boolean isConfirmed() {
+        return confirmed;
+    }
+
+    public void confirm() {
+        this.confirmed = true;
+        this.lastDetectionTime = System.currentTimeMillis();
+    }
+
+    public long getLastDetectionTime() {
+        return lastDetectionTime;
+    }
+
+    public float getIntersectionOverUnion(FDBoundingBox other) {
+        float intersectionWidth = Math.min(xMin + width, other.xMin + other.width) - Math.max(xMin, other.xMin);
+        float intersectionHeight = Math.min(yMin + height, other.yMin + other.height) - Math.max(yMin, other.yMin);
+        if (intersectionWidth <= 0 || intersectionHeight <= 0) {
+            return 0F;
+        }
+
+        float intersection = intersectionWidth * intersectionHeight;
+        return intersection / (width * height + other.width * other.height - intersection);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class FaceAnonymizer {
+
+    private static final int MIN_DETECTION_INTERVAL = 100;
+    private static final int MAX_DETECTION_INTERVAL = 1000;
+    private static final int DETECTION_REMOVAL_DELAY = 1000;
+    private static final int MAX_PREDICTION_TIME = 500;
+    private static final float TRACK_MATCH_IOU = 0.2F;
+    private static final float MOTION_THRESHOLD = 6F;
+    private static final float FACE_MOTION_THRESHOLD = 3F;
+    private static final int MAX_MOTION_SKIP = 5000;
+    private static final int MAX_MOTION_SKIP_WITH_FACES = DETECTION_REMOVAL_DELAY / 2;
+    // Set this variable to BLUR for a softer look - frames fall back to cheaper modes when over the budget
+    private static final AnonymizationMode ANONYMIZATION_MODE = AnonymizationMode.PIXELATE;
+    private static final int ANONYMIZATION_BUDGET = 5;
+    // Pool threads helping the frame processing thread with large masks, kept off the cores MediaPipe and WebRTC use
+    private static final int MASK_PASS_THREADS = Math.min(2, Runtime.getRuntime().availableProcessors() / 4);
+    private static final long MASK_PASS_MIN_PARALLEL_AREA = 200_000;
+    // Set this variable to "false" to always detect on the whole frame instead of around the current tracks
+    private static final boolean USE_REGION_DETECTION = true;
+    private static final float DETECTION_REGION_PADDING = 0.5F;
+    private static final int MAX_DETECTION_REGIONS = 3;
+    private static final float MAX_DETECTION_REGION_COVERAGE = 0.5F;
+    private static final int FULL_FRAME_DETECTION_INTERVAL = MAX_DETECTION_INTERVAL;
+
+    private final FaceDetector mFaceDetector;
+    private final PipelineMetrics mMetrics;
+    private final LongSupplier mClock;
+    private final NV21Anonymizer mAnonymizer = new NV21Anonymizer(new MaskPass(MASK_PASS_THREADS, MASK_PASS_MIN_PARALLEL_AREA));
+    private final DetectionWorker mDetectionWorker;
+    private final DetectionScheduler mDetectionScheduler = new DetectionScheduler(MIN_DETECTION_INTERVAL, MAX_DETECTION_INTERVAL);
+    private final MotionGate mMotionGate = new MotionGate(MOTION_THRESHOLD, FACE_MOTION_THRESHOLD, MAX_MOTION_SKIP, MAX_MOTION_SKIP_WITH_FACES);
+    // Updated from detection results only; the frame processing thread works on its published snapshots
+    private final FaceTracker mFaceTracker = new FaceTracker(TRACK_MATCH_IOU, DETECTION_REMOVAL_DELAY, MAX_PREDICTION_TIME);
+    // Frame processing thread only
+    private final FaceTracker.Predictor mTrackPredictor = new FaceTracker.Predictor();
+    // Detection thread only
+    private final FaceTracker.Predictor mRegionPredictor = new FaceTracker.Predictor();
+    private final DetectionRegionPlanner mRegionPlanner = new DetectionRegionPlanner(DETECTION_REGION_PADDING,
+            MAX_DETECTION_REGIONS, MAX_DETECTION_REGION_COVERAGE, FULL_FRAME_DETECTION_INTERVAL);
+    private final AtomicLong mCoveredFrameCount = new AtomicLong();
+    // Frame processing thread only
+    private long mFirstFrameTime = -1;
+    private boolean mFirstAnonymizedFrameRecorded;
+    private boolean mDetectionStarted;
+    private long mRestartCompletedCount;
+    // Detections of frames from before the last source change are dropped, and the tracks of the old source with them
+    private volatile long mSourceChangeTime = Long.MIN_VALUE;
+    private volatile boolean mTrackResetPending;
+    // Set from any thread, applied to the budget on the frame processing thread
+    private volatile AnonymizationMode mAnonymizationMode = ANONYMIZATION_MODE;
+
+    public FaceAnonymizer(FaceDetector faceDetector, PipelineMetrics metrics) {
+        this(faceDetector, metrics, System::currentTimeMillis, false);
+    }
+
+    // For offline replay: time comes from the given clock (ms) and detection can run inline on the calling thread
+    public FaceAnonymizer(FaceDetector faceDetector, PipelineMetrics metrics, LongSupplier clock, boolean inlineDetection) {
+        mFaceDetector = faceDetector;
+        mMetrics = metrics;
+        mClock = clock;
+        mDetectionWorker = inlineDetection
+                ? new DetectionWorker(this::detectFaces)
+                : new DetectionWorker("FaceDetectionThread", this::detectFaces);
+        mMetrics.addCounter("motion skipped", mMotionGate::getSkippedCount);
+        mMetrics.addCounter("detections scheduled", mDetectionScheduler::getScheduledCount);
+        mMetrics.addCounter("detection frames replaced", mDetectionWorker::getReplacedCount);
+        mMetrics.addCounter("detections completed", mDetectionScheduler::getCompletedCount);
+        mMetrics.addCounter("anonymization fallbacks", mAnonymizer.getBudget()::getFallbackCount);
+        mMetrics.addCounter("parallel mask passes", mAnonymizer.getMaskPass()::getParallelCount);
+        mMetrics.addCounter("full frame detections", mRegionPlanner::getFullScanCount);
+        mMetrics.addCounter("region detections", mRegionPlanner::getRegionScanCount);
+        mMetrics.addCounter("frames covered whole", mCoveredFrameCount::get);
+        mAnonymizer.getBudget().setPreferredMode(ANONYMIZATION_MODE, TimeUnit.MILLISECONDS.toNanos(ANONYMIZATION_BUDGET));
+        mFaceDetector.setListener(this::processDetections);
+    }
+
+    public void setFrameSize(int width, int height) {
+        mFaceDetector.setFrameSize(width, height);
+    }
+
+    // Anonymizes in place, directly on the planes of the captured image. Fails closed: until the detector is ready and
+    // has completed a first detection, faces can't be located and the whole frame is covered
+    public void removeFaces(YuvPlanes planes) {
+        if (!isDetectionStarted()) {
+            long start = System.nanoTime();
+            if (mFirstFrameTime < 0) {
+                mFirstFrameTime = start;
+            }
+            mAnonymizer.coverFrame(planes);
+            mCoveredFrameCount.incrementAndGet();
+            mMetrics.recordSince(PipelineMetrics.Stage.PIXELATION, start);
+            return;
+        }
+
+        AnonymizationBudget budget = mAnonymizer.getBudget();
+        if (budget.getPreferredMode() != mAnonymizationMode) {
+            budget.setPreferredMode(mAnonymizationMode, TimeUnit.MILLISECONDS.toNanos(ANONYMIZATION_BUDGET));
+        }
+
+        FaceTracker.Snapshot snapshot = mFaceTracker.getSnapshot();
+        if (snapshot.getTrackCount() > 0) {
+            long start = System.nanoTime();
+            List<FDBoundingBox> boundingBoxes = mTrackPredictor.predict(snapshot, mClock.getAsLong());
+            mAnonymizer.removeFaces(planes, boundingBoxes);
+            mMetrics.recordSince(PipelineMetrics.Stage.PIXELATION, start);
+        }
+    }
+
+    // The releaseCallback is invoked once nv21Original is no longer needed, also when the frame is skipped
+    public void analyzeImage(byte[] nv21Original, Runnable releaseCallback) {
+        mDetectionScheduler.onDetectionScheduled(mClock.getAsLong());
+        mDetectionWorker.submit(nv21Original, releaseCallback);
+    }
+
+    // The frames now come from another source (e.g. the other camera): tracks no longer apply, so frames are covered
+    // whole again until a detection on the new source completes, which is due right away. Frame processing thread only
+    public void onSourceChanged() {
+        mSourceChangeTime = mClock.getAsLong();
+        mTrackResetPending = true;
+        mDetectionWorker.discardPending();
+        mRestartCompletedCount = mDetectionScheduler.getCompletedCount();
+        mDetectionStarted = false;
+        mDetectionScheduler.restart();
+    }
+
+    // To save power: detect less often (0 restores the normal cadence) and anonymize with the next cheaper mode
+    public void setDetectionIntervalFloor(long floorMs) {
+        mDetectionScheduler.setIntervalFloorMs(floorMs);
+    }
+
+    public void setCheaperAnonymization(boolean cheaper) {
+        mAnonymizationMode = cheaper ? ANONYMIZATION_MODE.cheaper() : ANONYMIZATION_MODE;
+    }
+
+    public void dispose() {
+        mDetectionWorker.shutdown();
+        mFaceDetector.close();
+        mAnonymizer.dispose();
+    }
+
+    public NV21Anonymizer getAnonymizer() {
+        return mAnonymizer;
+    }
+
+    public DetectionWorker getDetectionWorker() {
+        return mDetectionWorker;
+    }
+
+    public DetectionScheduler getDetectionScheduler() {
+        return mDetectionScheduler;
+    }
+
+    public DetectionRegionPlanner getRegionPlanner() {
+        return mRegionPlanner;
+    }
+
+    public MotionGate getMotionGate() {
+        return mMotionGate;
+    }
+
+    public FaceTracker.Snapshot getTrackSnapshot() {
+        return mFaceTracker.getSnapshot();
+    }
+
+    // Detection is skipped while the frame barely differs from the last analysed one - except for the first one
+    public boolean isDetectionDue(YuvPlanes planes) {
+        long now = mClock.getAsLong();
+        if (!mFaceDetector.isReady() || !mDetectionScheduler.isDetectionDue(now)) {
+            return false;
+        }
+        if (!isDetectionStarted()) {
+            return true;
+        }
+
+        List<FDBoundingBox> boundingBoxes = mTrackPredictor.predict(mFaceTracker.getSnapshot(), now);
+        return mMotionGate.shouldAnalyze(planes, boundingBoxes, now);
+    }
+
+    // Records the time to the first anonymized frame once the first detection has completed
+    private boolean isDetectionStarted() {
+        if (!mDetectionStarted && mFaceDetector.isReady() && mDetectionScheduler.getCompletedCount() > mRestartCompletedCount) {
+            mDetectionStarted = true;
+            if (mFirstFrameTime >= 0 && !mFirstAnonymizedFrameRecorded) {
+                mFirstAnonymizedFrameRecorded = true;
+                mMetrics.recordSince(PipelineMetrics.Stage.FIRST_ANONYMIZED_FRAME, mFirstFrameTime);
+            }
+        }
+        return mDetectionStarted;
+    }
+
+    // Between full-frame scans, only the regions around the tracks predicted for this frame are detected on
+    private void detectFaces(byte[] nv21Original) {
+        long now = mClock.getAsLong();
+        List<FDBoundingBox> regions = USE_REGION_DETECTION
+                ? mRegionPlanner.plan(mRegionPredictor.predict(mFaceTracker.getSnapshot(), now), now)
+                : Collections.emptyList();
+        mFaceDetector.detect(nv21Original, now, regions);
+    }
+
+    // The timestamp of a detection is the time (ms) its frame was passed to the detector
+    private void processDetections(List<FDBoundingBox> faceDetections, long detectionTime) {
+        long latencyMs = mClock.getAsLong() - detectionTime;
+        mMetrics.record(PipelineMetrics.Stage.INFERENCE, TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        if (detectionTime < mSourceChangeTime) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (mTrackResetPending) {
+            mTrackResetPending = false;
+            mFaceTracker.clear();
+        }
+        mFaceTracker.update(faceDetections, detectionTime);
+        mMetrics.recordSince(PipelineMetrics.Stage.RESULT_MERGE, start);
+        mDetectionScheduler.onDetectionCompleted(latencyMs, mFaceTracker.hasUnconfirmedTracks(),
+                mFaceTracker.getLastTrackChanges(), mFaceTracker.getLastPredictionError());
+    }
+}
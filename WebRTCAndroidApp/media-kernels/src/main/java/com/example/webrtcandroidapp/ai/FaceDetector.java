@@ -0,0 +1,31 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.List;
+
+/**
+ * Face detection backend of FaceAnonymizer. Frames are full-size NV21 snapshots, handed over one at a time from the
+ * detection thread and only valid for the duration of detect. Results can be reported later and from any thread, but
+ * one detection at a time and in the order the frames were detected. The listener is given the detection timestamp,
+ * which is the timestamp the frame was passed with or, if the backend needs strictly increasing timestamps, slightly
+ * later. Boxes are relative to the frame; the reported list may be reused once the listener returns.
+ * A detection can be limited to regions of interest (frame-relative); results then only need to cover those regions.
+ * A backend that cannot crop the given regions scans the whole frame instead, which is always a valid answer.
+ */
+public interface FaceDetector {
+
+    interface Listener {
+        void onFacesDetected(List<FDBoundingBox> faces, long timestampMs);
+    }
+
+    void setListener(Listener listener);
+
+    void setFrameSize(int width, int height);
+
+    // An empty region list means the whole frame
+    void detect(byte[] nv21, long timestampMs, List<FDBoundingBox> regions);
+
+    // False while the backend is still being set up; until then FaceAnonymizer covers frames whole
+    boolean isReady();
+
+    void close();
+}
@@ -0,0 +1,329 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps one track per face across detections. Detections are assigned to tracks greedily by the highest IoU against
+ * the track's predicted box, so a track keeps its id for as long as the face is followed. Between detections each
+ * track is moved with a constant-velocity model (centre and size), smoothed over successive detections.
+ * A track is confirmed on its second detection; confirmed tracks coast on their prediction until removeDelayMs
+ * without a detection, unconfirmed ones are dropped as soon as a detection misses them.
+ * Each update also reports how far the predictions were off and how many tracks came and went, as a measure of
+ * tracking uncertainty.
+ * update must be called from a single thread. Its result is published as an immutable Snapshot that any other thread
+ * can read without locking; a Predictor turns a snapshot into per-frame boxes without allocating.
+ */
+public class FaceTracker {
+
+    private static final int MIN_CONFIRMING_HITS = 2;
+    private static final float VELOCITY_SMOOTHING = 0.5F;
+    private static final int STATE_SIZE = 8;
+
+    private final float mMinIntersectionOverUnion;
+    private final long mRemoveDelayMs;
+    private final long mMaxPredictionMs;
+    private final List<Track> mTracks = new ArrayList<>();
+    private final List<FDBoundingBox> mBoundingBoxes = new ArrayList<>();
+    private final AtomicReference<Snapshot> mSnapshot;
+
+    private long mNextTrackId;
+    private boolean mHasUnconfirmedTracks;
+    private float mLastPredictionError;
+    private int mLastTrackChanges;
+
+    // Scratch state of update, reused while the track and detection counts don't grow
+    private float[] mPairScores = new float[0];
+    private boolean[] mDetectionAssigned = new boolean[0];
+
+    public FaceTracker(float minIntersectionOverUnion, long removeDelayMs, long maxPredictionMs) {
+        mMinIntersectionOverUnion = minIntersectionOverUnion;
+        mRemoveDelayMs = removeDelayMs;
+        mMaxPredictionMs = maxPredictionMs;
+        mSnapshot = new AtomicReference<>(new Snapshot(0, 0, maxPredictionMs, new ArrayList<>()));
+    }
+
+    public void update(List<FDBoundingBox> detections, long timestampMs) {
+        int trackCount = mTracks.size();
+        int detectionCount = detections.size();
+        if (mPairScores.length < trackCount * detectionCount) {
+            mPairScores = new float[trackCount * detectionCount];
+        }
+        if (mDetectionAssigned.length < detectionCount) {
+            mDetectionAssigned = new boolean[detectionCount];
+        }
+
+        for (int t = 0; t < trackCount; t++) {
+            Track track = mTracks.get(t);
+            track.matched = false;
+            track.predictInto(track.box, timestampMs, mMaxPredictionMs);
+            for (int d = 0; d < detectionCount; d++) {
+                mPairScores[t * detectionCount + d] = track.box.getIntersectionOverUnion(detections.get(d));
+            }
+        }
+        for (int d = 0; d < detectionCount; d++) {
+            mDetectionAssigned[d] = false;
+        }
+        mLastPredictionError = 0F;
+        mLastTrackChanges = 0;
+
+        // Greedy assignment, best overlapping pair first
+        while (true) {
+            int bestTrack = -1;
+            int bestDetection = -1;
+            float bestScore = mMinIntersectionOverUnion;
+            for (int t = 0; t < trackCount; t++) {
+                if (mTracks.get(t).matched) {
+                    continue;
+                }
+                for (int d = 0; d < detectionCount; d++) {
+                    float score = mPairScores[t * detectionCount + d];
+                    if (!mDetectionAssigned[d] && score >= bestScore && score > 0F) {
+                        bestScore = score;
+                        bestTrack = t;
+                        bestDetection = d;
+                    }
+                }
+            }
+            if (bestTrack < 0) {
+                break;
+            }
+
+            Track track = mTracks.get(bestTrack);
+            FDBoundingBox detection = detections.get(bestDetection);
+            mLastPredictionError = Math.max(mLastPredictionError, track.getPredictionError(detection));
+            track.correct(detection, timestampMs);
+            mDetectionAssigned[bestDetection] = true;
+        }
+
+        for (int t = trackCount - 1; t >= 0; t--) {
+            Track track = mTracks.get(t);
+            if (!track.matched && (!track.box.isConfirmed() || timestampMs - track.lastDetectionTime >= mRemoveDelayMs)) {
+                mTracks.remove(t);
+                mLastTrackChanges++;
+            }
+        }
+        for (int d = 0; d < detectionCount; d++) {
+            if (!mDetectionAssigned[d]) {
+                mTracks.add(new Track(mNextTrackId++, detections.get(d), timestampMs));
+                mLastTrackChanges++;
+            }
+        }
+
+        mBoundingBoxes.clear();
+        mHasUnconfirmedTracks = false;
+        for (Track track : mTracks) {
+            mBoundingBoxes.add(track.box);
+            mHasUnconfirmedTracks |= !track.box.isConfirmed();
+        }
+        mSnapshot.set(new Snapshot(mSnapshot.get().getVersion() + 1, timestampMs, mMaxPredictionMs, mTracks));
+    }
+
+    // Drops all tracks, e.g. when the frames come from another camera
+    public void clear() {
+        mTracks.clear();
+        mBoundingBoxes.clear();
+        mHasUnconfirmedTracks = false;
+        mSnapshot.set(new Snapshot(mSnapshot.get().getVersion() + 1, mSnapshot.get().getTimestampMs(), mMaxPredictionMs, mTracks));
+    }
+
+    public Snapshot getSnapshot() {
+        return mSnapshot.get();
+    }
+
+    // Track boxes as of the last update, for the updating thread only; the id of a box is the id of its track
+    public List<FDBoundingBox> getBoundingBoxes() {
+        return mBoundingBoxes;
+    }
+
+    public boolean hasUnconfirmedTracks() {
+        return mHasUnconfirmedTracks;
+    }
+
+    // Largest centre offset between a prediction and its matched detection in the last update, relative to face size
+    public float getLastPredictionError() {
+        return mLastPredictionError;
+    }
+
+    // Tracks created plus tracks removed by the last update
+    public int getLastTrackChanges() {
+        return mLastTrackChanges;
+    }
+
+    public int getTrackCount() {
+        return mTracks.size();
+    }
+
+    private static class Track {
+        final FDBoundingBox box;
+
+        float centerX;
+        float centerY;
+        float width;
+        float height;
+        float velocityX;
+        float velocityY;
+        float velocityWidth;
+        float velocityHeight;
+        long lastDetectionTime;
+        int hits;
+        boolean matched;
+
+        Track(long id, FDBoundingBox detection, long timestampMs) {
+            box = new FDBoundingBox(id, detection.getXMin(), detection.getYMin(), detection.getWidth(), detection.getHeight());
+            setState(detection);
+            lastDetectionTime = timestampMs;
+            hits = 1;
+        }
+
+        void correct(FDBoundingBox detection, long timestampMs) {
+            long elapsed = timestampMs - lastDetectionTime;
+            if (elapsed > 0) {
+                float smoothing = hits == 1 ? 1F : VELOCITY_SMOOTHING;
+                velocityX += smoothing * (((detection.getXMin() + detection.getWidth() / 2) - centerX) / elapsed - velocityX);
+                velocityY += smoothing * (((detection.getYMin() + detection.getHeight() / 2) - centerY) / elapsed - velocityY);
+                velocityWidth += smoothing * ((detection.getWidth() - width) / elapsed - velocityWidth);
+                velocityHeight += smoothing * ((detection.getHeight() - height) / elapsed - velocityHeight);
+            }
+
+            setState(detection);
+            lastDetectionTime = timestampMs;
+            matched = true;
+            box.set(detection.getXMin(), detection.getYMin(), detection.getWidth(), detection.getHeight());
+            if (++hits >= MIN_CONFIRMING_HITS && !box.isConfirmed()) {
+                box.confirm();
+            }
+        }
+
+        // Only valid while box holds the prediction for the detection's timestamp
+        float getPredictionError(FDBoundingBox detection) {
+            float offsetX = (detection.getXMin() + detection.getWidth() / 2) - (box.getXMin() + box.getWidth() / 2);
+            float offsetY = (detection.getYMin() + detection.getHeight() / 2) - (box.getYMin() + box.getHeight() / 2);
+            float size = Math.max(Math.max(detection.getWidth(), detection.getHeight()), 1e-3F);
+            return (float) Math.sqrt(offsetX * offsetX + offsetY * offsetY) / size;
+        }
+
+        void predictInto(FDBoundingBox target, long timestampMs, long maxPredictionMs) {
+            predictBox(centerX, centerY, width, height, velocityX, velocityY, velocityWidth, velocityHeight,
+                    predictionTime(timestampMs, lastDetectionTime, maxPredictionMs), target);
+        }
+
+        private void setState(FDBoundingBox detection) {
+            width = detection.getWidth();
+            height = detection.getHeight();
+            centerX = detection.getXMin() + width / 2;
+            centerY = detection.getYMin() + height / 2;
+        }
+    }
+
+    /**
+     * Immutable state of all tracks after one update.
+     */
+    public static final class Snapshot {
+        private final long mVersion;
+        private final long mTimestampMs;
+        private final long mMaxPredictionMs;
+        private final long[] mIds;
+        private final boolean[] mConfirmed;
+        private final long[] mLastDetectionTimes;
+        private final float[] mStates;
+        private final boolean mHasUnconfirmedTracks;
+
+        Snapshot(long version, long timestampMs, long maxPredictionMs, List<Track> tracks) {
+            mVersion = version;
+            mTimestampMs = timestampMs;
+            mMaxPredictionMs = maxPredictionMs;
+            int count = tracks.size();
+            mIds = new long[count];
+            mConfirmed = new boolean[count];
+            mLastDetectionTimes = new long[count];
+            mStates = new float[count * STATE_SIZE];
+            boolean hasUnconfirmedTracks = false;
+            for (int i = 0; i < count; i++) {
+                Track track = tracks.get(i);
+                mIds[i] = track.box.getFdId();
+                mConfirmed[i] = track.box.isConfirmed();
+                mLastDetectionTimes[i] = track.lastDetectionTime;
+                int offset = i * STATE_SIZE;
+                mStates[offset] = track.centerX;
+                mStates[offset + 1] = track.centerY;
+                mStates[offset + 2] = track.width;
+                mStates[offset + 3] = track.height;
+                mStates[offset + 4] = track.velocityX;
+                mStates[offset + 5] = track.velocityY;
+                mStates[offset + 6] = track.velocityWidth;
+                mStates[offset + 7] = track.velocityHeight;
+                hasUnconfirmedTracks |= !track.box.isConfirmed();
+            }
+            mHasUnconfirmedTracks = hasUnconfirmedTracks;
+        }
+
+        public long getVersion() {
+            return mVersion;
+        }
+
+        public long getTimestampMs() {
+            return mTimestampMs;
+        }
+
+        public int getTrackCount() {
+            return mIds.length;
+        }
+
+        public boolean hasUnconfirmedTracks() {
+            return mHasUnconfirmedTracks;
+        }
+
+        void predictInto(int index, long timestampMs, FDBoundingBox target) {
+            int offset = index * STATE_SIZE;
+            float[] states = mStates;
+            predictBox(states[offset], states[offset + 1], states[offset + 2], states[offset + 3],
+                    states[offset + 4], states[offset + 5], states[offset + 6], states[offset + 7],
+                    predictionTime(timestampMs, mLastDetectionTimes[index], mMaxPredictionMs), target);
+        }
+    }
+
+    /**
+     * Per-frame boxes of a snapshot, owned by one reading thread. The boxes are reused and only reallocated when a
+     * new snapshot is picked up.
+     */
+    public static class Predictor {
+        private final List<FDBoundingBox> mBoxes = new ArrayList<>();
+
+        private Snapshot mSnapshot;
+
+        // The returned boxes stay valid until the next call
+        public List<FDBoundingBox> predict(Snapshot snapshot, long timestampMs) {
+            if (snapshot != mSnapshot) {
+                mBoxes.clear();
+                for (int i = 0; i < snapshot.getTrackCount(); i++) {
+                    FDBoundingBox box = new FDBoundingBox(snapshot.mIds[i], 0F, 0F, 0F, 0F);
+                    if (snapshot.mConfirmed[i]) {
+                        box.confirm();
+                    }
+                    mBoxes.add(box);
+                }
+                mSnapshot = snapshot;
+            }
+
+            for (int i = 0; i < mBoxes.size(); i++) {
+                snapshot.predictInto(i, timestampMs, mBoxes.get(i));
+            }
+            return mBoxes;
+        }
+    }
+
+    // Extrapolation is capped so that a coasting track does not drift away
+    private static long predictionTime(long timestampMs, long lastDetectionTime, long maxPredictionMs) {
+        return Math.max(0, Math.min(timestampMs - lastDetectionTime, maxPredictionMs));
+    }
+
+    private static void predictBox(float centerX, float centerY, float width, float height, float velocityX, float velocityY,
+                                   float velocityWidth, float velocityHeight, long elapsed, FDBoundingBox target) {
+        float predictedWidth = Math.max(0F, width + velocityWidth * elapsed);
+        float predictedHeight = Math.max(0F, height + velocityHeight * elapsed);
+        target.set(centerX + velocityX * elapsed - predictedWidth / 2, centerY + velocityY * elapsed - predictedHeight / 2,
+                predictedWidth, predictedHeight);
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Anonymizes the rectangles of a planned mask, either on the calling thread or split across a small dedicated pool
+ * together with the calling thread. Masks below the parallel area threshold always run serially. For the parallel run
+ * the rectangles are cut into pieces that workers take in turn: pixelated and filled rectangles into row bands on the
+ * block grid (on even rows, so no chroma row is shared), blurred rectangles only whole since blur reads across rows.
+ * Block sizes must be even for the parallel path (odd ones run serially): then a piece is pixelated exactly as it is
+ * within its whole rectangle, so the output is identical to the serial path. Each worker has its own kernels and its
+ * own views of the planes, as neither is thread-safe.
+ * Not thread-safe - one frame at a time.
+ */
+public class MaskPass {
+
+    private static final int PIECES_PER_WORKER = 4;
+    private static final long SHUTDOWN_TIMEOUT_MS = 500;
+
+    private final long mMinParallelArea;
+    private final ExecutorService mExecutor;
+    private final Worker[] mWorkers;
+    private final AtomicInteger mNextPiece = new AtomicInteger();
+    private final AtomicLong mParallelCount = new AtomicLong();
+
+    // top, left, width, height of every piece of the current frame
+    private int[] mPieces = new int[64];
+    private int mPieceCount;
+    private AnonymizationMode mMode;
+    private int mBlockSize;
+    private int mBlurRadius;
+    private CountDownLatch mDone;
+
+    // threadCount pool threads help the calling thread; 0 disables the parallel path
+    public MaskPass(int threadCount, long minParallelArea) {
+        mMinParallelArea = minParallelArea;
+        mWorkers = new Worker[threadCount + 1];
+        for (int i = 0; i < mWorkers.length; i++) {
+            mWorkers[i] = new Worker();
+        }
+        AtomicInteger threadIndex = new AtomicInteger();
+        mExecutor = threadCount > 0
+                ? Executors.newFixedThreadPool(threadCount, runnable -> {
+                    Thread thread = new Thread(runnable, "MaskPassThread-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    public void run(YuvPlanes planes, MaskPlanner plan, AnonymizationMode mode, int blockSize, int blurRadius) {
+        if (mExecutor == null || mExecutor.isShutdown() || plan.getArea() < mMinParallelArea || blockSize % 2 != 0) {
+            for (int i = 0; i < plan.getRectCount(); i++) {
+                anonymizeArea(planes, mode, plan.getTop(i), plan.getLeft(i), plan.getWidth(i), plan.getHeight(i),
+                        blockSize, blurRadius);
+            }
+            return;
+        }
+
+        mMode = mode;
+        mBlockSize = blockSize;
+        mBlurRadius = blurRadius;
+        splitPieces(plan, mode, blockSize);
+        mNextPiece.set(0);
+        mDone = new CountDownLatch(mWorkers.length - 1);
+        mParallelCount.incrementAndGet();
+        for (int i = 1; i < mWorkers.length; i++) {
+            mWorkers[i].setPlanes(planes);
+            mExecutor.execute(mWorkers[i]);
+        }
+
+        mWorkers[0].setPlanes(planes);
+        mWorkers[0].processPieces();
+        try {
+            mDone.await();
+        } catch (InterruptedException e) {
+            // The workers still finish this frame; wait for them so no one writes to the image once it is released
+            awaitUninterruptibly(mDone);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Serial, on the calling thread
+    public void anonymizeArea(YuvPlanes planes, AnonymizationMode mode, int top, int left, int width, int height,
+                              int blockSize, int blurRadius) {
+        mWorkers[0].anonymizeArea(planes, mode, top, left, width, height, blockSize, blurRadius);
+    }
+
+    // Frames whose mask was split across the pool
+    public long getParallelCount() {
+        return mParallelCount.get();
+    }
+
+    public void shutdown() {
+        if (mExecutor == null) {
+            return;
+        }
+
+        mExecutor.shutdown();
+        try {
+            mExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void splitPieces(MaskPlanner plan, AnonymizationMode mode, int blockSize) {
+        mPieceCount = 0;
+        long targetArea = Math.max(1, plan.getArea() / ((long) mWorkers.length * PIECES_PER_WORKER));
+        int grid = mode == AnonymizationMode.PIXELATE ? Math.max(2, blockSize) : 2;
+        for (int i = 0; i < plan.getRectCount(); i++) {
+            int top = plan.getTop(i);
+            int left = plan.getLeft(i);
+            int width = plan.getWidth(i);
+            int height = plan.getHeight(i);
+            int bandHeight = height;
+            if (mode != AnonymizationMode.BLUR && top % 2 == 0) {
+                bandHeight = (int) Math.max(grid, targetArea / width / grid * grid);
+            }
+            for (int bandTop = top; bandTop < top + height; bandTop += bandHeight) {
+                addPiece(bandTop, left, width, Math.min(bandHeight, top + height - bandTop));
+            }
+        }
+    }
+
+    private void addPiece(int top, int left, int width, int height) {
+        if (mPieceCount * 4 == mPieces.length) {
+            int[] grown = new int[mPieces.length * 2];
+            System.arraycopy(mPieces, 0, grown, 0, mPieces.length);
+            mPieces = grown;
+        }
+        int index = mPieceCount * 4;
+        mPieces[index] = top;
+        mPieces[index + 1] = left;
+        mPieces[index + 2] = width;
+        mPieces[index + 3] = height;
+        mPieceCount++;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        while (true) {
+            try {
+                latch.await();
+                return;
+            } catch (InterruptedException ignored) {
+                // Keep waiting, the caller restores the interrupt
+            }
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final YuvPlanePixelator mPixelator = new YuvPlanePixelator();
+        private final YuvPlaneBlur mBlur = new YuvPlaneBlur();
+        private final YuvPlaneFiller mFiller = new YuvPlaneFiller();
+        // Own buffer views, as the kernels move buffer positions for bulk writes
+        private final YuvPlanes mPlanes = new YuvPlanes();
+
+        void setPlanes(YuvPlanes planes) {
+            mPlanes.set(planes.getWidth(), planes.getHeight(), planes.getY().duplicate(), planes.getYRowStride(),
+                    planes.getU().duplicate(), planes.getV().duplicate(), planes.getUvRowStride(), planes.getUvPixelStride());
+        }
+
+        @Override
+        public void run() {
+            try {
+                processPieces();
+            } finally {
+                mDone.countDown();
+            }
+        }
+
+        void processPieces() {
+            int piece;
+            while ((piece = mNextPiece.getAndIncrement()) < mPieceCount) {
+                int index = piece * 4;
+                anonymizeArea(mPlanes, mMode, mPieces[index], mPieces[index + 1], mPieces[index + 2], mPieces[index + 3],
+                        mBlockSize, mBlurRadius);
+            }
+        }
+
+        void anonymizeArea(YuvPlanes planes, AnonymizationMode mode, int top, int left, int width, int height,
+                           int blockSize, int blurRadius) {
+            switch (mode) {
+                case BLUR:
+                    mBlur.blur(planes, top, left, width, height, blurRadius);
+                    break;
+                case PIXELATE:
+                    mPixelator.pixelate(planes, top, left, width, height, blockSize);
+                    break;
+                case FILL:
+                    mFiller.fill(planes, top, left, width, height);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.Arrays;
+
+/**
+ * Turns the (possibly overlapping) areas to anonymize in a frame into a small set of disjoint rectangles, so that no
+ * pixel is processed twice. Areas are clipped to the frame and snapped outwards to a grid of square cells anchored at
+ * the frame origin - for pixelation the cell is the block size, so the rectangles tile the same block grid and the
+ * result equals pixelating their union. The union is cut into horizontal bands at every area edge, the covered
+ * columns of each band are merged into disjoint spans, and bands with identical spans are joined again.
+ * Not thread-safe - scratch state is reused between frames, so planning does not allocate once it has grown.
+ */
+public class MaskPlanner {
+
+    private int mFrameWidth;
+    private int mFrameHeight;
+    private int mAreaCount;
+    // Input areas, in pixels until planned and in cells afterwards
+    private int[] mAreaTops = new int[8];
+    private int[] mAreaLefts = new int[8];
+    private int[] mAreaBottoms = new int[8];
+    private int[] mAreaRights = new int[8];
+    private int[] mEdges = new int[16];
+    private long[] mSpans = new long[8];
+    private int[] mSpanLefts = new int[8];
+    private int[] mSpanRights = new int[8];
+    private int mSpanCount;
+    private int[] mOpenLefts = new int[8];
+    private int[] mOpenRights = new int[8];
+    private int mOpenCount;
+    private int mOpenTop;
+
+    private int mRectCount;
+    private int[] mRectTops = new int[8];
+    private int[] mRectLefts = new int[8];
+    private int[] mRectBottoms = new int[8];
+    private int[] mRectRights = new int[8];
+    private long mArea;
+
+    public void reset(int frameWidth, int frameHeight) {
+        mFrameWidth = frameWidth;
+        mFrameHeight = frameHeight;
+        mAreaCount = 0;
+        mRectCount = 0;
+        mArea = 0;
+    }
+
+    public void addArea(int top, int left, int width, int height) {
+        if (mAreaCount == mAreaTops.length) {
+            int capacity = mAreaCount * 2;
+            mAreaTops = Arrays.copyOf(mAreaTops, capacity);
+            mAreaLefts = Arrays.copyOf(mAreaLefts, capacity);
+            mAreaBottoms = Arrays.copyOf(mAreaBottoms, capacity);
+            mAreaRights = Arrays.copyOf(mAreaRights, capacity);
+            mEdges = new int[capacity * 2];
+            mSpans = new long[capacity];
+            mSpanLefts = new int[capacity];
+            mSpanRights = new int[capacity];
+            mOpenLefts = new int[capacity];
+            mOpenRights = new int[capacity];
+        }
+        mAreaTops[mAreaCount] = top;
+        mAreaLefts[mAreaCount] = left;
+        mAreaBottoms[mAreaCount] = top + height;
+        mAreaRights[mAreaCount] = left + width;
+        mAreaCount++;
+    }
+
+    public void plan(int cellSize) {
+        mRectCount = 0;
+        mArea = 0;
+        int cells = Math.max(1, cellSize);
+
+        // Clip and snap outwards to the cell grid, dropping areas outside the frame
+        int count = 0;
+        for (int i = 0; i < mAreaCount; i++) {
+            int top = Math.max(mAreaTops[i], 0) / cells;
+            int left = Math.max(mAreaLefts[i], 0) / cells;
+            int bottom = ceilDiv(Math.min(mAreaBottoms[i], mFrameHeight), cells);
+            int right = ceilDiv(Math.min(mAreaRights[i], mFrameWidth), cells);
+            if (top < bottom && left < right) {
+                mAreaTops[count] = top;
+                mAreaLefts[count] = left;
+                mAreaBottoms[count] = bottom;
+                mAreaRights[count] = right;
+                count++;
+            }
+        }
+        mAreaCount = count;
+        if (count == 0) {
+            return;
+        }
+
+        int edgeCount = 0;
+        for (int i = 0; i < count; i++) {
+            mEdges[edgeCount++] = mAreaTops[i];
+            mEdges[edgeCount++] = mAreaBottoms[i];
+        }
+        Arrays.sort(mEdges, 0, edgeCount);
+
+        mOpenCount = 0;
+        int previousEdge = mEdges[0];
+        for (int e = 1; e < edgeCount; e++) {
+            int edge = mEdges[e];
+            if (edge == previousEdge) {
+                continue;
+            }
+            collectSpans(previousEdge, edge);
+            if (!isSameAsOpen()) {
+                closeOpen(previousEdge, cells);
+                System.arraycopy(mSpanLefts, 0, mOpenLefts, 0, mSpanCount);
+                System.arraycopy(mSpanRights, 0, mOpenRights, 0, mSpanCount);
+                mOpenCount = mSpanCount;
+                mOpenTop = previousEdge;
+            }
+            previousEdge = edge;
+        }
+        closeOpen(previousEdge, cells);
+    }
+
+    public int getRectCount() {
+        return mRectCount;
+    }
+
+    public int getTop(int index) {
+        return mRectTops[index];
+    }
+
+    public int getLeft(int index) {
+        return mRectLefts[index];
+    }
+
+    public int getWidth(int index) {
+        return mRectRights[index] - mRectLefts[index];
+    }
+
+    public int getHeight(int index) {
+        return mRectBottoms[index] - mRectTops[index];
+    }
+
+    // Pixels covered by the planned rectangles
+    public long getArea() {
+        return mArea;
+    }
+
+    // Merged column spans of the areas covering the band [top, bottom), in cells
+    private void collectSpans(int top, int bottom) {
+        int intervalCount = 0;
+        for (int i = 0; i < mAreaCount; i++) {
+            if (mAreaTops[i] <= top && mAreaBottoms[i] >= bottom) {
+                mSpans[intervalCount++] = (long) mAreaLefts[i] << 32 | mAreaRights[i];
+            }
+        }
+        Arrays.sort(mSpans, 0, intervalCount);
+
+        mSpanCount = 0;
+        for (int i = 0; i < intervalCount; i++) {
+            int left = (int) (mSpans[i] >>> 32);
+            int right = (int) mSpans[i];
+            if (mSpanCount > 0 && left <= mSpanRights[mSpanCount - 1]) {
+                mSpanRights[mSpanCount - 1] = Math.max(mSpanRights[mSpanCount - 1], right);
+            } else {
+                mSpanLefts[mSpanCount] = left;
+                mSpanRights[mSpanCount] = right;
+                mSpanCount++;
+            }
+        }
+    }
+
+    private boolean isSameAsOpen() {
+        if (mSpanCount != mOpenCount) {
+            return false;
+        }
+        for (int i = 0; i < mSpanCount; i++) {
+            if (mSpanLefts[i] != mOpenLefts[i] || mSpanRights[i] != mOpenRights[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void closeOpen(int bottom, int cells) {
+        for (int i = 0; i < mOpenCount; i++) {
+            if (mRectCount == mRectTops.length) {
+                int capacity = mRectCount * 2;
+                mRectTops = Arrays.copyOf(mRectTops, capacity);
+                mRectLefts = Arrays.copyOf(mRectLefts, capacity);
+                mRectBottoms = Arrays.copyOf(mRectBottoms, capacity);
+                mRectRights = Arrays.copyOf(mRectRights, capacity);
+            }
+            int top = mOpenTop * cells;
+            int left = mOpenLefts[i] * cells;
+            int rectBottom = Math.min(bottom * cells, mFrameHeight);
+            int right = Math.min(mOpenRights[i] * cells, mFrameWidth);
+            mRectTops[mRectCount] = top;
+            mRectLefts[mRectCount] = left;
+            mRectBottoms[mRectCount] = rectBottom;
+            mRectRights[mRectCount] = right;
+            mRectCount++;
+            mArea += (long) (rectBottom - top) * (right - left);
+        }
+        mOpenCount = 0;
+    }
+
+    private static int ceilDiv(int value, int divisor) {
+        return -Math.floorDiv(-value, divisor);
+    }
+}
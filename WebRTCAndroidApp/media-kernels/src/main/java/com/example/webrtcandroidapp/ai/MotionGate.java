@@ -0,0 +1,158 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a frame is worth running face detection on, by comparing a fixed 64x48 grid of luma samples against
+ * the same grid of the last analysed frame. The grid is split into 8x6 cells and a frame counts as changed once the
+ * mean absolute difference of any cell exceeds the threshold, or the lower track threshold for cells around an
+ * existing face. Unchanged frames are skipped, but never for longer than the configured refresh times so that tracks
+ * are not dropped and slow drift is still picked up. The cost is independent of the frame size. Not thread-safe,
+ * except for the counters.
+ */
+public class MotionGate {
+
+    private static final int GRID_COLUMNS = 64;
+    private static final int GRID_ROWS = 48;
+    private static final int CELL_SIZE = 8;
+    private static final int CELL_COLUMNS = GRID_COLUMNS / CELL_SIZE;
+    private static final int CELL_ROWS = GRID_ROWS / CELL_SIZE;
+    private static final float TRACK_REGION_MARGIN = 0.5F;
+
+    private final float mThreshold;
+    private final float mTrackThreshold;
+    private final long mMaxSkipMs;
+    private final long mMaxSkipWithTracksMs;
+    private final int[] mColumnOffsets = new int[GRID_COLUMNS];
+    private final int[] mRowOffsets = new int[GRID_ROWS];
+    private final int[] mCellDifferences = new int[CELL_COLUMNS * CELL_ROWS];
+    private final AtomicLong mEvaluatedCount = new AtomicLong();
+    private final AtomicLong mSkippedCount = new AtomicLong();
+
+    private byte[] mReference = new byte[GRID_COLUMNS * GRID_ROWS];
+    private byte[] mCurrent = new byte[GRID_COLUMNS * GRID_ROWS];
+    private int mWidth = -1;
+    private int mHeight = -1;
+    private int mRowStride = -1;
+    private boolean mHasReference;
+    private long mLastAnalysisTime;
+
+    public MotionGate(float threshold, float trackThreshold, long maxSkipMs, long maxSkipWithTracksMs) {
+        mThreshold = threshold;
+        mTrackThreshold = trackThreshold;
+        mMaxSkipMs = maxSkipMs;
+        mMaxSkipWithTracksMs = maxSkipWithTracksMs;
+    }
+
+    // A true result takes the frame as the new reference, so it must be followed by the detection
+    public boolean shouldAnalyze(YuvPlanes planes, List<FDBoundingBox> tracks, long nowMs) {
+        mEvaluatedCount.incrementAndGet();
+        sample(planes.getY(), planes.getYRowStride(), planes.getWidth(), planes.getHeight());
+
+        long maxSkipMs = tracks.isEmpty() ? mMaxSkipMs : mMaxSkipWithTracksMs;
+        if (!mHasReference || nowMs - mLastAnalysisTime >= maxSkipMs || hasChanged(tracks)) {
+            byte[] reference = mReference;
+            mReference = mCurrent;
+            mCurrent = reference;
+            mHasReference = true;
+            mLastAnalysisTime = nowMs;
+            return true;
+        }
+
+        mSkippedCount.incrementAndGet();
+        return false;
+    }
+
+    public void reset() {
+        mHasReference = false;
+    }
+
+    public long getEvaluatedCount() {
+        return mEvaluatedCount.get();
+    }
+
+    public long getSkippedCount() {
+        return mSkippedCount.get();
+    }
+
+    public float getSkipRatio() {
+        long evaluated = mEvaluatedCount.get();
+        return evaluated > 0 ? (float) mSkippedCount.get() / evaluated : 0F;
+    }
+
+    private void sample(ByteBuffer luma, int rowStride, int width, int height) {
+        if (width != mWidth || height != mHeight || rowStride != mRowStride) {
+            for (int i = 0; i < GRID_COLUMNS; i++) {
+                mColumnOffsets[i] = (int) ((2L * i + 1) * width / (2 * GRID_COLUMNS));
+            }
+            for (int i = 0; i < GRID_ROWS; i++) {
+                mRowOffsets[i] = (int) ((2L * i + 1) * height / (2 * GRID_ROWS)) * rowStride;
+            }
+            mWidth = width;
+            mHeight = height;
+            mRowStride = rowStride;
+            mHasReference = false;
+        }
+
+        byte[] current = mCurrent;
+        int index = 0;
+        for (int row = 0; row < GRID_ROWS; row++) {
+            int rowOffset = mRowOffsets[row];
+            for (int column = 0; column < GRID_COLUMNS; column++) {
+                current[index++] = luma.get(rowOffset + mColumnOffsets[column]);
+            }
+        }
+    }
+
+    private boolean hasChanged(List<FDBoundingBox> tracks) {
+        int[] cellDifferences = mCellDifferences;
+        for (int i = 0; i < cellDifferences.length; i++) {
+            cellDifferences[i] = 0;
+        }
+
+        byte[] current = mCurrent;
+        byte[] reference = mReference;
+        int index = 0;
+        for (int row = 0; row < GRID_ROWS; row++) {
+            int cellRowOffset = (row / CELL_SIZE) * CELL_COLUMNS;
+            for (int column = 0; column < GRID_COLUMNS; column++) {
+                cellDifferences[cellRowOffset + column / CELL_SIZE] += Math.abs((current[index] & 0xFF) - (reference[index] & 0xFF));
+                index++;
+            }
+        }
+
+        int cellThreshold = (int) (mThreshold * CELL_SIZE * CELL_SIZE);
+        for (int cellDifference : cellDifferences) {
+            if (cellDifference > cellThreshold) {
+                return true;
+            }
+        }
+
+        int trackCellThreshold = (int) (mTrackThreshold * CELL_SIZE * CELL_SIZE);
+        for (int i = 0; i < tracks.size(); i++) {
+            FDBoundingBox track = tracks.get(i);
+            float marginX = track.getWidth() * TRACK_REGION_MARGIN;
+            float marginY = track.getHeight() * TRACK_REGION_MARGIN;
+            int firstColumn = toCell(track.getXMin() - marginX, CELL_COLUMNS);
+            int lastColumn = toCell(track.getXMin() + track.getWidth() + marginX, CELL_COLUMNS);
+            int firstRow = toCell(track.getYMin() - marginY, CELL_ROWS);
+            int lastRow = toCell(track.getYMin() + track.getHeight() + marginY, CELL_ROWS);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    if (cellDifferences[row * CELL_COLUMNS + column] > trackCellThreshold) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static int toCell(float position, int cellCount) {
+        return Math.max(0, Math.min(cellCount - 1, (int) (position * cellCount)));
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.util.List;
+
+/**
+ * Maps relative face bounding boxes onto an NV21 frame, or onto the strided planes of a YUV 4:2:0 frame, and
+ * anonymizes them in place. NV21 frames are always pixelated; for planes the mode is picked per frame by the budget.
+ * Overlapping boxes are merged by MaskPlanner first, on the pixelation block grid whatever the mode, and the planned
+ * rectangles are anonymized by MaskPass - serially, unless it is given a pool.
+ * Not thread-safe - callers are expected to use one instance per capture thread.
+ */
+public class NV21Anonymizer {
+
+    private static final float FD_OVERLAY_COMPENSATION_FACTOR = 0.1F;
+    private static final int MAX_PIXELATION_SEGMENT_CUBE_COUNT = 50;
+    private static final int DEFAULT_PIXELATION_ROW_CUBE_COUNT = 80;
+    private static final int BLUR_RADIUS_DIVISOR = 10;
+    private static final int COVER_ROW_CUBE_COUNT = 16;
+
+    private final NV21Pixelator mPixelator = new NV21Pixelator();
+    private final MaskPass mMaskPass;
+    private final AnonymizationBudget mBudget = new AnonymizationBudget(AnonymizationMode.PIXELATE, 0);
+    private final MaskPlanner mMaskPlanner = new MaskPlanner();
+    // top, left, height, width of the last mapped box
+    private final int[] mArea = new int[4];
+    private int mMaxBoxWidth;
+
+    public NV21Anonymizer() {
+        this(new MaskPass(0, 0));
+    }
+
+    public NV21Anonymizer(MaskPass maskPass) {
+        mMaskPass = maskPass;
+    }
+
+    public void removeFaces(byte[] nv21, int ySize, int previewWidth, int previewHeight, List<FDBoundingBox> boundingBoxes) {
+        int blockSize = planMask(boundingBoxes, previewWidth, previewHeight);
+        for (int i = 0; i < mMaskPlanner.getRectCount(); i++) {
+            mPixelator.pixelate(nv21, previewWidth, previewHeight, ySize, mMaskPlanner.getTop(i), mMaskPlanner.getLeft(i),
+                    mMaskPlanner.getWidth(i), mMaskPlanner.getHeight(i), blockSize);
+        }
+    }
+
+    public void removeFaces(YuvPlanes planes, List<FDBoundingBox> boundingBoxes) {
+        int blockSize = planMask(boundingBoxes, planes.getWidth(), planes.getHeight());
+        long area = mMaskPlanner.getArea();
+        if (area == 0) {
+            return;
+        }
+
+        AnonymizationMode mode = mBudget.select(area);
+        int blurRadius = Math.max(blockSize, mMaxBoxWidth / BLUR_RADIUS_DIVISOR);
+        long start = System.nanoTime();
+        mMaskPass.run(planes, mMaskPlanner, mode, blockSize, blurRadius);
+        mBudget.onApplied(mode, area, System.nanoTime() - start);
+    }
+
+    // Coarse pixelation of the whole frame, for when faces can't be located
+    public void coverFrame(YuvPlanes planes) {
+        int blockSize = Math.max(2, planes.getWidth() / COVER_ROW_CUBE_COUNT + 1 & ~1);
+        mMaskPlanner.reset(planes.getWidth(), planes.getHeight());
+        mMaskPlanner.addArea(0, 0, planes.getWidth(), planes.getHeight());
+        mMaskPlanner.plan(blockSize);
+        mMaskPass.run(planes, mMaskPlanner, AnonymizationMode.PIXELATE, blockSize, blockSize);
+    }
+
+    public void applyAnonymization(YuvPlanes planes, AnonymizationMode mode, int top, int left, int boxHeight, int boxWidth) {
+        int blockSize = getPixelationBoxSize(boxWidth, planes.getWidth());
+        mMaskPass.anonymizeArea(planes, mode, top, left, boxWidth, boxHeight, blockSize,
+                Math.max(blockSize, boxWidth / BLUR_RADIUS_DIVISOR));
+    }
+
+    public AnonymizationBudget getBudget() {
+        return mBudget;
+    }
+
+    public MaskPlanner getMaskPlanner() {
+        return mMaskPlanner;
+    }
+
+    public MaskPass getMaskPass() {
+        return mMaskPass;
+    }
+
+    public void dispose() {
+        mMaskPass.shutdown();
+    }
+
+    public void applyAnonymization(byte[] nv21, int uvOffset, int top, int left, int boxHeight, int boxWidth, int previewWidth, int previewHeight) {
+        mPixelator.pixelate(nv21, previewWidth, previewHeight, uvOffset, top, left, boxWidth, boxHeight,
+                getPixelationBoxSize(boxWidth, previewWidth));
+    }
+
+    // Merges the confirmed boxes into disjoint rectangles on one block grid for the whole frame, sized for the widest
+    // box, so overlapping faces are processed once; returns the block size
+    private int planMask(List<FDBoundingBox> boundingBoxes, int previewWidth, int previewHeight) {
+        mMaskPlanner.reset(previewWidth, previewHeight);
+        mMaxBoxWidth = 0;
+        if (boundingBoxes == null) {
+            return 0;
+        }
+
+        // Indexed loop on purpose - this runs for every captured frame
+        for (int i = 0; i < boundingBoxes.size(); i++) {
+            FDBoundingBox boundingBox = boundingBoxes.get(i);
+            if (boundingBox.isConfirmed()) {
+                mapBoundingBox(boundingBox, previewWidth, previewHeight);
+                mMaskPlanner.addArea(mArea[0], mArea[1], mArea[3], mArea[2]);
+                mMaxBoxWidth = Math.max(mMaxBoxWidth, mArea[3]);
+            }
+        }
+        int blockSize = getPixelationBoxSize(mMaxBoxWidth, previewWidth);
+        mMaskPlanner.plan(blockSize);
+        return blockSize;
+    }
+
+    private int getPixelationBoxSize(int boxWidth, int previewWidth) {
+        int minPixelationBoxSize = previewWidth / DEFAULT_PIXELATION_ROW_CUBE_COUNT;
+        int segmentPixelationBoxSize = boxWidth / MAX_PIXELATION_SEGMENT_CUBE_COUNT;
+        // Even, so that chroma blocks line up with luma blocks
+        return Math.max(minPixelationBoxSize, segmentPixelationBoxSize) + 1 & ~1;
+    }
+
+    private void mapBoundingBox(FDBoundingBox boundingBox, int previewWidth, int previewHeight) {
+        int boxWidth = (int) (previewWidth * boundingBox.getWidth());
+        int boxHeight = (int) (previewHeight * boundingBox.getHeight());
+        int left = fixPosition((int) (previewWidth * boundingBox.getXMin()));
+        int top = fixPosition((int) (previewHeight * (boundingBox.getYMin())));
+
+        if (FD_OVERLAY_COMPENSATION_FACTOR > 0) {
+            int compensation = (int) (Math.min(boxHeight, boxWidth) * FD_OVERLAY_COMPENSATION_FACTOR);
+            boxWidth += compensation * 2;
+            boxHeight += compensation * 2;
+            left -= compensation;
+            top -= compensation;
+        }
+
+        mArea[0] = top;
+        mArea[1] = left;
+        mArea[2] = boxHeight;
+        mArea[3] = boxWidth;
+    }
+
+    private int fixPosition(int position) {
+        if (position < 0) {
+            position = 0;
+        }
+        if (position % 2 == 1) {
+            position++;
+        }
+        return position;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.webrtcandroidapp.ai;
+
+/**
+ * Box-filter downscale of an NV21 frame, or of a region of it, straight into a smaller NV21 frame, for the Y plane and for V and U
+ * separately. Each destination sample is the rounded mean of up to 4x4 source samples spread evenly over the area
+ * mapping onto it (an exact area average for ratios up to 4), so the cost follows the destination size rather than
+ * the capture resolution. Lookup tables are reused while the sizes stay the same. Not thread-safe.
+ */
+public class NV21Downscaler {
+
+    private static final int MAX_SAMPLES_PER_AXIS = 4;
+
+    private final PlaneScaler mLumaScaler = new PlaneScaler(1);
+    private final PlaneScaler mChromaScaler = new PlaneScaler(2);
+
+    public void downscale(byte[] src, int srcWidth, int srcHeight, byte[] dst, int dstWidth, int dstHeight) {
+        if (dstWidth > srcWidth || dstHeight > srcHeight || dstWidth <= 0 || dstHeight <= 0) {
+            throw new IllegalArgumentException("Cannot scale " + srcWidth + "x" + srcHeight + " to " + dstWidth + "x" + dstHeight);
+        }
+
+        downscale(src, srcWidth, srcHeight, 0, 0, srcWidth, srcHeight, dst, dstWidth, dstHeight);
+    }
+
+    // Downscales only the region of the source frame; its position must be even
+    public void downscale(byte[] src, int srcWidth, int srcHeight, int regionLeft, int regionTop, int regionWidth, int regionHeight,
+                          byte[] dst, int dstWidth, int dstHeight) {
+        if (dstWidth > regionWidth || dstHeight > regionHeight || dstWidth <= 0 || dstHeight <= 0) {
+            throw new IllegalArgumentException("Cannot scale " + regionWidth + "x" + regionHeight + " to " + dstWidth + "x" + dstHeight);
+        }
+        if (regionLeft < 0 || regionTop < 0 || regionLeft + regionWidth > srcWidth || regionTop + regionHeight > srcHeight
+                || ((regionLeft | regionTop) & 1) != 0) {
+            throw new IllegalArgumentException("Invalid region " + regionLeft + "," + regionTop + " " + regionWidth + "x" + regionHeight);
+        }
+
+        mLumaScaler.scale(src, regionTop * srcWidth + regionLeft, srcWidth, regionWidth, regionHeight,
+                dst, 0, dstWidth, dstHeight);
+        mChromaScaler.scale(src, srcWidth * srcHeight + regionTop / 2 * srcWidth + regionLeft, srcWidth,
+                regionWidth / 2, regionHeight / 2, dst, dstWidth * dstHeight, dstWidth / 2, dstHeight / 2);
+    }
+
+    private static class PlaneScaler {
+        private final int mChannels;
+
+        private int mSrcWidth = -1;
+        private int mDstWidth = -1;
+        private int[] mSampleOffsets = new int[0];
+        private int[] mSampleCounts = new int[0];
+        private final int[] mRowOffsets = new int[MAX_SAMPLES_PER_AXIS];
+
+        PlaneScaler(int channels) {
+            mChannels = channels;
+        }
+
+        void scale(byte[] src, int srcOffset, int srcStride, int srcWidth, int srcHeight,
+                   byte[] dst, int dstOffset, int dstWidth, int dstHeight) {
+            if (dstWidth <= 0 || dstHeight <= 0) {
+                return;
+            }
+            prepare(srcWidth, dstWidth);
+
+            int channels = mChannels;
+            int[] sampleOffsets = mSampleOffsets;
+            int[] rowOffsets = mRowOffsets;
+            int dstIndex = dstOffset;
+
+            for (int dstRow = 0; dstRow < dstHeight; dstRow++) {
+                int rowCount = sampleSpan(dstRow, srcHeight, dstHeight, rowOffsets);
+                for (int i = 0; i < rowCount; i++) {
+                    rowOffsets[i] = srcOffset + rowOffsets[i] * srcStride;
+                }
+
+                for (int dstColumn = 0; dstColumn < dstWidth; dstColumn++) {
+                    int columnCount = mSampleCounts[dstColumn];
+                    int firstSample = dstColumn * MAX_SAMPLES_PER_AXIS;
+                    int count = rowCount * columnCount;
+                    for (int channel = 0; channel < channels; channel++) {
+                        int sum = 0;
+                        for (int i = 0; i < rowCount; i++) {
+                            int rowOffset = rowOffsets[i] + channel;
+                            for (int j = 0; j < columnCount; j++) {
+                                sum += src[rowOffset + sampleOffsets[firstSample + j]] & 0xFF;
+                            }
+                        }
+                        dst[dstIndex++] = (byte) ((sum + count / 2) / count);
+                    }
+                }
+            }
+        }
+
+        private void prepare(int srcWidth, int dstWidth) {
+            if (srcWidth == mSrcWidth && dstWidth == mDstWidth) {
+                return;
+            }
+
+            mSampleOffsets = new int[dstWidth * MAX_SAMPLES_PER_AXIS];
+            mSampleCounts = new int[dstWidth];
+            int[] columns = new int[MAX_SAMPLES_PER_AXIS];
+            for (int dstColumn = 0; dstColumn < dstWidth; dstColumn++) {
+                int count = sampleSpan(dstColumn, srcWidth, dstWidth, columns);
+                mSampleCounts[dstColumn] = count;
+                for (int i = 0; i < count; i++) {
+                    mSampleOffsets[dstColumn * MAX_SAMPLES_PER_AXIS + i] = columns[i] * mChannels;
+                }
+            }
+            mSrcWidth = srcWidth;
+            mDstWidth = dstWidth;
+        }
+
+        // Source indices sampled for one destination index; the area is every source index mapping onto it
+        private static int sampleSpan(int dstIndex, int srcSize, int dstSize, int[] samples) {
+            int start = (int) (((long) dstIndex * srcSize + dstSize - 1) / dstSize);
+            int end = (int) (((long) (dstIndex + 1) * srcSize + dstSize - 1) / dstSize);
+            int span = end - start;
+            int count = Math.min(span, MAX_SAMPLES_PER_AXIS);
+            for (int i = 0; i < count; i++) {
+                samples[i] = start + i * span / count;
+            }
+            return count;
+        }
+    }
+}
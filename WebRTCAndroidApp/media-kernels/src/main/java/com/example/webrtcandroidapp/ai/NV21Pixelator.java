@@ -0,0 +1,112 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.Arrays;
+
+/**
+ * Block pixelation of a rectangular area of an NV21 frame, done in place on the Y and interleaved VU planes.
+ * Each block takes the value of its top-left (anchor) sample; blocks whose anchor is outside the frame get the
+ * default grey value. Not thread-safe - scratch state is reused between calls.
+ */
+public class NV21Pixelator {
+
+    private static final byte DEFAULT_PIXEL_Y_VALUE = (byte) 90;
+    private static final byte DEFAULT_PIXEL_UV_VALUE = (byte) 128;
+
+    private byte[] mBlockValues = new byte[0];
+
+    public void pixelate(byte[] nv21, int frameWidth, int frameHeight, int uvOffset,
+                         int top, int left, int width, int height, int blockSize) {
+        if (nv21 == null || frameWidth <= 0 || frameHeight <= 0 || width <= 0 || height <= 0 || blockSize <= 1) {
+            // A block size of 1 leaves every sample as its own anchor, so there is nothing to change
+            return;
+        }
+
+        int blockColumns = (width + blockSize - 1) / blockSize;
+        if (mBlockValues.length < blockColumns * 2) {
+            mBlockValues = new byte[blockColumns * 2];
+        }
+
+        int yRows = Math.min(frameHeight, uvOffset / frameWidth);
+        pixelateY(nv21, frameWidth, yRows, top, left, width, height, blockSize);
+
+        int uvRows = Math.min(frameHeight / 2, (nv21.length - uvOffset) / frameWidth);
+        pixelateVU(nv21, frameWidth, uvRows, uvOffset, top / 2, left, width, height / 2, blockSize);
+    }
+
+    private void pixelateY(byte[] nv21, int frameWidth, int rows, int top, int left, int width, int height, int blockSize) {
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, rows);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, frameWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+
+        int firstBlock = (columnStart - left) / blockSize;
+        int lastBlock = (columnEnd - 1 - left) / blockSize;
+        byte[] values = mBlockValues;
+
+        for (int blockTop = top + (rowStart - top) / blockSize * blockSize; blockTop < rowEnd; blockTop += blockSize) {
+            boolean anchorRowVisible = blockTop >= 0;
+            int anchorRowOffset = blockTop * frameWidth;
+            for (int block = firstBlock; block <= lastBlock; block++) {
+                int anchorColumn = left + block * blockSize;
+                values[block] = anchorRowVisible && anchorColumn >= 0
+                        ? nv21[anchorRowOffset + anchorColumn] : DEFAULT_PIXEL_Y_VALUE;
+            }
+
+            int bandEnd = Math.min(blockTop + blockSize, rowEnd);
+            for (int row = Math.max(blockTop, rowStart); row < bandEnd; row++) {
+                int rowOffset = row * frameWidth;
+                for (int block = firstBlock; block <= lastBlock; block++) {
+                    int blockLeft = left + block * blockSize;
+                    int segmentStart = Math.max(blockLeft, columnStart);
+                    int segmentEnd = Math.min(blockLeft + blockSize, columnEnd);
+                    Arrays.fill(nv21, rowOffset + segmentStart, rowOffset + segmentEnd, values[block]);
+                }
+            }
+        }
+    }
+
+    private void pixelateVU(byte[] nv21, int frameWidth, int rows, int uvOffset, int top, int left, int width, int height, int blockSize) {
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, rows);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, frameWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+
+        int firstBlock = (columnStart - left) / blockSize;
+        int lastBlock = (columnEnd - 1 - left) / blockSize;
+        byte[] values = mBlockValues;
+
+        for (int blockTop = top + (rowStart - top) / blockSize * blockSize; blockTop < rowEnd; blockTop += blockSize) {
+            boolean anchorRowVisible = blockTop >= 0;
+            int anchorRowOffset = uvOffset + blockTop * frameWidth;
+            for (int block = firstBlock; block <= lastBlock; block++) {
+                int blockStart = block * blockSize;
+                // V and U are sampled separately; only blocks starting on an even byte of the area have anchors
+                for (int parity = 0; parity < 2; parity++) {
+                    int anchorColumn = left + blockStart + parity;
+                    boolean hasAnchor = anchorRowVisible && blockStart % 2 == 0 && blockStart + parity < width
+                            && anchorColumn >= 0 && anchorColumn < frameWidth;
+                    values[block * 2 + parity] = hasAnchor ? nv21[anchorRowOffset + anchorColumn] : DEFAULT_PIXEL_UV_VALUE;
+                }
+            }
+
+            int bandEnd = Math.min(blockTop + blockSize, rowEnd);
+            for (int row = Math.max(blockTop, rowStart); row < bandEnd; row++) {
+                int rowOffset = uvOffset + row * frameWidth;
+                for (int block = firstBlock; block <= lastBlock; block++) {
+                    int blockLeft = left + block * blockSize;
+                    int segmentStart = Math.max(blockLeft, columnStart);
+                    int segmentEnd = Math.min(blockLeft + blockSize, columnEnd);
+                    for (int column = segmentStart; column < segmentEnd; column++) {
+                        nv21[rowOffset + column] = values[block * 2 + ((column - left) & 1)];
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.webrtcandroidapp.ai;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fixed-point BT.601 (limited range) NV21 to ARGB_8888 conversion, the same formula ScriptIntrinsicYuvToRGB uses.
+ * Expects an even frame width.
+ * Rows are split into bands on a small dedicated fork-join pool; bands always start on an even row so that each
+ * chroma row is read by a single band.
+ */
+public class NV21ToArgbConverter {
+
+    private static final int MIN_ROWS_PER_BAND = 32;
+
+    private final ForkJoinPool mPool;
+    private final int mParallelism;
+
+    public NV21ToArgbConverter(int parallelism) {
+        mParallelism = Math.max(1, parallelism);
+        mPool = mParallelism > 1 ? new ForkJoinPool(mParallelism) : null;
+    }
+
+    public void convert(byte[] nv21, int width, int height, int[] argb) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (argb.length < width * height || nv21.length < width * height * 3 / 2) {
+            throw new IllegalArgumentException("Buffers too small for " + width + "x" + height);
+        }
+
+        int bandRows = Math.max(MIN_ROWS_PER_BAND, (height / mParallelism + 1) & ~1);
+        if (mPool == null || bandRows >= height) {
+            convertRows(nv21, width, height, argb, 0, height);
+        } else {
+            mPool.invoke(new ConvertTask(nv21, width, height, argb, 0, height, bandRows));
+        }
+    }
+
+    public void close() {
+        if (mPool != null) {
+            mPool.shutdown();
+        }
+    }
+
+    static void convertRows(byte[] nv21, int width, int height, int[] argb, int rowStart, int rowEnd) {
+        int uvOffset = width * height;
+        for (int row = rowStart; row < rowEnd; row++) {
+            int yIndex = row * width;
+            int uvIndex = uvOffset + (row >> 1) * width;
+            for (int column = 0; column < width; column += 2) {
+                int v = (nv21[uvIndex] & 0xFF) - 128;
+                int u = (nv21[uvIndex + 1] & 0xFF) - 128;
+                uvIndex += 2;
+
+                int red = 409 * v + 128;
+                int green = -100 * u - 208 * v + 128;
+                int blue = 516 * u + 128;
+
+                int luma = 298 * ((nv21[yIndex] & 0xFF) - 16);
+                argb[yIndex++] = toArgb(luma + red, luma + green, luma + blue);
+                if (column + 1 < width) {
+                    luma = 298 * ((nv21[yIndex] & 0xFF) - 16);
+                    argb[yIndex++] = toArgb(luma + red, luma + green, luma + blue);
+                }
+            }
+        }
+    }
+
+    private static int toArgb(int red, int green, int blue) {
+        return 0xFF000000 | (clamp(red >> 8) << 16) | (clamp(green >> 8) << 8) | clamp(blue >> 8);
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private static class ConvertTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[] mNV21;
+        private final int mWidth;
+        private final int mHeight;
+        private final int[] mArgb;
+        private final int mRowStart;
+        private final int mRowEnd;
+        private final int mBandRows;
+
+        ConvertTask(byte[] nv21, int width, int height, int[] argb, int rowStart, int rowEnd, int bandRows) {
+            mNV21 = nv21;
+            mWidth = width;
+            mHeight = height;
+            mArgb = argb;
+            mRowStart = rowStart;
+            mRowEnd = rowEnd;
+            mBandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            if (mRowEnd - mRowStart <= mBandRows) {
+                convertRows(mNV21, mWidth, mHeight, mArgb, mRowStart, mRowEnd);
+                return;
+            }
+
+            int middle = (mRowStart + (mRowEnd - mRowStart) / 2) & ~1;
+            invokeAll(new ConvertTask(mNV21, mWidth, mHeight, mArgb, mRowStart, middle, mBandRows),
+                    new ConvertTask(mNV21, mWidth, mHeight, mArgb, middle, mRowEnd, mBandRows));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Box blur of a rectangular area of a strided YUV 4:2:0 frame, done in place on each plane. The blur is separable and
+ * uses running sums in both directions, so its cost per pixel does not depend on the radius. Samples outside the area
+ * are not read - the area's edge samples are repeated instead - so nothing from around a face leaks into it and the
+ * result only depends on the area itself. Chroma is blurred with half the radius. Contiguous rows are read and written
+ * in bulk, which moves the position of the plane buffer; it is restored before returning.
+ * Not thread-safe - scratch state is reused between calls.
+ */
+public class YuvPlaneBlur {
+
+    // Larger windows hardly differ from a flat area; the limit keeps the reciprocal division exact
+    private static final int MAX_RADIUS = 255;
+    private static final int RECIPROCAL_BITS = 48;
+
+    private byte[] mRow = new byte[0];
+    private int[] mRowSums = new int[0];
+    private int[] mColumnSums = new int[0];
+
+    public void blur(YuvPlanes planes, int top, int left, int width, int height, int radius) {
+        if (planes.getWidth() <= 0 || planes.getHeight() <= 0 || width <= 0 || height <= 0 || radius < 1) {
+            return;
+        }
+
+        blurPlane(planes.getY(), planes.getYRowStride(), 1, planes.getWidth(), planes.getHeight(),
+                top, left, width, height, radius);
+
+        int chromaTop = Math.floorDiv(top, 2);
+        int chromaLeft = Math.floorDiv(left, 2);
+        int chromaWidth = (left + width + 1) / 2 - chromaLeft;
+        int chromaHeight = (top + height + 1) / 2 - chromaTop;
+        int chromaRadius = Math.max(1, radius / 2);
+        blurPlane(planes.getU(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, chromaRadius);
+        blurPlane(planes.getV(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, chromaRadius);
+    }
+
+    private void blurPlane(ByteBuffer plane, int rowStride, int pixelStride, int planeWidth, int planeHeight,
+                           int top, int left, int width, int height, int radius) {
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, planeHeight);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, planeWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+        radius = Math.min(radius, MAX_RADIUS);
+
+        int areaWidth = columnEnd - columnStart;
+        int areaHeight = rowEnd - rowStart;
+        if (mRow.length < areaWidth) {
+            mRow = new byte[areaWidth];
+            mColumnSums = new int[areaWidth];
+        }
+        if (mRowSums.length < areaWidth * areaHeight) {
+            mRowSums = new int[areaWidth * areaHeight];
+        }
+        byte[] samples = mRow;
+        int[] rowSums = mRowSums;
+        int[] columnSums = mColumnSums;
+        int position = plane.position();
+
+        // Horizontal window sums of every row
+        for (int y = 0; y < areaHeight; y++) {
+            readRow(plane, (rowStart + y) * rowStride + columnStart * pixelStride, pixelStride, samples, areaWidth);
+            int last = areaWidth - 1;
+            int sum = (radius + 1) * (samples[0] & 0xFF);
+            for (int i = 1; i <= radius; i++) {
+                sum += samples[Math.min(i, last)] & 0xFF;
+            }
+            int offset = y * areaWidth;
+            for (int x = 0; x < areaWidth; x++) {
+                rowSums[offset + x] = sum;
+                sum += (samples[Math.min(x + radius + 1, last)] & 0xFF) - (samples[Math.max(x - radius, 0)] & 0xFF);
+            }
+        }
+
+        // Vertical window sums of the row sums, one output row at a time
+        int last = areaHeight - 1;
+        for (int x = 0; x < areaWidth; x++) {
+            columnSums[x] = (radius + 1) * rowSums[x];
+        }
+        for (int i = 1; i <= radius; i++) {
+            int offset = Math.min(i, last) * areaWidth;
+            for (int x = 0; x < areaWidth; x++) {
+                columnSums[x] += rowSums[offset + x];
+            }
+        }
+        int windowArea = (2 * radius + 1) * (2 * radius + 1);
+        // Rounded-up reciprocal: multiplying and shifting gives the exact quotient for sums of this window size
+        long reciprocal = ((1L << RECIPROCAL_BITS) + windowArea - 1) / windowArea;
+        int rounding = windowArea / 2;
+        for (int y = 0; y < areaHeight; y++) {
+            int addOffset = Math.min(y + radius + 1, last) * areaWidth;
+            int removeOffset = Math.max(y - radius, 0) * areaWidth;
+            for (int x = 0; x < areaWidth; x++) {
+                samples[x] = (byte) (((columnSums[x] + rounding) * reciprocal) >>> RECIPROCAL_BITS);
+                columnSums[x] += rowSums[addOffset + x] - rowSums[removeOffset + x];
+            }
+            writeRow(plane, (rowStart + y) * rowStride + columnStart * pixelStride, pixelStride, samples, areaWidth);
+        }
+        plane.position(position);
+    }
+
+    private static void readRow(ByteBuffer plane, int offset, int pixelStride, byte[] samples, int count) {
+        if (pixelStride == 1) {
+            plane.position(offset);
+            plane.get(samples, 0, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            samples[i] = plane.get(offset + i * pixelStride);
+        }
+    }
+
+    private static void writeRow(ByteBuffer plane, int offset, int pixelStride, byte[] samples, int count) {
+        if (pixelStride == 1) {
+            plane.position(offset);
+            plane.put(samples, 0, count);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            plane.put(offset + i * pixelStride, samples[i]);
+        }
+    }
+}
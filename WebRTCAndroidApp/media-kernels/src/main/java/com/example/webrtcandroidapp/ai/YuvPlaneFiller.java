@@ -0,0 +1,81 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Fills a rectangular area of a strided YUV 4:2:0 frame with solid grey, in place. Contiguous rows are filled with
+ * Arrays.fill on heap buffers and with bulk puts of a pre-filled row otherwise; the position of the plane buffer is
+ * restored before returning. Not thread-safe - scratch state is reused between calls.
+ */
+public class YuvPlaneFiller {
+
+    private static final byte FILL_Y_VALUE = (byte) 90;
+    private static final byte FILL_UV_VALUE = (byte) 128;
+
+    private byte[] mRowValues = new byte[0];
+
+    public void fill(YuvPlanes planes, int top, int left, int width, int height) {
+        if (planes.getWidth() <= 0 || planes.getHeight() <= 0 || width <= 0 || height <= 0) {
+            return;
+        }
+
+        fillPlane(planes.getY(), planes.getYRowStride(), 1, planes.getWidth(), planes.getHeight(),
+                top, left, width, height, FILL_Y_VALUE);
+
+        int chromaTop = Math.floorDiv(top, 2);
+        int chromaLeft = Math.floorDiv(left, 2);
+        int chromaWidth = (left + width + 1) / 2 - chromaLeft;
+        int chromaHeight = (top + height + 1) / 2 - chromaTop;
+        fillPlane(planes.getU(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, FILL_UV_VALUE);
+        fillPlane(planes.getV(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, FILL_UV_VALUE);
+    }
+
+    private void fillPlane(ByteBuffer plane, int rowStride, int pixelStride, int planeWidth, int planeHeight,
+                           int top, int left, int width, int height, byte value) {
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, planeHeight);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, planeWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+
+        int segmentLength = columnEnd - columnStart;
+        if (pixelStride == 1 && plane.hasArray() && !plane.isReadOnly()) {
+            byte[] array = plane.array();
+            int offset = plane.arrayOffset();
+            for (int row = rowStart; row < rowEnd; row++) {
+                int segmentStart = offset + row * rowStride + columnStart;
+                Arrays.fill(array, segmentStart, segmentStart + segmentLength, value);
+            }
+            return;
+        }
+
+        if (pixelStride == 1) {
+            if (mRowValues.length < segmentLength) {
+                mRowValues = new byte[segmentLength];
+            }
+            // One row per call, the planes need different values
+            Arrays.fill(mRowValues, 0, segmentLength, value);
+            int position = plane.position();
+            for (int row = rowStart; row < rowEnd; row++) {
+                plane.position(row * rowStride + columnStart);
+                plane.put(mRowValues, 0, segmentLength);
+            }
+            plane.position(position);
+            return;
+        }
+
+        for (int row = rowStart; row < rowEnd; row++) {
+            int rowOffset = row * rowStride;
+            for (int column = columnStart; column < columnEnd; column++) {
+                plane.put(rowOffset + column * pixelStride, value);
+            }
+        }
+    }
+}
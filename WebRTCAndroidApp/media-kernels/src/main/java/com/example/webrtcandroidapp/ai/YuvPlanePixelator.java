@@ -0,0 +1,102 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Block pixelation of a rectangular area of a strided YUV 4:2:0 frame, done in place on each plane.
+ * As with NV21Pixelator, each block takes the value of its top-left (anchor) sample and blocks whose anchor is outside
+ * the frame get the default grey value. Chroma blocks cover the same area as the luma blocks.
+ * Contiguous rows are written in bulk, which moves the position of the plane buffer; it is restored before returning.
+ * Not thread-safe - scratch state is reused between calls.
+ */
+public class YuvPlanePixelator {
+
+    private static final byte DEFAULT_PIXEL_Y_VALUE = (byte) 90;
+    private static final byte DEFAULT_PIXEL_UV_VALUE = (byte) 128;
+
+    private byte[] mBlockValues = new byte[0];
+    private byte[] mRowValues = new byte[0];
+
+    public void pixelate(YuvPlanes planes, int top, int left, int width, int height, int blockSize) {
+        if (planes.getWidth() <= 0 || planes.getHeight() <= 0 || width <= 0 || height <= 0 || blockSize <= 1) {
+            return;
+        }
+
+        pixelatePlane(planes.getY(), planes.getYRowStride(), 1, planes.getWidth(), planes.getHeight(),
+                top, left, width, height, blockSize, DEFAULT_PIXEL_Y_VALUE);
+
+        int chromaTop = Math.floorDiv(top, 2);
+        int chromaLeft = Math.floorDiv(left, 2);
+        int chromaWidth = (left + width + 1) / 2 - chromaLeft;
+        int chromaHeight = (top + height + 1) / 2 - chromaTop;
+        int chromaBlockSize = Math.max(1, blockSize / 2);
+        pixelatePlane(planes.getU(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, chromaBlockSize, DEFAULT_PIXEL_UV_VALUE);
+        pixelatePlane(planes.getV(), planes.getUvRowStride(), planes.getUvPixelStride(), planes.getChromaWidth(),
+                planes.getChromaHeight(), chromaTop, chromaLeft, chromaWidth, chromaHeight, chromaBlockSize, DEFAULT_PIXEL_UV_VALUE);
+    }
+
+    private void pixelatePlane(ByteBuffer plane, int rowStride, int pixelStride, int planeWidth, int planeHeight,
+                               int top, int left, int width, int height, int blockSize, byte defaultValue) {
+        if (blockSize <= 1) {
+            return;
+        }
+
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, planeHeight);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, planeWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+
+        int firstBlock = (columnStart - left) / blockSize;
+        int lastBlock = (columnEnd - 1 - left) / blockSize;
+        if (mBlockValues.length <= lastBlock) {
+            mBlockValues = new byte[lastBlock + 1];
+        }
+        if (pixelStride == 1 && mRowValues.length < columnEnd - columnStart) {
+            mRowValues = new byte[columnEnd - columnStart];
+        }
+        byte[] values = mBlockValues;
+        int position = plane.position();
+
+        for (int blockTop = top + (rowStart - top) / blockSize * blockSize; blockTop < rowEnd; blockTop += blockSize) {
+            boolean anchorRowVisible = blockTop >= 0;
+            int anchorRowOffset = blockTop * rowStride;
+            for (int block = firstBlock; block <= lastBlock; block++) {
+                int anchorColumn = left + block * blockSize;
+                values[block] = anchorRowVisible && anchorColumn >= 0
+                        ? plane.get(anchorRowOffset + anchorColumn * pixelStride) : defaultValue;
+            }
+
+            int bandEnd = Math.min(blockTop + blockSize, rowEnd);
+            if (pixelStride == 1) {
+                // Contiguous samples - every row of the band is the same run of block values, written in bulk
+                for (int column = columnStart; column < columnEnd; column++) {
+                    mRowValues[column - columnStart] = values[(column - left) / blockSize];
+                }
+                for (int row = Math.max(blockTop, rowStart); row < bandEnd; row++) {
+                    plane.position(row * rowStride + columnStart);
+                    plane.put(mRowValues, 0, columnEnd - columnStart);
+                }
+                continue;
+            }
+
+            for (int row = Math.max(blockTop, rowStart); row < bandEnd; row++) {
+                int rowOffset = row * rowStride;
+                for (int block = firstBlock; block <= lastBlock; block++) {
+                    int blockLeft = left + block * blockSize;
+                    int segmentEnd = Math.min(blockLeft + blockSize, columnEnd);
+                    byte value = values[block];
+                    for (int column = Math.max(blockLeft, columnStart); column < segmentEnd; column++) {
+                        plane.put(rowOffset + column * pixelStride, value);
+                    }
+                }
+            }
+        }
+        plane.position(position);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.webrtcandroidapp.capturers;
+
+/**
+ * Picks capture formats from what a camera reports, as plain arrays so it stays free of Camera2 types.
+ * Sizes are chosen like WebRTC does, by the smallest summed width and height difference. FPS ranges must reach the
+ * requested frame rate; among those, a minimum around half of it is preferred, which lets auto-exposure lower the
+ * frame rate in low light (saving power) without dropping to a jerky rate, over a fixed range.
+ */
+public class CameraFormatSelector {
+
+    private static final int MAX_FPS_MISMATCH_WEIGHT = 10;
+    private static final int FPS_RANGE_MIN_DIVISOR = 2;
+
+    private CameraFormatSelector() {
+    }
+
+    // Index of the size closest to the target; -1 when there are none
+    public static int chooseSize(int[] widths, int[] heights, int targetWidth, int targetHeight) {
+        int best = -1;
+        int bestDifference = Integer.MAX_VALUE;
+        for (int i = 0; i < widths.length; i++) {
+            int difference = Math.abs(widths[i] - targetWidth) + Math.abs(heights[i] - targetHeight);
+            if (difference < bestDifference) {
+                best = i;
+                bestDifference = difference;
+            }
+        }
+        return best;
+    }
+
+    // Index of the range fitting the frame rate best; -1 when there are none
+    public static int chooseFpsRange(int[] minimums, int[] maximums, int frameRate) {
+        int preferredMinimum = frameRate / FPS_RANGE_MIN_DIVISOR;
+        int best = -1;
+        long bestPenalty = Long.MAX_VALUE;
+        for (int i = 0; i < minimums.length; i++) {
+            long penalty = (long) Math.abs(maximums[i] - frameRate) * MAX_FPS_MISMATCH_WEIGHT
+                    + Math.abs(minimums[i] - preferredMinimum);
+            if (penalty < bestPenalty) {
+                best = i;
+                bestPenalty = penalty;
+            }
+        }
+        return best;
+    }
+}
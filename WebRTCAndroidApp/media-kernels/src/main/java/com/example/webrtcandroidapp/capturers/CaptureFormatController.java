@@ -0,0 +1,147 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.util.List;
+
+/**
+ * Moves the capture format along a ladder of resolutions and frame rates, ordered from the best to the cheapest, by
+ * what the pipeline and the network manage. It is updated once per window with the window's counts: it steps down
+ * right away when the frame processing keeps the processing thread busy for most of the window, when too many frames
+ * are dropped, or when the available outgoing bitrate is too low for the format. It steps back up only after a number
+ * of windows in a row with clear headroom, and not within the hold time after the last change. Headroom has to be
+ * measured: a window without captured frames is no data, and without a bitrate estimate (e.g. before a peer connects)
+ * the format does not step up. The first window after a change still shows the old format and is skipped. A minimum
+ * level keeps it off the most expensive formats (e.g. to save power) without touching the rest of its state.
+ */
+public class CaptureFormatController {
+
+    public static class Format {
+        private final int mWidth;
+        private final int mHeight;
+        private final int mFrameRate;
+
+        public Format(int width, int height, int frameRate) {
+            mWidth = width;
+            mHeight = height;
+            mFrameRate = frameRate;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        public int getFrameRate() {
+            return mFrameRate;
+        }
+
+        public long getPixelRate() {
+            return (long) mWidth * mHeight * mFrameRate;
+        }
+
+        @Override
+        public String toString() {
+            return mWidth + "x" + mHeight + "@" + mFrameRate;
+        }
+    }
+
+    // Share of the maximum load, drop rate and the minimum bitrate that counts as headroom for stepping up
+    private static final float UP_HEADROOM = 0.6F;
+
+    private final Format[] mLadder;
+    private final float mMaxLoad;
+    private final float mMaxDropRate;
+    private final float mMinBitsPerPixel;
+    private final long mHoldMs;
+    private final int mUpWindows;
+
+    private volatile int mLevel;
+    private int mMinLevel;
+    private volatile long mChangeCount;
+    private long mLastChangeTime = Long.MIN_VALUE;
+    private boolean mSkipWindow;
+    private int mGoodWindows;
+
+    // maxLoad is the share of the window the processing thread may be busy, minBitsPerPixel relates the bitrate
+    // to the pixel rate of a format
+    public CaptureFormatController(List<Format> ladder, int initialLevel, float maxLoad, float maxDropRate,
+                                   float minBitsPerPixel, long holdMs, int upWindows) {
+        if (ladder.isEmpty() || initialLevel < 0 || initialLevel >= ladder.size()) {
+            throw new IllegalArgumentException("Invalid initial level " + initialLevel + " of " + ladder.size());
+        }
+        mLadder = ladder.toArray(new Format[0]);
+        mLevel = initialLevel;
+        mMaxLoad = maxLoad;
+        mMaxDropRate = maxDropRate;
+        mMinBitsPerPixel = minBitsPerPixel;
+        mHoldMs = holdMs;
+        mUpWindows = upWindows;
+    }
+
+    // Counts are for the window that ends now; a bitrate of 0 means unknown. Returns true when the format changes
+    public synchronized boolean update(long nowMs, long windowMs, long capturedFrames, long droppedFrames, long processingNs,
+                                       long availableBitrate) {
+        if (mSkipWindow) {
+            mSkipWindow = false;
+            return false;
+        }
+        if (windowMs <= 0 || capturedFrames <= 0) {
+            mGoodWindows = 0;
+            return false;
+        }
+
+        float load = processingNs / (windowMs * 1e6F);
+        float dropRate = capturedFrames > 0 ? (float) droppedFrames / capturedFrames : 0F;
+        if (mLevel < mLadder.length - 1
+                && (load > mMaxLoad || dropRate > mMaxDropRate || !isBitrateEnough(mLadder[mLevel], availableBitrate, 1F))) {
+            return setLevel(mLevel + 1, nowMs);
+        }
+
+        boolean headroom = load < mMaxLoad * UP_HEADROOM && dropRate <= mMaxDropRate * UP_HEADROOM
+                && mLevel > mMinLevel && availableBitrate > 0
+                && isBitrateEnough(mLadder[mLevel - 1], availableBitrate, 1F / UP_HEADROOM);
+        mGoodWindows = headroom ? mGoodWindows + 1 : 0;
+        if (mGoodWindows >= mUpWindows && (mLastChangeTime == Long.MIN_VALUE || nowMs - mLastChangeTime >= mHoldMs)) {
+            // The pixel rate may grow a lot; expect the load to grow with it
+            Format current = mLadder[mLevel];
+            Format next = mLadder[mLevel - 1];
+            if (load * next.getPixelRate() / current.getPixelRate() < mMaxLoad) {
+                return setLevel(mLevel - 1, nowMs);
+            }
+        }
+        return false;
+    }
+
+    // Returns true when the current format is above the new minimum and changes to it
+    public synchronized boolean setMinLevel(int minLevel, long nowMs) {
+        mMinLevel = Math.max(0, Math.min(mLadder.length - 1, minLevel));
+        return mLevel < mMinLevel && setLevel(mMinLevel, nowMs);
+    }
+
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public Format getFormat() {
+        return mLadder[mLevel];
+    }
+
+    public long getChangeCount() {
+        return mChangeCount;
+    }
+
+    private boolean isBitrateEnough(Format format, long availableBitrate, float headroom) {
+        return availableBitrate <= 0 || availableBitrate >= format.getPixelRate() * mMinBitsPerPixel * headroom;
+    }
+
+    private boolean setLevel(int level, long nowMs) {
+        mLevel = level;
+        mLastChangeTime = nowMs;
+        mChangeCount++;
+        mSkipWindow = true;
+        mGoodWindows = 0;
+        return true;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closes a frame source (e.g. an ImageReader) once it is retired and every frame taken from it has been released,
+ * so that a source replaced mid-call neither outlives its frames nor invalidates the ones still in use. The close
+ * action runs exactly once, on the thread that retires the source or releases its last frame.
+ */
+public class DeferredCloser {
+
+    private final Runnable mCloseAction;
+    private final AtomicInteger mOpenCount = new AtomicInteger();
+    private final AtomicBoolean mClosed = new AtomicBoolean();
+
+    private volatile boolean mRetired;
+
+    public DeferredCloser(Runnable closeAction) {
+        mCloseAction = closeAction;
+    }
+
+    public void onAcquired() {
+        mOpenCount.incrementAndGet();
+    }
+
+    public void onReleased() {
+        if (mOpenCount.decrementAndGet() <= 0 && mRetired) {
+            close();
+        }
+    }
+
+    public void retire() {
+        mRetired = true;
+        if (mOpenCount.get() <= 0) {
+            close();
+        }
+    }
+
+    public int getOpenCount() {
+        return mOpenCount.get();
+    }
+
+    public boolean isClosed() {
+        return mClosed.get();
+    }
+
+    private void close() {
+        if (mClosed.compareAndSet(false, true)) {
+            mCloseAction.run();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processes frames in order on its own thread, with a small bounded queue in front of it. When the queue is full the
+ * drop policy decides whether the oldest queued frame or the incoming one is given up. A frame handed to the processor
+ * becomes its responsibility; every other submitted frame - dropped, or still queued on shutdown - is handed to the
+ * releaser exactly once. shutdown returns only once the processor is done with the frame it is on, so the caller can
+ * release whatever the processor uses afterwards.
+ */
+public class FrameProcessingStage<T> {
+
+    public enum DropPolicy {
+        DROP_OLDEST,
+        DROP_NEWEST
+    }
+
+    public interface FrameProcessor<T> {
+        void process(T frame);
+    }
+
+    public interface FrameReleaser<T> {
+        void release(T frame);
+    }
+
+    private final Object mLock = new Object();
+    private final ArrayDeque<T> mQueue;
+    private final int mCapacity;
+    private final DropPolicy mDropPolicy;
+    private final FrameProcessor<T> mProcessor;
+    private final FrameReleaser<T> mReleaser;
+    private final Thread mThread;
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mProcessedCount = new AtomicLong();
+
+    private boolean mShutdown;
+
+    public FrameProcessingStage(String threadName, int capacity, DropPolicy dropPolicy,
+                                FrameProcessor<T> processor, FrameReleaser<T> releaser) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+        mQueue = new ArrayDeque<>(capacity);
+        mCapacity = capacity;
+        mDropPolicy = dropPolicy;
+        mProcessor = processor;
+        mReleaser = releaser;
+        mThread = new Thread(this::run, threadName);
+        mThread.setDaemon(true);
+        mThread.start();
+    }
+
+    public void submit(T frame) {
+        T dropped = null;
+        synchronized (mLock) {
+            if (mShutdown) {
+                dropped = frame;
+            } else {
+                mSubmittedCount.incrementAndGet();
+                if (mQueue.size() == mCapacity) {
+                    mDroppedCount.incrementAndGet();
+                    if (mDropPolicy == DropPolicy.DROP_NEWEST) {
+                        dropped = frame;
+                    } else {
+                        dropped = mQueue.pollFirst();
+                        mQueue.addLast(frame);
+                    }
+                } else {
+                    mQueue.addLast(frame);
+                    mLock.notifyAll();
+                }
+            }
+        }
+
+        if (dropped != null) {
+            mReleaser.release(dropped);
+        }
+    }
+
+    public void shutdown() {
+        synchronized (mLock) {
+            if (mShutdown) {
+                return;
+            }
+            mShutdown = true;
+            mLock.notifyAll();
+        }
+
+        // The processor cannot wait for itself, e.g. when a frame leads to the shutdown
+        if (Thread.currentThread() != mThread) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    mThread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        releaseQueued();
+    }
+
+    public long getSubmittedCount() {
+        return mSubmittedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    public long getProcessedCount() {
+        return mProcessedCount.get();
+    }
+
+    public int getQueueSize() {
+        synchronized (mLock) {
+            return mQueue.size();
+        }
+    }
+
+    private void run() {
+        while (true) {
+            T frame;
+            synchronized (mLock) {
+                while (mQueue.isEmpty() && !mShutdown) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (mShutdown) {
+                    return;
+                }
+                frame = mQueue.pollFirst();
+            }
+
+            try {
+                mProcessor.process(frame);
+                mProcessedCount.incrementAndGet();
+            } catch (Exception e) {
+                // The processor reports its own failures; keep the stage alive for the next frame
+            }
+        }
+    }
+
+    private void releaseQueued() {
+        while (true) {
+            T frame;
+            synchronized (mLock) {
+                frame = mQueue.pollFirst();
+            }
+            if (frame == null) {
+                return;
+            }
+            mReleaser.release(frame);
+        }
+    }
+}
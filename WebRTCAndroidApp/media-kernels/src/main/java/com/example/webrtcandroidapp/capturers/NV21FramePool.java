@@ -0,0 +1,122 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded pool of NV21 frame arrays, keyed by frame length (one size class per capture resolution and layout).
+ * Each size class owns at most maxBuffersPerSize arrays; when all of them are in use the pool hands out a
+ * temporary array instead and counts it as exhausted. Safe to use from the capture and WebRTC threads.
+ */
+public class NV21FramePool {
+
+    private final Object mLock = new Object();
+    private final List<SizeClass> mSizeClasses = new ArrayList<>();
+    private final int mMaxBuffersPerSize;
+
+    private long mHitCount;
+    private long mMissCount;
+    private long mExhaustedCount;
+
+    public NV21FramePool(int maxBuffersPerSize) {
+        if (maxBuffersPerSize <= 0) {
+            throw new IllegalArgumentException("maxBuffersPerSize must be positive");
+        }
+        mMaxBuffersPerSize = maxBuffersPerSize;
+    }
+
+    public byte[] acquire(int length) {
+        synchronized (mLock) {
+            SizeClass sizeClass = getSizeClass(length);
+            byte[] buffer = sizeClass.free.pollFirst();
+            if (buffer != null) {
+                mHitCount++;
+                return buffer;
+            }
+            if (sizeClass.allocated < mMaxBuffersPerSize) {
+                sizeClass.allocated++;
+                mMissCount++;
+            } else {
+                mExhaustedCount++;
+            }
+        }
+        return new byte[length];
+    }
+
+    public void release(byte[] buffer) {
+        if (buffer == null) {
+            return;
+        }
+
+        synchronized (mLock) {
+            SizeClass sizeClass = findSizeClass(buffer.length);
+            // Arrays handed out on exhaustion are dropped once the size class is full again
+            if (sizeClass != null && sizeClass.free.size() < sizeClass.allocated) {
+                sizeClass.free.addFirst(buffer);
+            }
+        }
+    }
+
+    // Drops the size classes of other frame lengths, e.g. after a resolution change; their arrays still in use are
+    // dropped on release
+    public void trim(int length) {
+        synchronized (mLock) {
+            mSizeClasses.removeIf(sizeClass -> sizeClass.length != length);
+        }
+    }
+
+    public void clear() {
+        synchronized (mLock) {
+            mSizeClasses.clear();
+        }
+    }
+
+    public long getHitCount() {
+        synchronized (mLock) {
+            return mHitCount;
+        }
+    }
+
+    public long getMissCount() {
+        synchronized (mLock) {
+            return mMissCount;
+        }
+    }
+
+    public long getExhaustedCount() {
+        synchronized (mLock) {
+            return mExhaustedCount;
+        }
+    }
+
+    private SizeClass getSizeClass(int length) {
+        SizeClass sizeClass = findSizeClass(length);
+        if (sizeClass == null) {
+            sizeClass = new SizeClass(length, mMaxBuffersPerSize);
+            mSizeClasses.add(sizeClass);
+        }
+        return sizeClass;
+    }
+
+    private SizeClass findSizeClass(int length) {
+        for (int i = 0; i < mSizeClasses.size(); i++) {
+            SizeClass sizeClass = mSizeClasses.get(i);
+            if (sizeClass.length == length) {
+                return sizeClass;
+            }
+        }
+        return null;
+    }
+
+    private static class SizeClass {
+        final int length;
+        final ArrayDeque<byte[]> free;
+        int allocated;
+
+        SizeClass(int length, int capacity) {
+            this.length = length;
+            this.free = new ArrayDeque<>(capacity);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Assembles strided YUV 4:2:0 planes into a single NV21 array (Y rows, then interleaved V and U rows), honouring the
+ * row and pixel strides of the source so that padded rows do not corrupt the result.
+ */
+public final class NV21PlaneAssembler {
+
+    private NV21PlaneAssembler() {
+    }
+
+    public static int getFrameLength(int width, int height) {
+        return width * height + 2 * ((width + 1) / 2) * ((height + 1) / 2);
+    }
+
+    public static void assemble(YuvPlanes planes, byte[] nv21) {
+        int width = planes.getWidth();
+        int height = planes.getHeight();
+        if (nv21.length < getFrameLength(width, height)) {
+            throw new IllegalArgumentException("Frame array too small for " + width + "x" + height);
+        }
+
+        ByteBuffer y = planes.getY().duplicate();
+        int yRowStride = planes.getYRowStride();
+        for (int row = 0; row < height; row++) {
+            y.position(row * yRowStride);
+            y.get(nv21, row * width, width);
+        }
+
+        ByteBuffer u = planes.getU();
+        ByteBuffer v = planes.getV();
+        int uvRowStride = planes.getUvRowStride();
+        int uvPixelStride = planes.getUvPixelStride();
+        int chromaWidth = planes.getChromaWidth();
+        int chromaHeight = planes.getChromaHeight();
+        int index = width * height;
+        for (int row = 0; row < chromaHeight; row++) {
+            int offset = row * uvRowStride;
+            for (int column = 0; column < chromaWidth; column++) {
+                nv21[index++] = v.get(offset);
+                nv21[index++] = u.get(offset);
+                offset += uvPixelStride;
+            }
+        }
+    }
+}
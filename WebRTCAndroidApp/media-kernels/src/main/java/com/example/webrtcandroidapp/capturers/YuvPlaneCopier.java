@@ -0,0 +1,50 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Copies the samples of one set of strided YUV 4:2:0 planes into another, e.g. interleaved camera chroma into
+ * planar I420. Contiguous rows are copied in bulk, everything else sample by sample.
+ */
+public final class YuvPlaneCopier {
+
+    private YuvPlaneCopier() {
+    }
+
+    public static void copy(YuvPlanes src, YuvPlanes dst) {
+        if (src.getWidth() != dst.getWidth() || src.getHeight() != dst.getHeight()) {
+            throw new IllegalArgumentException("Cannot copy " + src.getWidth() + "x" + src.getHeight()
+                    + " planes to " + dst.getWidth() + "x" + dst.getHeight());
+        }
+
+        copyPlane(src.getY(), src.getYRowStride(), 1, dst.getY(), dst.getYRowStride(), 1, src.getWidth(), src.getHeight());
+        copyPlane(src.getU(), src.getUvRowStride(), src.getUvPixelStride(), dst.getU(), dst.getUvRowStride(),
+                dst.getUvPixelStride(), src.getChromaWidth(), src.getChromaHeight());
+        copyPlane(src.getV(), src.getUvRowStride(), src.getUvPixelStride(), dst.getV(), dst.getUvRowStride(),
+                dst.getUvPixelStride(), src.getChromaWidth(), src.getChromaHeight());
+    }
+
+    private static void copyPlane(ByteBuffer src, int srcRowStride, int srcPixelStride,
+                                  ByteBuffer dst, int dstRowStride, int dstPixelStride, int width, int height) {
+        if (srcPixelStride == 1 && dstPixelStride == 1) {
+            ByteBuffer source = src.duplicate();
+            ByteBuffer destination = dst.duplicate();
+            for (int row = 0; row < height; row++) {
+                source.limit(row * srcRowStride + width).position(row * srcRowStride);
+                destination.position(row * dstRowStride);
+                destination.put(source);
+            }
+            return;
+        }
+
+        for (int row = 0; row < height; row++) {
+            int srcIndex = row * srcRowStride;
+            int dstIndex = row * dstRowStride;
+            for (int column = 0; column < width; column++) {
+                dst.put(dstIndex, src.get(srcIndex));
+                srcIndex += srcPixelStride;
+                dstIndex += dstPixelStride;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.webrtcandroidapp.capturers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * View of the three planes of a YUV 4:2:0 frame with arbitrary row and pixel strides, as delivered by YUV_420_888
+ * images. The luma pixel stride is 1; both chroma planes share one row and pixel stride. Samples are addressed from
+ * index 0 of each buffer, regardless of its position. Mutable so that one instance can be reused for every frame.
+ */
+public class YuvPlanes {
+
+    // How the chroma planes lie in memory: planar, interleaved in one block starting with U (NV12) or with V (NV21),
+    // or interleaved in separate blocks
+    public enum ChromaLayout {
+        PLANAR,
+        NV12,
+        NV21,
+        SEPARATE
+    }
+
+    private int mWidth;
+    private int mHeight;
+    private ByteBuffer mY;
+    private int mYRowStride;
+    private ByteBuffer mU;
+    private ByteBuffer mV;
+    private int mUvRowStride;
+    private int mUvPixelStride;
+
+    public YuvPlanes set(int width, int height, ByteBuffer y, int yRowStride, ByteBuffer u, ByteBuffer v,
+                         int uvRowStride, int uvPixelStride) {
+        mWidth = width;
+        mHeight = height;
+        mY = y;
+        mYRowStride = yRowStride;
+        mU = u;
+        mV = v;
+        mUvRowStride = uvRowStride;
+        mUvPixelStride = uvPixelStride;
+        return this;
+    }
+
+    // An NV21 array seen as planes: V and U are the interleaved views with a pixel stride of 2
+    public static YuvPlanes wrapNV21(byte[] nv21, int width, int height) {
+        int ySize = width * height;
+        return new YuvPlanes().set(width, height,
+                ByteBuffer.wrap(nv21, 0, ySize).slice(), width,
+                ByteBuffer.wrap(nv21, ySize + 1, nv21.length - ySize - 1).slice(),
+                ByteBuffer.wrap(nv21, ySize, nv21.length - ySize).slice(),
+                width, 2);
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getChromaWidth() {
+        return (mWidth + 1) / 2;
+    }
+
+    public int getChromaHeight() {
+        return (mHeight + 1) / 2;
+    }
+
+    public ByteBuffer getY() {
+        return mY;
+    }
+
+    public int getYRowStride() {
+        return mYRowStride;
+    }
+
+    public ByteBuffer getU() {
+        return mU;
+    }
+
+    public ByteBuffer getV() {
+        return mV;
+    }
+
+    public int getUvRowStride() {
+        return mUvRowStride;
+    }
+
+    public int getUvPixelStride() {
+        return mUvPixelStride;
+    }
+
+    // Without touching the samples: planes over one array are told apart by their offsets into it. Direct buffers
+    // need their addresses, see getChromaLayout(int, long, long), and count as separate here
+    public ChromaLayout getChromaLayout() {
+        if (mUvPixelStride != 2 || !mU.hasArray() || !mV.hasArray() || mU.array() != mV.array()) {
+            return getChromaLayout(mUvPixelStride, -1, -1);
+        }
+        return getChromaLayout(mUvPixelStride, mU.arrayOffset(), mV.arrayOffset());
+    }
+
+    // For chroma planes starting at the given positions of one address space; a negative position is unknown
+    public static ChromaLayout getChromaLayout(int uvPixelStride, long uPosition, long vPosition) {
+        if (uvPixelStride == 1) {
+            return ChromaLayout.PLANAR;
+        }
+        if (uvPixelStride != 2 || uPosition < 0 || vPosition < 0) {
+            return ChromaLayout.SEPARATE;
+        }
+        if (vPosition == uPosition + 1) {
+            return ChromaLayout.NV12;
+        }
+        if (uPosition == vPosition + 1) {
+            return ChromaLayout.NV21;
+        }
+        return ChromaLayout.SEPARATE;
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.webrtcandroidapp.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * Latency histograms for the stages of the capture pipeline, plus the frame and drop counters of its components.
+ * Counters are not duplicated here - components keep their own and register a supplier for them, which is only read
+ * when a snapshot is taken. Recording is allocation-free and thread-safe; snapshots allocate and are meant for
+ * occasional export (logs, debug overlay).
+ */
+public class PipelineMetrics {
+
+    public enum Stage {
+        PLANE_WRAP("plane wrap"),
+        SNAPSHOT_COPY("snapshot copy"),
+        PIXELATION("pixelation"),
+        CONVERSION("conversion"),
+        INFERENCE("inference"),
+        RESULT_MERGE("result merge"),
+        DELIVERY("delivery"),
+        // One-off start-up durations: building and warming up the detector, from the first captured frame to the
+        // first one anonymized from detections instead of covered whole, from opening the camera to its first frame,
+        // from a camera switch request to the first frame of the other camera, and from starting a connection to the
+        // signaling server until it is established (once per connection, reconnections included)
+        DETECTOR_WARM_UP("detector warm-up"),
+        FIRST_ANONYMIZED_FRAME("first anonymized frame"),
+        CAMERA_START("camera start"),
+        CAMERA_SWITCH("camera switch"),
+        SIGNALING_CONNECT("signaling connect");
+
+        private final String mLabel;
+
+        Stage(String label) {
+            mLabel = label;
+        }
+
+        public String getLabel() {
+            return mLabel;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[STAGES.length];
+    private final List<String> mCounterNames = new ArrayList<>();
+    private final List<LongSupplier> mCounters = new ArrayList<>();
+
+    private long[] mLastCounterValues = new long[0];
+    private long mLastSnapshotTimeNs = System.nanoTime();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < mHistograms.length; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void record(Stage stage, long durationNs) {
+        mHistograms[stage.ordinal()].record(durationNs);
+    }
+
+    // Records the time passed since startNs, a System.nanoTime() value
+    public void recordSince(Stage stage, long startNs) {
+        mHistograms[stage.ordinal()].record(System.nanoTime() - startNs);
+    }
+
+    public synchronized void addCounter(String name, LongSupplier counter) {
+        mCounterNames.add(name);
+        mCounters.add(counter);
+    }
+
+    // Counter rates are per second, since the previous snapshot
+    public synchronized Snapshot snapshot() {
+        LatencyHistogram.Snapshot[] stages = new LatencyHistogram.Snapshot[STAGES.length];
+        for (int i = 0; i < STAGES.length; i++) {
+            stages[i] = mHistograms[i].snapshot();
+        }
+
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - mLastSnapshotTimeNs) / 1e9;
+        long[] values = new long[mCounters.size()];
+        double[] rates = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = mCounters.get(i).getAsLong();
+            long lastValue = i < mLastCounterValues.length ? mLastCounterValues[i] : 0;
+            rates[i] = elapsedSeconds > 0 ? (values[i] - lastValue) / elapsedSeconds : 0;
+        }
+        mLastCounterValues = values;
+        mLastSnapshotTimeNs = now;
+
+        return new Snapshot(stages, mCounterNames.toArray(new String[0]), values, rates);
+    }
+
+    public static class Snapshot {
+
+        private final LatencyHistogram.Snapshot[] mStages;
+        private final String[] mCounterNames;
+        private final long[] mCounterValues;
+        private final double[] mCounterRates;
+
+        private Snapshot(LatencyHistogram.Snapshot[] stages, String[] counterNames, long[] counterValues, double[] counterRates) {
+            mStages = stages;
+            mCounterNames = counterNames;
+            mCounterValues = counterValues;
+            mCounterRates = counterRates;
+        }
+
+        public LatencyHistogram.Snapshot getStage(Stage stage) {
+            return mStages[stage.ordinal()];
+        }
+
+        public int getCounterCount() {
+            return mCounterNames.length;
+        }
+
+        public String getCounterName(int index) {
+            return mCounterNames[index];
+        }
+
+        public long getCounterValue(int index) {
+            return mCounterValues[index];
+        }
+
+        public double getCounterRate(int index) {
+            return mCounterRates[index];
+        }
+
+        // One line per stage and counter, stable enough to compare devices and builds
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (Stage stage : STAGES) {
+                LatencyHistogram.Snapshot histogram = getStage(stage);
+                if (histogram.getCount() == 0) {
+                    continue;
+                }
+                builder.append(String.format(Locale.US, "%s: n=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms%n",
+                        stage.getLabel(), histogram.getCount(), toMs(histogram.getMeanNs()), toMs(histogram.getPercentileNs(50)),
+                        toMs(histogram.getPercentileNs(95)), toMs(histogram.getPercentileNs(99)), toMs(histogram.getMaxNs())));
+            }
+            for (int i = 0; i < mCounterNames.length; i++) {
+                builder.append(String.format(Locale.US, "%s: %d (%.1f/s)%n", mCounterNames[i], mCounterValues[i], mCounterRates[i]));
+            }
+            return builder.toString();
+        }
+
+        private static double toMs(long valueNs) {
+            return valueNs / 1e6;
+        }
+    }
+}
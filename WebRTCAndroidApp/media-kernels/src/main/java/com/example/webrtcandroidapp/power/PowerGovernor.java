@@ -0,0 +1,117 @@
+package com.example.webrtcandroidapp.power;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Steps the pipeline down through power levels as the device heats up or the battery runs low, and back up once the
+ * pressure is gone. Each level keeps the savings of the ones before it. The level follows the thermal status (the
+ * PowerManager THERMAL_STATUS_* values) and the battery level, whichever asks for more: it steps down right away, up to
+ * the level asked for, and steps back up one level at a time, only after the pressure has stayed below the current
+ * level for the hold time. The battery thresholds have a margin, so a battery hovering around one does not flip levels.
+ * update is meant for a single thread, the getters can be read from any thread.
+ */
+public class PowerGovernor {
+
+    public enum Level {
+        NORMAL,
+        REDUCED_DETECTION,
+        CHEAPER_ANONYMIZATION,
+        REDUCED_CAPTURE,
+        CAPPED_BITRATE
+    }
+
+    private static final Level[] LEVELS = Level.values();
+
+    private final int mLowBatteryPercent;
+    private final int mCriticalBatteryPercent;
+    private final int mBatteryMarginPercent;
+    private final long mHoldMs;
+    private final AtomicLong mStepDownCount = new AtomicLong();
+    private final AtomicLong mStepUpCount = new AtomicLong();
+    private final long[] mTimeAtLevelMs = new long[LEVELS.length];
+
+    private volatile Level mLevel = Level.NORMAL;
+    private Level mBatteryLevel = Level.NORMAL;
+    private long mLastUpdateTime = Long.MIN_VALUE;
+    private long mBelowSince = Long.MIN_VALUE;
+
+    // Below the low battery percentage, detection and anonymization get cheaper; below the critical one, capture too
+    public PowerGovernor(int lowBatteryPercent, int criticalBatteryPercent, int batteryMarginPercent, long holdMs) {
+        if (criticalBatteryPercent > lowBatteryPercent) {
+            throw new IllegalArgumentException("Invalid battery thresholds " + criticalBatteryPercent + " > " + lowBatteryPercent);
+        }
+        mLowBatteryPercent = lowBatteryPercent;
+        mCriticalBatteryPercent = criticalBatteryPercent;
+        mBatteryMarginPercent = batteryMarginPercent;
+        mHoldMs = holdMs;
+    }
+
+    // A battery percentage below 0 means unknown. Returns true when the level changes
+    public synchronized boolean update(long nowMs, int thermalStatus, int batteryPercent, boolean charging) {
+        if (mLastUpdateTime != Long.MIN_VALUE) {
+            mTimeAtLevelMs[mLevel.ordinal()] += Math.max(0, nowMs - mLastUpdateTime);
+        }
+        mLastUpdateTime = nowMs;
+
+        mBatteryLevel = getBatteryLevel(batteryPercent, charging);
+        // From none to critical, each thermal status asks for one more level
+        Level thermalLevel = LEVELS[Math.max(0, Math.min(LEVELS.length - 1, thermalStatus))];
+        Level target = thermalLevel.compareTo(mBatteryLevel) > 0 ? thermalLevel : mBatteryLevel;
+
+        if (target.compareTo(mLevel) > 0) {
+            mStepDownCount.incrementAndGet();
+            return setLevel(target);
+        }
+        if (target == mLevel) {
+            mBelowSince = Long.MIN_VALUE;
+            return false;
+        }
+        if (mBelowSince == Long.MIN_VALUE) {
+            mBelowSince = nowMs;
+        }
+        if (nowMs - mBelowSince < mHoldMs) {
+            return false;
+        }
+        mStepUpCount.incrementAndGet();
+        return setLevel(LEVELS[mLevel.ordinal() - 1]);
+    }
+
+    public Level getLevel() {
+        return mLevel;
+    }
+
+    public long getStepDownCount() {
+        return mStepDownCount.get();
+    }
+
+    public long getStepUpCount() {
+        return mStepUpCount.get();
+    }
+
+    // Up to the last update
+    public synchronized long getTimeAtLevelMs(Level level) {
+        return mTimeAtLevelMs[level.ordinal()];
+    }
+
+    private Level getBatteryLevel(int batteryPercent, boolean charging) {
+        if (charging || batteryPercent < 0) {
+            return Level.NORMAL;
+        }
+        // Leaving a battery level takes the margin on top of its threshold
+        int criticalMargin = mBatteryLevel.compareTo(Level.REDUCED_CAPTURE) >= 0 ? mBatteryMarginPercent : 0;
+        int lowMargin = mBatteryLevel.compareTo(Level.CHEAPER_ANONYMIZATION) >= 0 ? mBatteryMarginPercent : 0;
+        if (batteryPercent <= mCriticalBatteryPercent + criticalMargin) {
+            return Level.REDUCED_CAPTURE;
+        }
+        if (batteryPercent <= mLowBatteryPercent + lowMargin) {
+            return Level.CHEAPER_ANONYMIZATION;
+        }
+        return Level.NORMAL;
+    }
+
+    private boolean setLevel(Level level) {
+        mLevel = level;
+        mBelowSince = Long.MIN_VALUE;
+        return true;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.webrtcandroidapp.services;
+
+import java.util.Random;
+
+/**
+ * Delays between reconnection attempts: doubling from the initial delay up to the maximum, each one shortened by a
+ * random share of up to the jitter, so that clients dropped together (e.g. by a server restart) do not come back
+ * together. Reset once connected. Not thread-safe.
+ */
+public class ReconnectBackoff {
+
+    private final long mInitialDelayMs;
+    private final long mMaxDelayMs;
+    private final float mJitter;
+    private final Random mRandom;
+
+    private long mDelayMs;
+    private int mAttempt;
+
+    public ReconnectBackoff(long initialDelayMs, long maxDelayMs, float jitter) {
+        this(initialDelayMs, maxDelayMs, jitter, new Random());
+    }
+
+    public ReconnectBackoff(long initialDelayMs, long maxDelayMs, float jitter, Random random) {
+        if (initialDelayMs <= 0 || maxDelayMs < initialDelayMs || jitter < 0F || jitter > 1F) {
+            throw new IllegalArgumentException("Invalid backoff " + initialDelayMs + ".." + maxDelayMs + " jitter " + jitter);
+        }
+        mInitialDelayMs = initialDelayMs;
+        mMaxDelayMs = maxDelayMs;
+        mJitter = jitter;
+        mRandom = random;
+        mDelayMs = initialDelayMs;
+    }
+
+    public long nextDelayMs() {
+        long delayMs = mDelayMs;
+        mDelayMs = Math.min(mMaxDelayMs, mDelayMs * 2);
+        mAttempt++;
+        return Math.round(delayMs * (1.0 - mJitter * mRandom.nextDouble()));
+    }
+
+    public void reset() {
+        mDelayMs = mInitialDelayMs;
+        mAttempt = 0;
+    }
+
+    // Attempts since the last reset
+    public int getAttempt() {
+        return mAttempt;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.webrtcandroidapp.replay;
+
+import com.example.webrtcandroidapp.ai.AnonymizationMode;
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.FaceAnonymizer;
+import com.example.webrtcandroidapp.ai.FaceDetector;
+import com.example.webrtcandroidapp.capturers.NV21PlaneAssembler;
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+import com.example.webrtcandroidapp.metrics.LatencyHistogram;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Replays a recorded NV21 stream through FaceAnonymizer on a plain JVM, as fast as it goes. Time is virtual - frame i
+ * is at i * 1000 / frameRate ms - and detection runs inline, so a replay is reproducible and its mask coverage can be
+ * compared against a golden file; for the same reason the anonymization mode is fixed, without the budget fallback.
+ * Frames go through the same steps as in AndroidCameraCapturer: detection check, snapshot copy and detection when due,
+ * then anonymization in place.
+ *
+ * Given ground-truth faces, the report also holds the recall of the mask: the share of ground-truth faces that are
+ * mostly masked, overall and for small faces.
+ *
+ * Usage: ReplayHarness frames.nv21 width height frameRate detections.txt [--latency ms] [--mode blur|pixelate|fill]
+ *        [--golden file [--update-golden]] [--tier name=tierDetections.txt:latencyMs ...]
+ * The frame file is raw NV21 frames back to back (e.g. ffmpeg -f rawvideo -pix_fmt nv21); see ScriptedFaceDetector
+ * for the detections format. With --tier, detections.txt is the ground truth and the stream is replayed once more per
+ * detector tier, with the detections recorded for that tier and its measured latency, to compare their recall.
+ */
+public class ReplayHarness {
+
+    public interface FrameSource {
+        // Fills the array with the next frame; false at the end of the stream
+        boolean read(byte[] nv21) throws IOException;
+    }
+
+    private static final long DEFAULT_DETECTION_LATENCY_MS = 30;
+    private static final double COVERAGE_TOLERANCE = 0.001;
+    // A ground-truth face counts as found when at least this share of its luma samples was changed
+    private static final double MIN_MASKED_FACE_SHARE = 0.5;
+    // Faces whose larger side is below this share of the frame count as small
+    private static final float SMALL_FACE_SIZE = 0.1F;
+
+    private long mNowMs;
+
+    public ReplayReport run(FrameSource frames, int width, int height, int frameRate, FaceDetector faceDetector,
+                            AnonymizationMode mode) throws IOException {
+        return run(frames, width, height, frameRate, faceDetector, mode, null);
+    }
+
+    // Ground-truth faces are in the ScriptedFaceDetector script format; null skips the recall
+    public ReplayReport run(FrameSource frames, int width, int height, int frameRate, FaceDetector faceDetector,
+                            AnonymizationMode mode, TreeMap<Long, List<FDBoundingBox>> groundTruth) throws IOException {
+        PipelineMetrics metrics = new PipelineMetrics();
+        FaceAnonymizer faceAnonymizer = new FaceAnonymizer(faceDetector, metrics, () -> mNowMs, true);
+        faceAnonymizer.getAnonymizer().getBudget().setPreferredMode(mode, 0);
+        faceAnonymizer.setFrameSize(width, height);
+
+        int frameLength = NV21PlaneAssembler.getFrameLength(width, height);
+        byte[] original = new byte[frameLength];
+        byte[] frame = new byte[frameLength];
+        byte[] snapshot = new byte[frameLength];
+        YuvPlanes planes = YuvPlanes.wrapNV21(frame, width, height);
+        LatencyHistogram frameLatency = new LatencyHistogram();
+        double[] coverage = new double[64];
+        int frameCount = 0;
+        int[] recall = new int[4];
+
+        long replayStart = System.nanoTime();
+        while (frames.read(original)) {
+            mNowMs = frameCount * 1000L / frameRate;
+            System.arraycopy(original, 0, frame, 0, frameLength);
+
+            long start = System.nanoTime();
+            // Scripted results arrive on the replay clock; other detectors report on their own
+            if (faceDetector instanceof ScriptedFaceDetector) {
+                ((ScriptedFaceDetector) faceDetector).deliverDue(mNowMs);
+            }
+            if (faceAnonymizer.isDetectionDue(planes)) {
+                NV21PlaneAssembler.assemble(planes, snapshot);
+                faceAnonymizer.analyzeImage(snapshot, () -> { });
+            }
+            faceAnonymizer.removeFaces(planes);
+            frameLatency.record(System.nanoTime() - start);
+
+            if (frameCount == coverage.length) {
+                double[] grown = new double[coverage.length * 2];
+                System.arraycopy(coverage, 0, grown, 0, coverage.length);
+                coverage = grown;
+            }
+            coverage[frameCount++] = getMaskCoverage(original, frame, width * height);
+            if (groundTruth != null) {
+                Map.Entry<Long, List<FDBoundingBox>> faces = groundTruth.floorEntry(mNowMs);
+                if (faces != null) {
+                    countMaskedFaces(faces.getValue(), original, frame, width, height, recall);
+                }
+            }
+        }
+        long elapsedNs = System.nanoTime() - replayStart;
+        faceAnonymizer.dispose();
+
+        return new ReplayReport(frameCount, elapsedNs, frameLatency.snapshot(), metrics.snapshot(), coverage,
+                recall[0], recall[1], recall[2], recall[3]);
+    }
+
+    public static FrameSource openRawFrames(DataInputStream input) {
+        return nv21 -> {
+            try {
+                input.readFully(nv21);
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        };
+    }
+
+    private static double getMaskCoverage(byte[] original, byte[] anonymized, int ySize) {
+        int changed = 0;
+        for (int i = 0; i < ySize; i++) {
+            if (original[i] != anonymized[i]) {
+                changed++;
+            }
+        }
+        return (double) changed / ySize;
+    }
+
+    // Adds to the counts of faces, masked faces, small faces and masked small faces
+    private static void countMaskedFaces(List<FDBoundingBox> faces, byte[] original, byte[] anonymized, int width, int height,
+                                         int[] recall) {
+        for (FDBoundingBox face : faces) {
+            int left = Math.max(0, Math.round(face.getXMin() * width));
+            int top = Math.max(0, Math.round(face.getYMin() * height));
+            int right = Math.min(width, Math.round((face.getXMin() + face.getWidth()) * width));
+            int bottom = Math.min(height, Math.round((face.getYMin() + face.getHeight()) * height));
+            if (left >= right || top >= bottom) {
+                continue;
+            }
+
+            int changed = 0;
+            for (int row = top; row < bottom; row++) {
+                for (int column = left; column < right; column++) {
+                    if (original[row * width + column] != anonymized[row * width + column]) {
+                        changed++;
+                    }
+                }
+            }
+            boolean masked = changed >= MIN_MASKED_FACE_SHARE * (right - left) * (bottom - top);
+            boolean small = Math.max(face.getWidth(), face.getHeight()) < SMALL_FACE_SIZE;
+            recall[0]++;
+            recall[1] += masked ? 1 : 0;
+            recall[2] += small ? 1 : 0;
+            recall[3] += small && masked ? 1 : 0;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 5) {
+            System.err.println("Usage: ReplayHarness frames.nv21 width height frameRate detections.txt"
+                    + " [--latency ms] [--mode blur|pixelate|fill] [--golden file [--update-golden]]"
+                    + " [--tier name=tierDetections.txt:latencyMs ...]");
+            System.exit(2);
+        }
+
+        long latencyMs = DEFAULT_DETECTION_LATENCY_MS;
+        AnonymizationMode mode = AnonymizationMode.PIXELATE;
+        String goldenPath = null;
+        boolean updateGolden = false;
+        List<String> tiers = new ArrayList<>();
+        for (int i = 5; i < args.length; i++) {
+            if (args[i].equals("--latency")) {
+                latencyMs = Long.parseLong(args[++i]);
+            } else if (args[i].equals("--mode")) {
+                mode = AnonymizationMode.valueOf(args[++i].toUpperCase(Locale.US));
+            } else if (args[i].equals("--golden")) {
+                goldenPath = args[++i];
+            } else if (args[i].equals("--update-golden")) {
+                updateGolden = true;
+            } else if (args[i].equals("--tier")) {
+                tiers.add(args[++i]);
+            }
+        }
+
+        int width = Integer.parseInt(args[1]);
+        int height = Integer.parseInt(args[2]);
+        int frameRate = Integer.parseInt(args[3]);
+        if (!tiers.isEmpty()) {
+            TreeMap<Long, List<FDBoundingBox>> groundTruth;
+            try (Reader reader = new FileReader(args[4])) {
+                groundTruth = ScriptedFaceDetector.parse(reader);
+            }
+            for (String tier : tiers) {
+                int nameEnd = tier.indexOf('=');
+                int fileEnd = tier.lastIndexOf(':');
+                if (nameEnd < 0 || fileEnd < nameEnd) {
+                    System.err.println("Invalid tier " + tier + ", expected name=tierDetections.txt:latencyMs");
+                    System.exit(2);
+                }
+                ScriptedFaceDetector tierDetector;
+                try (Reader reader = new FileReader(tier.substring(nameEnd + 1, fileEnd))) {
+                    tierDetector = new ScriptedFaceDetector(ScriptedFaceDetector.parse(reader),
+                            Long.parseLong(tier.substring(fileEnd + 1)));
+                }
+                ReplayReport tierReport;
+                try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+                    tierReport = new ReplayHarness().run(openRawFrames(input), width, height, frameRate, tierDetector, mode,
+                            groundTruth);
+                }
+                System.out.printf(Locale.US, "tier %s: latency %sms, recall %.3f, small face recall %.3f%n",
+                        tier.substring(0, nameEnd), tier.substring(fileEnd + 1), tierReport.getRecall(),
+                        tierReport.getSmallFaceRecall());
+            }
+            return;
+        }
+
+        ScriptedFaceDetector faceDetector;
+        try (Reader reader = new FileReader(args[4])) {
+            faceDetector = new ScriptedFaceDetector(ScriptedFaceDetector.parse(reader), latencyMs);
+        }
+        ReplayReport report;
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(args[0])))) {
+            report = new ReplayHarness().run(openRawFrames(input), width, height, frameRate, faceDetector, mode);
+        }
+        System.out.print(report);
+
+        if (goldenPath == null) {
+            return;
+        }
+        if (updateGolden) {
+            try (Writer writer = new FileWriter(goldenPath)) {
+                report.writeCoverage(writer);
+            }
+            System.out.println("golden coverage written to " + goldenPath);
+            return;
+        }
+
+        double[] golden;
+        try (Reader reader = new FileReader(goldenPath)) {
+            golden = ReplayReport.readCoverage(reader);
+        }
+        List<Integer> regressions = report.findCoverageRegressions(golden, COVERAGE_TOLERANCE);
+        if (regressions.isEmpty()) {
+            System.out.println("mask coverage matches " + goldenPath);
+        } else {
+            System.out.println("mask coverage regressions: " + regressions.size() + " frames, first at frame " + regressions.get(0));
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.webrtcandroidapp.replay;
+
+import com.example.webrtcandroidapp.metrics.LatencyHistogram;
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Result of one replay: throughput, per-frame processing latency, and the mask coverage of every frame (the fraction
+ * of luma samples the anonymization changed). Coverage is deterministic for a given input, so it is what golden files
+ * hold and what regressions are measured on. With ground-truth faces, the report also counts how many of them were
+ * masked (recall), overall and for small faces; -1 without ground truth.
+ */
+public class ReplayReport {
+
+    private final int mFrameCount;
+    private final long mElapsedNs;
+    private final LatencyHistogram.Snapshot mFrameLatency;
+    private final PipelineMetrics.Snapshot mPipeline;
+    private final double[] mCoverage;
+    private final int mFaceCount;
+    private final int mMaskedFaceCount;
+    private final int mSmallFaceCount;
+    private final int mMaskedSmallFaceCount;
+
+    ReplayReport(int frameCount, long elapsedNs, LatencyHistogram.Snapshot frameLatency, PipelineMetrics.Snapshot pipeline,
+                 double[] coverage, int faceCount, int maskedFaceCount, int smallFaceCount, int maskedSmallFaceCount) {
+        mFrameCount = frameCount;
+        mElapsedNs = elapsedNs;
+        mFrameLatency = frameLatency;
+        mPipeline = pipeline;
+        mCoverage = coverage;
+        mFaceCount = faceCount;
+        mMaskedFaceCount = maskedFaceCount;
+        mSmallFaceCount = smallFaceCount;
+        mMaskedSmallFaceCount = maskedSmallFaceCount;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public double getFramesPerSecond() {
+        return mElapsedNs > 0 ? mFrameCount * 1e9 / mElapsedNs : 0;
+    }
+
+    public LatencyHistogram.Snapshot getFrameLatency() {
+        return mFrameLatency;
+    }
+
+    public PipelineMetrics.Snapshot getPipeline() {
+        return mPipeline;
+    }
+
+    public double getCoverage(int frame) {
+        return mCoverage[frame];
+    }
+
+    public double getRecall() {
+        return mFaceCount > 0 ? (double) mMaskedFaceCount / mFaceCount : -1;
+    }
+
+    public double getSmallFaceRecall() {
+        return mSmallFaceCount > 0 ? (double) mMaskedSmallFaceCount / mSmallFaceCount : -1;
+    }
+
+    // Frames whose coverage differs from the golden one by more than the tolerance, or that the golden file lacks
+    public List<Integer> findCoverageRegressions(double[] golden, double tolerance) {
+        List<Integer> regressions = new ArrayList<>();
+        for (int i = 0; i < mFrameCount; i++) {
+            if (i >= golden.length || Math.abs(mCoverage[i] - golden[i]) > tolerance) {
+                regressions.add(i);
+            }
+        }
+        return regressions;
+    }
+
+    public void writeCoverage(Writer writer) {
+        PrintWriter printWriter = new PrintWriter(writer);
+        for (int i = 0; i < mFrameCount; i++) {
+            printWriter.printf(Locale.US, "%d %.6f%n", i, mCoverage[i]);
+        }
+        printWriter.flush();
+    }
+
+    public static double[] readCoverage(Reader reader) throws IOException {
+        List<Double> coverage = new ArrayList<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (!line.isEmpty()) {
+                coverage.add(Double.parseDouble(line.substring(line.indexOf(' ') + 1)));
+            }
+        }
+
+        double[] values = new double[coverage.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = coverage.get(i);
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        double meanCoverage = 0;
+        for (int i = 0; i < mFrameCount; i++) {
+            meanCoverage += mCoverage[i];
+        }
+        meanCoverage = mFrameCount > 0 ? meanCoverage / mFrameCount : 0;
+
+        return String.format(Locale.US, "frames: %d (%.1f fps)%nframe latency: mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n"
+                        + "mean mask coverage: %.4f%n%s",
+                mFrameCount, getFramesPerSecond(), mFrameLatency.getMeanNs() / 1e6, mFrameLatency.getPercentileNs(50) / 1e6,
+                mFrameLatency.getPercentileNs(99) / 1e6, mFrameLatency.getMaxNs() / 1e6, meanCoverage, mPipeline);
+    }
+}
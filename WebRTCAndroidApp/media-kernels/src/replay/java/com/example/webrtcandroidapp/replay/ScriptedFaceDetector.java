@@ -0,0 +1,129 @@
+package com.example.webrtcandroidapp.replay;
+
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+import com.example.webrtcandroidapp.ai.FaceDetector;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Detector that answers from a script of detection results instead of looking at the frame. The script has one face
+ * per line - "timestampMs xMin yMin width height", relative coordinates - and a line with only a timestamp means no
+ * faces from then on; lines starting with '#' are comments. A frame gets the faces of the latest scripted timestamp at
+ * or before its own. Results are held back for the configured latency and handed out by deliverDue, so that detection
+ * latency is replayed on the caller's clock. A detection limited to regions only finds the faces centred in one of them.
+ */
+public class ScriptedFaceDetector implements FaceDetector {
+
+    private final TreeMap<Long, List<FDBoundingBox>> mScript;
+    private final long mLatencyMs;
+    private final ArrayDeque<PendingResult> mPendingResults = new ArrayDeque<>();
+
+    private Listener mListener;
+
+    public ScriptedFaceDetector(TreeMap<Long, List<FDBoundingBox>> script, long latencyMs) {
+        mScript = script;
+        mLatencyMs = latencyMs;
+    }
+
+    public static TreeMap<Long, List<FDBoundingBox>> parse(Reader reader) throws IOException {
+        TreeMap<Long, List<FDBoundingBox>> script = new TreeMap<>();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            String[] fields = line.split("\\s+");
+            if (fields.length != 1 && fields.length != 5) {
+                throw new IOException("Line " + lineNumber + ": expected a timestamp and optionally 4 box values");
+            }
+            List<FDBoundingBox> faces = script.computeIfAbsent(Long.parseLong(fields[0]), timestamp -> new ArrayList<>());
+            if (fields.length == 5) {
+                faces.add(new FDBoundingBox(faces.size(), Float.parseFloat(fields[1]), Float.parseFloat(fields[2]),
+                        Float.parseFloat(fields[3]), Float.parseFloat(fields[4])));
+            }
+        }
+        return script;
+    }
+
+    @Override
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    @Override
+    public void setFrameSize(int width, int height) {
+    }
+
+    @Override
+    public void detect(byte[] nv21, long timestampMs, List<FDBoundingBox> regions) {
+        Map.Entry<Long, List<FDBoundingBox>> entry = mScript.floorEntry(timestampMs);
+        List<FDBoundingBox> faces = entry != null ? entry.getValue() : Collections.emptyList();
+        if (!regions.isEmpty()) {
+            List<FDBoundingBox> regionFaces = new ArrayList<>();
+            for (FDBoundingBox face : faces) {
+                if (isInAnyRegion(face, regions)) {
+                    regionFaces.add(face);
+                }
+            }
+            faces = regionFaces;
+        }
+        mPendingResults.addLast(new PendingResult(timestampMs + mLatencyMs, timestampMs, faces));
+    }
+
+    @Override
+    public boolean isReady() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        mPendingResults.clear();
+    }
+
+    // Reports every result whose latency has passed by nowMs
+    public void deliverDue(long nowMs) {
+        while (!mPendingResults.isEmpty() && mPendingResults.peekFirst().dueTimeMs <= nowMs) {
+            PendingResult result = mPendingResults.pollFirst();
+            if (mListener != null) {
+                mListener.onFacesDetected(result.faces, result.timestampMs);
+            }
+        }
+    }
+
+    private static boolean isInAnyRegion(FDBoundingBox face, List<FDBoundingBox> regions) {
+        float centerX = face.getXMin() + face.getWidth() / 2;
+        float centerY = face.getYMin() + face.getHeight() / 2;
+        for (FDBoundingBox region : regions) {
+            if (centerX >= region.getXMin() && centerX < region.getXMin() + region.getWidth()
+                    && centerY >= region.getYMin() && centerY < region.getYMin() + region.getHeight()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static class PendingResult {
+        final long dueTimeMs;
+        final long timestampMs;
+        final List<FDBoundingBox> faces;
+
+        PendingResult(long dueTimeMs, long timestampMs, List<FDBoundingBox> faces) {
+            this.dueTimeMs = dueTimeMs;
+            this.timestampMs = timestampMs;
+            this.faces = faces;
+        }
+    }
+}
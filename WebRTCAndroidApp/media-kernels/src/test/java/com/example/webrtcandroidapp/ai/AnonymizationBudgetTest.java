@@ -0,0 +1,53 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AnonymizationBudgetTest {
+
+    private static final long AREA = 100_000;
+
+    @Test
+    public void select_keepsPreferredModeWithinBudget() {
+        AnonymizationBudget budget = new AnonymizationBudget(AnonymizationMode.BLUR, 1_000_000);
+        budget.onApplied(AnonymizationMode.BLUR, AREA, 500_000);
+
+        assertEquals(AnonymizationMode.BLUR, budget.select(AREA));
+        assertEquals(0, budget.getFallbackCount());
+    }
+
+    @Test
+    public void select_fallsBackToCheaperModesOverBudget() {
+        AnonymizationBudget budget = new AnonymizationBudget(AnonymizationMode.BLUR, 1_000_000);
+        budget.onApplied(AnonymizationMode.BLUR, AREA, 3_000_000);
+        assertEquals(AnonymizationMode.PIXELATE, budget.select(AREA));
+
+        budget.onApplied(AnonymizationMode.PIXELATE, AREA, 2_000_000);
+        assertEquals(AnonymizationMode.FILL, budget.select(AREA));
+        // A smaller area fits the preferred mode again
+        assertEquals(AnonymizationMode.BLUR, budget.select(AREA / 4));
+        assertEquals(2, budget.getFallbackCount());
+    }
+
+    @Test
+    public void select_retriesSkippedModesEventually() {
+        AnonymizationBudget budget = new AnonymizationBudget(AnonymizationMode.PIXELATE, 1_000_000);
+        budget.onApplied(AnonymizationMode.PIXELATE, AREA, 1_500_000);
+
+        int fallbacks = 0;
+        while (budget.select(AREA) != AnonymizationMode.PIXELATE) {
+            fallbacks++;
+            assertTrue(fallbacks < 100);
+        }
+        assertTrue(fallbacks > 1);
+    }
+
+    @Test
+    public void select_ignoresCostWithoutBudget() {
+        AnonymizationBudget budget = new AnonymizationBudget(AnonymizationMode.BLUR, 0);
+        budget.onApplied(AnonymizationMode.BLUR, AREA, Long.MAX_VALUE / 2);
+
+        assertEquals(AnonymizationMode.BLUR, budget.select(AREA));
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.metrics.PipelineMetrics;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DeferredFaceDetectorTest {
+
+    @Test
+    public void warmUp_becomesReadyAndForwardsLaterDetections() throws Exception {
+        CountDownLatch allowCreate = new CountDownLatch(1);
+        FakeDetector fake = new FakeDetector();
+        PipelineMetrics metrics = new PipelineMetrics();
+        DeferredFaceDetector detector = new DeferredFaceDetector("test", metrics, m -> {
+            awaitQuietly(allowCreate);
+            return fake;
+        });
+        List<Long> results = new CopyOnWriteArrayList<>();
+        detector.setListener((faces, timestampMs) -> results.add(timestampMs));
+        detector.setFrameSize(640, 480);
+
+        // Not ready yet - frames are dropped
+        assertFalse(detector.isReady());
+        detector.detect(new byte[640 * 480 * 3 / 2], 10, Collections.emptyList());
+
+        allowCreate.countDown();
+        awaitReady(detector);
+
+        // The warm-up frame is blank and its result is not passed on
+        assertEquals(List.of(0L), fake.mDetected);
+        assertEquals(List.of(), results);
+        assertEquals(640, fake.mWidth);
+        assertEquals(480, fake.mHeight);
+        assertEquals(1, metrics.snapshot().getStage(PipelineMetrics.Stage.DETECTOR_WARM_UP).getCount());
+
+        detector.detect(new byte[640 * 480 * 3 / 2], 20, Collections.emptyList());
+        assertEquals(List.of(0L, 20L), fake.mDetected);
+        assertEquals(List.of(20L), results);
+
+        detector.close();
+        assertTrue(fake.mClosed);
+        assertFalse(detector.isReady());
+    }
+
+    @Test
+    public void warmUp_failureLeavesDetectorNotReady() throws Exception {
+        DeferredFaceDetector detector = new DeferredFaceDetector("test", new PipelineMetrics(), m -> {
+            throw new IllegalStateException("no model");
+        });
+
+        long deadline = System.currentTimeMillis() + 1000;
+        while (detector.getFailure() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(detector.getFailure() instanceof IllegalStateException);
+        assertFalse(detector.isReady());
+        detector.close();
+    }
+
+    private static void awaitReady(DeferredFaceDetector detector) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!detector.isReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(detector.isReady());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Reports every frame back right away, like an instant backend
+    private static class FakeDetector implements FaceDetector {
+        private final List<Long> mDetected = new CopyOnWriteArrayList<>();
+        private Listener mListener;
+        private volatile int mWidth;
+        private volatile int mHeight;
+        private volatile boolean mClosed;
+
+        @Override
+        public void setListener(Listener listener) {
+            mListener = listener;
+        }
+
+        @Override
+        public void setFrameSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void detect(byte[] nv21, long timestampMs, List<FDBoundingBox> regions) {
+            mDetected.add(timestampMs);
+            mListener.onFacesDetected(Collections.emptyList(), timestampMs);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            mClosed = true;
+        }
+    }
+}
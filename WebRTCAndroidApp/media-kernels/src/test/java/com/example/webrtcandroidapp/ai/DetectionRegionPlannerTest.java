@@ -0,0 +1,54 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectionRegionPlannerTest {
+
+    @Test
+    public void plan_padsAndMergesTracksBetweenFullScans() {
+        DetectionRegionPlanner planner = new DetectionRegionPlanner(0.5F, 3, 0.5F, 1000);
+        List<FDBoundingBox> tracks = new ArrayList<>();
+        tracks.add(new FDBoundingBox(0, 0.1F, 0.1F, 0.1F, 0.1F));
+        tracks.add(new FDBoundingBox(1, 0.25F, 0.1F, 0.1F, 0.1F));
+        tracks.add(new FDBoundingBox(2, 0.88F, 0.8F, 0.1F, 0.1F));
+
+        assertTrue(planner.plan(tracks, 0).isEmpty());
+
+        List<FDBoundingBox> regions = planner.plan(tracks, 100);
+        assertEquals(2, regions.size());
+        // The first two padded boxes overlap and become one region
+        assertEquals(0.05F, regions.get(0).getXMin(), 1e-6);
+        assertEquals(0.05F, regions.get(0).getYMin(), 1e-6);
+        assertEquals(0.35F, regions.get(0).getWidth(), 1e-6);
+        assertEquals(0.2F, regions.get(0).getHeight(), 1e-6);
+        // Clamped to the frame
+        assertEquals(0.83F, regions.get(1).getXMin(), 1e-6);
+        assertEquals(0.17F, regions.get(1).getWidth(), 1e-6);
+
+        assertTrue(planner.plan(tracks, 1000).isEmpty());
+        assertEquals(2, planner.getFullScanCount());
+        assertEquals(1, planner.getRegionScanCount());
+    }
+
+    @Test
+    public void plan_scansFullFrameWhenRegionsDoNotPayOff() {
+        DetectionRegionPlanner planner = new DetectionRegionPlanner(0.5F, 1, 0.3F, 1000);
+        List<FDBoundingBox> tracks = new ArrayList<>();
+        assertTrue(planner.plan(tracks, 0).isEmpty());
+        assertTrue(planner.plan(tracks, 10).isEmpty());
+
+        tracks.add(new FDBoundingBox(0, 0.1F, 0.1F, 0.1F, 0.1F));
+        tracks.add(new FDBoundingBox(1, 0.7F, 0.7F, 0.1F, 0.1F));
+        assertTrue(planner.plan(tracks, 20).isEmpty());
+
+        tracks.remove(1);
+        tracks.get(0).set(0.1F, 0.1F, 0.5F, 0.5F);
+        assertTrue(planner.plan(tracks, 30).isEmpty());
+        assertEquals(0, planner.getRegionScanCount());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DetectionSchedulerTest {
+
+    @Test
+    public void isDetectionDue_followsTheInterval() {
+        DetectionScheduler scheduler = new DetectionScheduler(100, 1000);
+
+        assertTrue(scheduler.isDetectionDue(0));
+        scheduler.onDetectionScheduled(0);
+        assertFalse(scheduler.isDetectionDue(99));
+        assertTrue(scheduler.isDetectionDue(100));
+        assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void onDetectionCompleted_backsOffOnStaticScenesUpToTheMaximum() {
+        DetectionScheduler scheduler = new DetectionScheduler(100, 1000);
+
+        long previousInterval = scheduler.getIntervalMs();
+        for (int i = 0; i < 20; i++) {
+            scheduler.onDetectionCompleted(20, false, 0, 0.01F);
+            assertTrue(scheduler.getIntervalMs() >= previousInterval);
+            previousInterval = scheduler.getIntervalMs();
+        }
+
+        assertEquals(1000, scheduler.getIntervalMs());
+        assertEquals(DetectionScheduler.Reason.STEADY, scheduler.getReason());
+        assertEquals(20, scheduler.getCompletedCount());
+    }
+
+    @Test
+    public void onDetectionCompleted_speedsUpWhenTracksChangeButNotBelowTheLatency() {
+        DetectionScheduler scheduler = new DetectionScheduler(100, 1000);
+        for (int i = 0; i < 10; i++) {
+            scheduler.onDetectionCompleted(20, false, 0, 0F);
+        }
+
+        scheduler.onDetectionCompleted(20, true, 1, 0F);
+        assertEquals(100, scheduler.getIntervalMs());
+        assertEquals(DetectionScheduler.Reason.TRACKS_CHANGING, scheduler.getReason());
+
+        scheduler.onDetectionCompleted(20, false, 0, 0.5F);
+        assertEquals(100, scheduler.getIntervalMs());
+
+        // A slow detector raises the floor
+        DetectionScheduler slowScheduler = new DetectionScheduler(100, 1000);
+        slowScheduler.onDetectionCompleted(400, true, 1, 0F);
+        assertEquals(600, slowScheduler.getIntervalMs());
+        assertEquals(400, slowScheduler.getLastLatencyMs());
+    }
+
+    @Test
+    public void restart_makesDetectionDueRightAwayAtTheMinimumInterval() {
+        DetectionScheduler scheduler = new DetectionScheduler(100, 1000);
+        scheduler.onDetectionScheduled(0);
+        for (int i = 0; i < 10; i++) {
+            scheduler.onDetectionCompleted(20, false, 0, 0F);
+        }
+        assertFalse(scheduler.isDetectionDue(500));
+
+        scheduler.restart();
+
+        assertTrue(scheduler.isDetectionDue(500));
+        assertEquals(100, scheduler.getIntervalMs());
+        assertEquals(DetectionScheduler.Reason.INITIAL, scheduler.getReason());
+        assertEquals(20F, scheduler.getSmoothedLatencyMs(), 0F);
+    }
+
+    @Test
+    public void setIntervalFloorMs_raisesTheMinimumUpToTheMaximum() {
+        DetectionScheduler scheduler = new DetectionScheduler(100, 1000);
+        scheduler.onDetectionScheduled(0);
+
+        scheduler.setIntervalFloorMs(400);
+        assertFalse(scheduler.isDetectionDue(399));
+        assertTrue(scheduler.isDetectionDue(400));
+        scheduler.onDetectionCompleted(20, true, 1, 0F);
+        assertEquals(400, scheduler.getIntervalMs());
+
+        scheduler.setIntervalFloorMs(5000);
+        assertEquals(1000, scheduler.getIntervalFloorMs());
+        scheduler.setIntervalFloorMs(0);
+        scheduler.onDetectionCompleted(20, true, 1, 0F);
+        assertEquals(100, scheduler.getIntervalMs());
+    }
+}
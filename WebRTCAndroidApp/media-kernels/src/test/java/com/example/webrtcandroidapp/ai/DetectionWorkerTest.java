@@ -0,0 +1,100 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DetectionWorkerTest {
+
+    @Test
+    public void submit_replacesPendingFrameWithNewest() throws Exception {
+        CountDownLatch blockFirst = new CountDownLatch(1);
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch bothProcessed = new CountDownLatch(2);
+        List<Byte> processed = new CopyOnWriteArrayList<>();
+        AtomicInteger released = new AtomicInteger();
+        DetectionWorker worker = new DetectionWorker("test", frame -> {
+            firstStarted.countDown();
+            awaitQuietly(blockFirst);
+            processed.add(frame[0]);
+            bothProcessed.countDown();
+        });
+
+        worker.submit(new byte[] { 1 }, released::incrementAndGet);
+        assertTrue(firstStarted.await(1, TimeUnit.SECONDS));
+        worker.submit(new byte[] { 2 }, released::incrementAndGet);
+        worker.submit(new byte[] { 3 }, released::incrementAndGet);
+        blockFirst.countDown();
+        // Shutdown discards a pending frame, so let the worker pick up the newest one first
+        assertTrue(bothProcessed.await(1, TimeUnit.SECONDS));
+        worker.shutdown();
+
+        assertEquals(List.of((byte) 1, (byte) 3), processed);
+        assertEquals(3, released.get());
+        assertEquals(3, worker.getSubmittedCount());
+        assertEquals(1, worker.getReplacedCount());
+        assertEquals(2, worker.getProcessedCount());
+    }
+
+    @Test
+    public void submit_neverProcessesConcurrently() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicInteger released = new AtomicInteger();
+        DetectionWorker worker = new DetectionWorker("test", frame -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.yield();
+            inFlight.decrementAndGet();
+        });
+
+        Thread[] producers = new Thread[4];
+        for (int i = 0; i < producers.length; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < 5000; j++) {
+                    worker.submit(new byte[1], released::incrementAndGet);
+                }
+            });
+            producers[i].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        worker.shutdown();
+
+        assertEquals(1, maxInFlight.get());
+        assertEquals(20000, released.get());
+        // At most the one frame still pending at shutdown is released without being processed
+        assertTrue(worker.getReplacedCount() + worker.getProcessedCount() >= 19999);
+    }
+
+    @Test
+    public void submit_processesInlineWithoutThread() {
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        AtomicInteger released = new AtomicInteger();
+        DetectionWorker worker = new DetectionWorker(frame -> threads.add(Thread.currentThread()));
+
+        worker.submit(new byte[] { 1 }, released::incrementAndGet);
+        worker.submit(new byte[] { 2 }, released::incrementAndGet);
+        worker.shutdown();
+        worker.submit(new byte[] { 3 }, released::incrementAndGet);
+
+        assertEquals(List.of(Thread.currentThread(), Thread.currentThread()), threads);
+        assertEquals(3, released.get());
+        assertEquals(2, worker.getProcessedCount());
+        assertEquals(0, worker.getReplacedCount());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
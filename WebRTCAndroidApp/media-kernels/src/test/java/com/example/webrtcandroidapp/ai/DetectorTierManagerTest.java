@@ -0,0 +1,97 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DetectorTierManagerTest {
+
+    private static final List<DetectorTierManager.Tier> TIERS = Arrays.asList(
+            new DetectorTierManager.Tier("short", 0, 0.15F, 0.6F, 128),
+            new DetectorTierManager.Tier("short + small", 0, 0.08F, 0.5F, 128, 256),
+            new DetectorTierManager.Tier("full", 1, 0.04F, 0.4F, 192));
+
+    @Test
+    public void onDetectionCompleted_picksCheapestTierForSmallestRecentFaces() {
+        DetectorTierManager manager = new DetectorTierManager(TIERS, 0, 100, 3000, 0, 0);
+
+        assertFalse(manager.onDetectionCompleted(faces(0.3F), 20, 0));
+        assertEquals(0, manager.getTierIndex());
+
+        // Distant faces appear next to the close one
+        assertTrue(manager.onDetectionCompleted(faces(0.3F, 0.05F, 0.06F), 20, 100));
+        assertEquals(2, manager.getTierIndex());
+        assertEquals("full", manager.getTier().getName());
+
+        // Only mid-sized faces left once the distant ones age out of the window
+        assertTrue(manager.onDetectionCompleted(faces(0.1F, 0.12F), 20, 3200));
+        assertEquals(1, manager.getTierIndex());
+        assertEquals(2, manager.getSwitchCount());
+    }
+
+    @Test
+    public void onDetectionCompleted_stepsDownWhileOverLatencyBudget() {
+        DetectorTierManager manager = new DetectorTierManager(TIERS, 2, 100, 3000, 0, 0);
+
+        assertTrue(manager.onDetectionCompleted(faces(0.05F), 250, 0));
+        assertEquals(1, manager.getTierIndex());
+        assertEquals(250F, manager.getSmoothedLatencyMs(2), 0F);
+
+        // The slow tier is tried again once its measurement has expired
+        manager.onDetectionCompleted(faces(0.05F), 40, 1000);
+        assertEquals(1, manager.getTierIndex());
+        assertTrue(manager.onDetectionCompleted(faces(0.05F), 40, 31000));
+        assertEquals(2, manager.getTierIndex());
+    }
+
+    @Test
+    public void onDetectionCompleted_holdsSwitchesBackAndFallsBackToDefault() {
+        DetectorTierManager manager = new DetectorTierManager(TIERS, 1, 100, 1000, 2000, 0);
+
+        assertTrue(manager.onDetectionCompleted(faces(0.4F), 20, 0));
+        assertEquals(0, manager.getTierIndex());
+
+        // Too soon after the last switch
+        assertFalse(manager.onDetectionCompleted(faces(0.05F), 20, 500));
+        assertEquals(0, manager.getTierIndex());
+        assertTrue(manager.onDetectionCompleted(faces(0.05F), 20, 2000));
+        assertEquals(2, manager.getTierIndex());
+
+        // No faces within the window
+        assertTrue(manager.onDetectionCompleted(Collections.emptyList(), 20, 4000));
+        assertEquals(1, manager.getTierIndex());
+        assertEquals(1, manager.getDetectionCount(1));
+    }
+
+    @Test
+    public void onDetectionCompleted_escalatesToFacesTheTierCannotSee() {
+        DetectorTierManager manager = new DetectorTierManager(TIERS, 0, 100, 3000, 1000, 10000);
+
+        // Close to the limit of the cheapest tier
+        assertFalse(manager.onDetectionCompleted(faces(0.3F), 20, 0));
+        assertTrue(manager.onDetectionCompleted(faces(0.3F, 0.17F), 20, 100));
+        assertEquals(1, manager.getTierIndex());
+
+        // Only the close face is seen, the probe finds the distant ones and keeps the sensitive tier
+        assertTrue(manager.onDetectionCompleted(faces(0.3F), 20, 3200));
+        assertEquals(0, manager.getTierIndex());
+        assertFalse(manager.onDetectionCompleted(faces(0.3F), 20, 13100));
+        assertTrue(manager.onDetectionCompleted(faces(0.3F), 20, 13200));
+        assertEquals(2, manager.getTierIndex());
+        assertFalse(manager.onDetectionCompleted(faces(0.3F, 0.05F, 0.05F), 20, 13300));
+        assertFalse(manager.onDetectionCompleted(faces(0.3F, 0.05F, 0.05F), 20, 14300));
+        assertEquals(2, manager.getTierIndex());
+    }
+
+    private static List<FDBoundingBox> faces(float... sizes) {
+        FDBoundingBox[] faces = new FDBoundingBox[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            faces[i] = new FDBoundingBox(i, 0.1F, 0.1F, sizes[i], sizes[i]);
+        }
+        return Arrays.asList(faces);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class FaceTrackerTest {
+
+    private static FDBoundingBox box(float xMin, float yMin) {
+        return new FDBoundingBox(0, xMin, yMin, 0.2F, 0.2F);
+    }
+
+    @Test
+    public void update_keepsTrackIdsAndConfirmsOnSecondDetection() {
+        FaceTracker tracker = new FaceTracker(0.2F, 1000, 500);
+
+        tracker.update(Arrays.asList(box(0.1F, 0.1F), box(0.6F, 0.6F)), 0);
+        assertTrue(tracker.hasUnconfirmedTracks());
+        long firstId = tracker.getBoundingBoxes().get(0).getFdId();
+        long secondId = tracker.getBoundingBoxes().get(1).getFdId();
+
+        // Reported in the opposite order and slightly moved
+        tracker.update(Arrays.asList(box(0.62F, 0.6F), box(0.12F, 0.1F)), 200);
+
+        List<FDBoundingBox> boxes = tracker.getBoundingBoxes();
+        assertEquals(2, boxes.size());
+        assertFalse(tracker.hasUnconfirmedTracks());
+        assertEquals(firstId, boxes.get(0).getFdId());
+        assertEquals(0.12F, boxes.get(0).getXMin(), 1e-6);
+        assertEquals(secondId, boxes.get(1).getFdId());
+        assertEquals(0.62F, boxes.get(1).getXMin(), 1e-6);
+    }
+
+    @Test
+    public void predict_movesBoxesWithTheirVelocity() {
+        FaceTracker tracker = new FaceTracker(0.2F, 1000, 500);
+        tracker.update(Collections.singletonList(box(0.1F, 0.3F)), 0);
+        tracker.update(Collections.singletonList(box(0.15F, 0.3F)), 100);
+
+        FaceTracker.Predictor predictor = new FaceTracker.Predictor();
+        List<FDBoundingBox> predicted = predictor.predict(tracker.getSnapshot(), 200);
+        assertEquals(0.2F, predicted.get(0).getXMin(), 1e-5);
+        assertEquals(0.3F, predicted.get(0).getYMin(), 1e-5);
+        assertTrue(predicted.get(0).isConfirmed());
+
+        // The predicted position is what the next detection is matched against
+        tracker.update(Collections.singletonList(box(0.25F, 0.3F)), 300);
+        assertEquals(1, tracker.getTrackCount());
+
+        // Extrapolation stops at the prediction limit
+        predicted = predictor.predict(tracker.getSnapshot(), 10000);
+        assertEquals(0.25F + 0.0005F * 500, predicted.get(0).getXMin(), 1e-4);
+    }
+
+    @Test
+    public void update_coastsConfirmedTracksAndDropsUnconfirmedOnes() {
+        FaceTracker tracker = new FaceTracker(0.2F, 1000, 500);
+        tracker.update(Collections.singletonList(box(0.1F, 0.1F)), 0);
+        tracker.update(Collections.singletonList(box(0.1F, 0.1F)), 200);
+        tracker.update(Collections.singletonList(box(0.7F, 0.7F)), 400);
+
+        // The confirmed track is kept, the new detection starts an unconfirmed one
+        assertEquals(2, tracker.getTrackCount());
+
+        tracker.update(Collections.emptyList(), 600);
+        assertEquals(1, tracker.getTrackCount());
+        assertTrue(tracker.getBoundingBoxes().get(0).isConfirmed());
+
+        tracker.update(Collections.emptyList(), 1200);
+        assertEquals(0, tracker.getTrackCount());
+    }
+
+    @Test
+    public void clear_dropsAllTracks() {
+        FaceTracker tracker = new FaceTracker(0.2F, 1000, 500);
+        tracker.update(Collections.singletonList(box(0.1F, 0.1F)), 0);
+        tracker.update(Collections.singletonList(box(0.1F, 0.1F)), 100);
+        long version = tracker.getSnapshot().getVersion();
+
+        tracker.clear();
+
+        assertEquals(0, tracker.getTrackCount());
+        assertEquals(0, tracker.getSnapshot().getTrackCount());
+        assertEquals(version + 1, tracker.getSnapshot().getVersion());
+        // A face at the same place starts a new, unconfirmed track
+        tracker.update(Collections.singletonList(box(0.1F, 0.1F)), 200);
+        assertTrue(tracker.hasUnconfirmedTracks());
+    }
+
+    @Test
+    public void getSnapshot_isNeverTornWhileUpdating() throws Exception {
+        // Without coasting every published track comes from the same update, whose generation is encoded in the height
+        FaceTracker tracker = new FaceTracker(0.2F, 0, 500);
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread[] readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                FaceTracker.Predictor predictor = new FaceTracker.Predictor();
+                long lastVersion = -1;
+                while (!done.get() && failure.get() == null) {
+                    FaceTracker.Snapshot snapshot = tracker.getSnapshot();
+                    if (snapshot.getVersion() < lastVersion) {
+                        failure.set("Version went back from " + lastVersion + " to " + snapshot.getVersion());
+                    }
+                    lastVersion = snapshot.getVersion();
+
+                    List<FDBoundingBox> boxes = predictor.predict(snapshot, snapshot.getTimestampMs());
+                    if (boxes.isEmpty()) {
+                        continue;
+                    }
+                    int generation = Math.round((boxes.get(0).getHeight() - 0.05F) / 0.001F);
+                    if (boxes.size() != generation % 6) {
+                        failure.set(boxes.size() + " boxes in generation " + generation);
+                    }
+                    for (FDBoundingBox box : boxes) {
+                        if (Math.abs(box.getHeight() - boxes.get(0).getHeight()) > 1e-6) {
+                            failure.set("Mixed generations in snapshot " + snapshot.getVersion());
+                        }
+                    }
+                }
+            });
+            readers[r].start();
+        }
+
+        List<FDBoundingBox> detections = new ArrayList<>();
+        for (int k = 1; k <= 100000 && failure.get() == null; k++) {
+            int generation = k % 100;
+            detections.clear();
+            for (int i = 0; i < generation % 6; i++) {
+                detections.add(new FDBoundingBox(0, i * 0.15F, 0.1F, 0.1F, 0.05F + generation * 0.001F));
+            }
+            tracker.update(detections, k * 10L);
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(100000, tracker.getSnapshot().getVersion());
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MaskPassTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+
+    @Test
+    public void run_parallelOutputMatchesSerial() {
+        Random random = new Random(11);
+        MaskPass serial = new MaskPass(0, 0);
+        MaskPass parallel = new MaskPass(3, 0);
+        MaskPlanner planner = new MaskPlanner();
+        try {
+            for (int round = 0; round < 60; round++) {
+                AnonymizationMode mode = AnonymizationMode.values()[round % AnonymizationMode.values().length];
+                int blockSize = 2 * (1 + random.nextInt(8));
+                int blurRadius = 1 + random.nextInt(12);
+                planner.reset(WIDTH, HEIGHT);
+                int count = 1 + random.nextInt(12);
+                for (int i = 0; i < count; i++) {
+                    planner.addArea(random.nextInt(HEIGHT) - 20, random.nextInt(WIDTH) - 20,
+                            10 + random.nextInt(150), 10 + random.nextInt(150));
+                }
+                planner.plan(blockSize);
+
+                byte[] expected = new byte[WIDTH * HEIGHT * 3 / 2];
+                random.nextBytes(expected);
+                byte[] actual = expected.clone();
+                serial.run(YuvPlanes.wrapNV21(expected, WIDTH, HEIGHT), planner, mode, blockSize, blurRadius);
+                parallel.run(YuvPlanes.wrapNV21(actual, WIDTH, HEIGHT), planner, mode, blockSize, blurRadius);
+
+                assertArrayEquals("round " + round + " " + mode, expected, actual);
+            }
+            assertEquals(60, parallel.getParallelCount());
+            assertEquals(0, serial.getParallelCount());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void run_staysSerialBelowThreshold() {
+        MaskPass maskPass = new MaskPass(2, WIDTH * HEIGHT);
+        MaskPlanner planner = new MaskPlanner();
+        planner.reset(WIDTH, HEIGHT);
+        planner.addArea(0, 0, WIDTH / 2, HEIGHT);
+        planner.plan(8);
+        try {
+            maskPass.run(YuvPlanes.wrapNV21(new byte[WIDTH * HEIGHT * 3 / 2], WIDTH, HEIGHT), planner,
+                    AnonymizationMode.PIXELATE, 8, 8);
+            assertEquals(0, maskPass.getParallelCount());
+        } finally {
+            maskPass.shutdown();
+        }
+    }
+}
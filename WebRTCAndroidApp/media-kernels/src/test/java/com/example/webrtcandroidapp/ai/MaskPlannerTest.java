@@ -0,0 +1,96 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class MaskPlannerTest {
+
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+
+    @Test
+    public void plan_mergesOverlappingAreas() {
+        MaskPlanner planner = new MaskPlanner();
+        planner.reset(WIDTH, HEIGHT);
+        planner.addArea(10, 10, 40, 40);
+        planner.addArea(10, 10, 40, 40);
+        planner.addArea(20, 20, 10, 10);
+        planner.plan(1);
+
+        assertEquals(1, planner.getRectCount());
+        assertRect(planner, 0, 10, 10, 40, 40);
+        assertEquals(1600, planner.getArea());
+    }
+
+    @Test
+    public void plan_clipsAndSnapsToCellGrid() {
+        MaskPlanner planner = new MaskPlanner();
+        planner.reset(WIDTH, HEIGHT);
+        planner.addArea(-6, 150, 30, 30);
+        planner.addArea(200, 10, 10, 10);
+        planner.plan(8);
+
+        assertEquals(1, planner.getRectCount());
+        // Top clipped to 0, left snapped down to 144, right clipped to the frame width
+        assertRect(planner, 0, 0, 144, WIDTH - 144, 24);
+    }
+
+    @Test
+    public void plan_coversUnionWithDisjointRects() {
+        Random random = new Random(7);
+        MaskPlanner planner = new MaskPlanner();
+        for (int round = 0; round < 50; round++) {
+            int cellSize = 1 + random.nextInt(6);
+            int count = 1 + random.nextInt(30);
+            boolean[] expected = new boolean[WIDTH * HEIGHT];
+            planner.reset(WIDTH, HEIGHT);
+            for (int i = 0; i < count; i++) {
+                int top = random.nextInt(HEIGHT + 20) - 20;
+                int left = random.nextInt(WIDTH + 20) - 20;
+                int width = 1 + random.nextInt(60);
+                int height = 1 + random.nextInt(60);
+                planner.addArea(top, left, width, height);
+                markSnapped(expected, top, left, width, height, cellSize);
+            }
+            planner.plan(cellSize);
+
+            int[] covered = new int[WIDTH * HEIGHT];
+            for (int r = 0; r < planner.getRectCount(); r++) {
+                for (int y = planner.getTop(r); y < planner.getTop(r) + planner.getHeight(r); y++) {
+                    for (int x = planner.getLeft(r); x < planner.getLeft(r) + planner.getWidth(r); x++) {
+                        covered[y * WIDTH + x]++;
+                    }
+                }
+            }
+            long area = 0;
+            for (int i = 0; i < covered.length; i++) {
+                assertTrue("pixel covered twice", covered[i] <= 1);
+                assertEquals(expected[i], covered[i] == 1);
+                area += covered[i];
+            }
+            assertEquals(area, planner.getArea());
+        }
+    }
+
+    private static void markSnapped(boolean[] mask, int top, int left, int width, int height, int cellSize) {
+        int y0 = Math.max(top, 0) / cellSize * cellSize;
+        int x0 = Math.max(left, 0) / cellSize * cellSize;
+        int y1 = Math.min((Math.min(top + height, HEIGHT) + cellSize - 1) / cellSize * cellSize, HEIGHT);
+        int x1 = Math.min((Math.min(left + width, WIDTH) + cellSize - 1) / cellSize * cellSize, WIDTH);
+        for (int y = y0; y < y1; y++) {
+            for (int x = x0; x < x1; x++) {
+                mask[y * WIDTH + x] = true;
+            }
+        }
+    }
+
+    private static void assertRect(MaskPlanner planner, int index, int top, int left, int width, int height) {
+        assertEquals(top, planner.getTop(index));
+        assertEquals(left, planner.getLeft(index));
+        assertEquals(width, planner.getWidth(index));
+        assertEquals(height, planner.getHeight(index));
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MotionGateTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    private static YuvPlanes planes(byte[] nv21) {
+        return YuvPlanes.wrapNV21(nv21, WIDTH, HEIGHT);
+    }
+
+    private static byte[] frame(int luma) {
+        byte[] nv21 = new byte[WIDTH * HEIGHT * 3 / 2];
+        java.util.Arrays.fill(nv21, (byte) luma);
+        return nv21;
+    }
+
+    // Fills a block of luma, in frame-relative coordinates
+    private static void fillLuma(byte[] nv21, float left, float top, float width, float height, int luma) {
+        for (int y = (int) (top * HEIGHT); y < (int) ((top + height) * HEIGHT); y++) {
+            for (int x = (int) (left * WIDTH); x < (int) ((left + width) * WIDTH); x++) {
+                nv21[y * WIDTH + x] = (byte) luma;
+            }
+        }
+    }
+
+    @Test
+    public void shouldAnalyze_skipsUnchangedFramesAndCatchesLocalMotion() {
+        MotionGate gate = new MotionGate(6F, 3F, 5000, 500);
+        List<FDBoundingBox> noTracks = Collections.emptyList();
+
+        assertTrue(gate.shouldAnalyze(planes(frame(100)), noTracks, 0));
+        assertFalse(gate.shouldAnalyze(planes(frame(102)), noTracks, 100));
+
+        // Someone entering a corner changes one cell but barely the frame average
+        byte[] changed = frame(100);
+        fillLuma(changed, 0.85F, 0.8F, 0.15F, 0.2F, 200);
+        assertTrue(gate.shouldAnalyze(planes(changed), noTracks, 200));
+
+        assertEquals(3, gate.getEvaluatedCount());
+        assertEquals(1, gate.getSkippedCount());
+        assertEquals(1F / 3, gate.getSkipRatio(), 1e-6);
+    }
+
+    @Test
+    public void shouldAnalyze_isMoreSensitiveAroundTracks() {
+        MotionGate gate = new MotionGate(6F, 3F, 5000, 5000);
+        List<FDBoundingBox> tracks = Collections.singletonList(new FDBoundingBox(0, 0.4F, 0.4F, 0.2F, 0.2F));
+        // A slight change covering the cells around the face, below the general threshold
+        byte[] subtleChange = frame(100);
+        fillLuma(subtleChange, 0.375F, 1F / 3, 0.25F, 1F / 3, 105);
+
+        gate.shouldAnalyze(planes(frame(100)), tracks, 0);
+        assertTrue(gate.shouldAnalyze(planes(subtleChange), tracks, 100));
+
+        gate.shouldAnalyze(planes(frame(100)), Collections.emptyList(), 200);
+        assertFalse(gate.shouldAnalyze(planes(subtleChange), Collections.emptyList(), 300));
+    }
+
+    @Test
+    public void shouldAnalyze_refreshesTracksAfterTheMaximumSkipTime() {
+        MotionGate gate = new MotionGate(6F, 3F, 5000, 500);
+        List<FDBoundingBox> tracks = Collections.singletonList(new FDBoundingBox(0, 0.4F, 0.4F, 0.2F, 0.2F));
+        byte[] nv21 = frame(100);
+
+        assertTrue(gate.shouldAnalyze(planes(nv21), tracks, 0));
+        assertFalse(gate.shouldAnalyze(planes(nv21), tracks, 499));
+        assertTrue(gate.shouldAnalyze(planes(nv21), tracks, 500));
+        assertFalse(gate.shouldAnalyze(planes(nv21), Collections.emptyList(), 1500));
+    }
+}
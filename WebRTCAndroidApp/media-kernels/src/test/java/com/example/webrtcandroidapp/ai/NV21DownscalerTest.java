@@ -0,0 +1,108 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NV21DownscalerTest {
+
+    @Test
+    public void downscale_averagesEachPlaneByArea() {
+        // 4x4 luma with 2x2 blocks of 10/20/30/40, 2x2 VU samples
+        byte[] src = {
+                10, 10, 20, 20,
+                10, 10, 20, 20,
+                30, 30, 40, 40,
+                30, 30, 40, 40,
+                100, (byte) 200, 102, (byte) 202,
+                104, (byte) 204, 106, (byte) 206
+        };
+        byte[] dst = new byte[2 * 2 * 3 / 2];
+
+        new NV21Downscaler().downscale(src, 4, 4, dst, 2, 2);
+
+        assertArrayEquals(new byte[] { 10, 20, 30, 40, 103, (byte) 203 }, dst);
+    }
+
+    @Test
+    public void toFrameBox_mapsWholeFrameLevelsOneToOne() {
+        DetectionPyramid pyramid = new DetectionPyramid(128, 256);
+        pyramid.setFrameSize(1280, 720);
+
+        assertEquals(128, pyramid.getLevel(0).getWidth());
+        assertEquals(72, pyramid.getLevel(0).getHeight());
+        FDBoundingBox box = pyramid.getLevel(1).toFrameBox(0, 0.25F, 0.5F, 0.1F, 0.2F, 1280, 720);
+        assertEquals(0.25F, box.getXMin(), 1e-6);
+        assertEquals(0.5F, box.getYMin(), 1e-6);
+        assertEquals(0.1F, box.getWidth(), 1e-6);
+        assertEquals(0.2F, box.getHeight(), 1e-6);
+    }
+
+    @Test
+    public void downscale_scalesOnlyTheRegion() {
+        // 4x4 luma, region is the bottom-right 2x2 quadrant
+        byte[] src = {
+                1, 2, 3, 4,
+                5, 6, 7, 8,
+                9, 10, 11, 12,
+                13, 14, 21, 23,
+                100, (byte) 200, 50, 60,
+                104, (byte) 204, 70, 80
+        };
+        byte[] dst = new byte[1 * 1 * 3 / 2 + 1];
+
+        new NV21Downscaler().downscale(src, 4, 4, 2, 2, 2, 2, dst, 1, 1);
+
+        assertEquals(17, dst[0]);
+    }
+
+    @Test
+    public void crops_mapBoxesWithTheRegionsOfTheirCycle() {
+        DetectionCrops crops = new DetectionCrops(128, 2);
+        crops.setFrameSize(1280, 720);
+        byte[] frame = new byte[1280 * 720 * 3 / 2];
+        List<FDBoundingBox> regions = new ArrayList<>();
+        regions.add(new FDBoundingBox(0, 0.5F, 0.5F, 0.05F, 0.05F));
+        assertTrue(crops.update(frame, regions, 7));
+
+        // A small region is grown to the crop size, so the crop is not upscaled
+        DetectionPyramid.Level crop = crops.getCrop(0);
+        assertEquals(128, crop.getWidth());
+        assertEquals(128, crop.getHeight());
+
+        regions.set(0, new FDBoundingBox(0, 0F, 0F, 0.4F, 0.4F));
+        assertTrue(crops.update(frame, regions, 8));
+        assertEquals(1, crops.getCropCount(7));
+
+        // The whole crop of cycle 7 is the 128x128 square centred on the region
+        FDBoundingBox box = crops.toFrameBox(7, 0, 0, 0F, 0F, 1F, 1F);
+        assertEquals((640 + 32 - 64) / 1280F, box.getXMin(), 1e-6);
+        assertEquals((360 + 18 - 64) / 720F, box.getYMin(), 1e-6);
+        assertEquals(128 / 1280F, box.getWidth(), 1e-6);
+        assertEquals(128 / 720F, box.getHeight(), 1e-6);
+        // Cycle 8 crops a square from the top-left corner, downscaled
+        box = crops.toFrameBox(8, 0, 0, 0.5F, 0.5F, 0.5F, 0.5F);
+        assertEquals(256 / 1280F, box.getXMin(), 1e-6);
+        assertEquals(256 / 720F, box.getYMin(), 1e-6);
+        assertNull(crops.toFrameBox(9, 0, 0, 0F, 0F, 1F, 1F));
+        assertNull(crops.toFrameBox(8, 1, 0, 0F, 0F, 1F, 1F));
+    }
+
+    @Test
+    public void crops_refuseRegionsTheyCannotCover() {
+        DetectionCrops crops = new DetectionCrops(128, 1);
+        crops.setFrameSize(1280, 720);
+        byte[] frame = new byte[1280 * 720 * 3 / 2];
+        List<FDBoundingBox> regions = new ArrayList<>();
+        regions.add(new FDBoundingBox(0, 0F, 0F, 0.8F, 0.5F));
+        assertFalse(crops.update(frame, regions, 1));
+
+        regions.set(0, new FDBoundingBox(0, 0F, 0F, 0.1F, 0.1F));
+        regions.add(new FDBoundingBox(1, 0.5F, 0.5F, 0.1F, 0.1F));
+        assertFalse(crops.update(frame, regions, 2));
+        assertEquals(0, crops.getCropCount(2));
+    }
+}
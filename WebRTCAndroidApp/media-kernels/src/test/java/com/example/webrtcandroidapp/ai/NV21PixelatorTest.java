@@ -0,0 +1,115 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NV21PixelatorTest {
+
+    @Test
+    public void pixelate_matchesMapBasedImplementation() {
+        Random random = new Random(42);
+        NV21Pixelator pixelator = new NV21Pixelator();
+
+        for (int i = 0; i < 2000; i++) {
+            int frameWidth = 2 * (20 + random.nextInt(200));
+            int frameHeight = 2 * (20 + random.nextInt(150));
+            int ySize = frameWidth * frameHeight;
+            byte[] expected = new byte[ySize * 3 / 2];
+            random.nextBytes(expected);
+            byte[] actual = expected.clone();
+
+            int width = 1 + random.nextInt(frameWidth);
+            int height = 1 + random.nextInt(frameHeight);
+            int left = random.nextInt(frameWidth - width + 1);
+            int top = random.nextInt(frameHeight - height + 1);
+            int blockSize = 1 + random.nextInt(12);
+
+            pixelateWithMap(expected, frameWidth, top, left, width, height, ySize, (int) (1.5F * ySize), blockSize);
+            pixelator.pixelate(actual, frameWidth, frameHeight, ySize, top, left, width, height, blockSize);
+
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void pixelate_clipsAtFrameEdges() {
+        int frameWidth = 64;
+        int frameHeight = 48;
+        int ySize = frameWidth * frameHeight;
+        NV21Pixelator pixelator = new NV21Pixelator();
+        int[][] areas = { { -10, -10, 30, 30 }, { 50, 40, 40, 40 }, { -20, 20, 200, 8 }, { 10, -30, 8, 200 } };
+
+        for (int[] area : areas) {
+            int left = area[0];
+            int top = area[1];
+            byte[] frame = new byte[ySize * 3 / 2];
+            Arrays.fill(frame, (byte) 1);
+
+            pixelator.pixelate(frame, frameWidth, frameHeight, ySize, top, left, area[2], area[3], 8);
+
+            for (int y = 0; y < frameHeight; y++) {
+                for (int x = 0; x < frameWidth; x++) {
+                    boolean inside = x >= left && x < left + area[2] && y >= top && y < top + area[3];
+                    if (!inside) {
+                        assertEquals(1, frame[y * frameWidth + x]);
+                    }
+                }
+            }
+            for (int y = 0; y < frameHeight / 2; y++) {
+                for (int x = 0; x < frameWidth; x++) {
+                    boolean inside = x >= left && x < left + area[2] && y >= top / 2 && y < top / 2 + area[3] / 2;
+                    if (!inside) {
+                        assertEquals(1, frame[ySize + y * frameWidth + x]);
+                    }
+                }
+            }
+        }
+    }
+
+    // Previous HashMap based implementation, kept as the reference for the expected output
+    private static void pixelateWithMap(byte[] nv21, int previewWidth, int top, int left, int width, int height,
+                                        int uvOffset, int totalLength, int pixelationBoxSize) {
+        int uvHeight = (int) Math.floor(height / 2.0);
+        Map<Integer, Byte> replacementPixelMap = new HashMap<>();
+        int keyOffset = Math.max(height, width);
+
+        for (int w = 0; w < height; w++) {
+            int imgPos = (top + w) * previewWidth + left;
+            for (int h = 0; h < width; h++) {
+                int yPosition = h + imgPos;
+                if (yPosition >= 0 && yPosition <= uvOffset) {
+                    int key = (h - h % pixelationBoxSize) * keyOffset + (w - w % pixelationBoxSize);
+                    if (h % pixelationBoxSize == 0 && w % pixelationBoxSize == 0) {
+                        replacementPixelMap.put(key, nv21[yPosition]);
+                    } else {
+                        Byte replacementPixelY = replacementPixelMap.get(key);
+                        nv21[yPosition] = replacementPixelY != null ? replacementPixelY : (byte) 90;
+                    }
+                }
+            }
+        }
+        replacementPixelMap.clear();
+        for (int w = 0; w < uvHeight; w++) {
+            int imgPos = uvOffset + (top / 2 + w) * previewWidth + left;
+            for (int h = 0; h < width; h++) {
+                int uvPosition = h + imgPos;
+                if (uvPosition <= totalLength) {
+                    int offset = h % 2;
+                    int key = ((h - h % pixelationBoxSize) * keyOffset + (w - w % pixelationBoxSize)) + (offset * keyOffset * keyOffset);
+                    if ((h - offset) % pixelationBoxSize == 0 && w % pixelationBoxSize == 0) {
+                        replacementPixelMap.put(key, nv21[uvPosition]);
+                    } else {
+                        Byte replacementPixelUV = replacementPixelMap.get(key);
+                        nv21[uvPosition] = replacementPixelUV != null ? replacementPixelUV : (byte) 128;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.webrtcandroidapp.ai;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NV21ToArgbConverterTest {
+
+    // 4x2 frame: black, mid grey and two pixels of a saturated red chroma pair, with the expected ARGB output
+    private static final byte[] GOLDEN_NV21 = {
+            16, 16, (byte) 235, (byte) 235,
+            126, 126, 81, 81,
+            (byte) 128, (byte) 128, (byte) 240, 90
+    };
+    private static final int[] GOLDEN_ARGB = {
+            0xFF000000, 0xFF000000, 0xFFFFB3B2, 0xFFFFB3B2,
+            0xFF808080, 0xFF808080, 0xFFFF0000, 0xFFFF0000
+    };
+
+    @Test
+    public void convert_matchesGoldenPixels() {
+        int[] argb = new int[8];
+
+        new NV21ToArgbConverter(1).convert(GOLDEN_NV21, 4, 2, argb);
+
+        assertArrayEquals(GOLDEN_ARGB, argb);
+    }
+
+    @Test
+    public void convert_staysWithinOneStepOfFloatingPointReference() {
+        int width = 64;
+        int height = 48;
+        byte[] nv21 = randomFrame(width, height, 7);
+        int[] argb = new int[width * height];
+
+        new NV21ToArgbConverter(1).convert(nv21, width, height, argb);
+
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                int y = nv21[row * width + column] & 0xFF;
+                int uvIndex = width * height + (row / 2) * width + (column & ~1);
+                int v = nv21[uvIndex] & 0xFF;
+                int u = nv21[uvIndex + 1] & 0xFF;
+                int expected = referenceArgb(y, u, v);
+                int actual = argb[row * width + column];
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    assertEquals((expected >> shift) & 0xFF, (actual >> shift) & 0xFF, 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void convert_parallelMatchesSerial() {
+        int width = 1280;
+        int height = 720;
+        byte[] nv21 = randomFrame(width, height, 11);
+        int[] serial = new int[width * height];
+        int[] parallel = new int[width * height];
+        NV21ToArgbConverter parallelConverter = new NV21ToArgbConverter(4);
+
+        new NV21ToArgbConverter(1).convert(nv21, width, height, serial);
+        parallelConverter.convert(nv21, width, height, parallel);
+        parallelConverter.close();
+
+        assertArrayEquals(serial, parallel);
+    }
+
+    private static byte[] randomFrame(int width, int height, long seed) {
+        byte[] nv21 = new byte[width * height * 3 / 2];
+        new Random(seed).nextBytes(nv21);
+        return nv21;
+    }
+
+    private static int referenceArgb(int y, int u, int v) {
+        double luma = 1.164 * (y - 16);
+        int red = clamp(Math.round(luma + 1.596 * (v - 128)));
+        int green = clamp(Math.round(luma - 0.391 * (u - 128) - 0.813 * (v - 128)));
+        int blue = clamp(Math.round(luma + 2.018 * (u - 128)));
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    private static int clamp(long value) {
+        return (int) Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class YuvPlaneBlurTest {
+
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 64;
+
+    @Test
+    public void blur_matchesNaiveBoxBlurOnLuma() {
+        Random random = new Random(5);
+        YuvPlaneBlur blur = new YuvPlaneBlur();
+        for (int i = 0; i < 500; i++) {
+            byte[] expected = new byte[WIDTH * HEIGHT * 3 / 2];
+            random.nextBytes(expected);
+            byte[] actual = expected.clone();
+            int top = random.nextInt(HEIGHT + 20) - 10;
+            int left = random.nextInt(WIDTH + 20) - 10;
+            int width = 1 + random.nextInt(WIDTH);
+            int height = 1 + random.nextInt(HEIGHT);
+            int radius = 1 + random.nextInt(12);
+
+            naiveBlur(expected, WIDTH, HEIGHT, top, left, width, height, radius);
+            blur.blur(YuvPlanes.wrapNV21(actual, WIDTH, HEIGHT), top, left, width, height, radius);
+
+            assertArrayEquals(Arrays.copyOf(expected, WIDTH * HEIGHT), Arrays.copyOf(actual, WIDTH * HEIGHT));
+        }
+    }
+
+    @Test
+    public void blur_keepsFlatAreasAndOtherSamplesUnchanged() {
+        int padding = 12;
+        int yRowStride = WIDTH + padding;
+        int uvRowStride = WIDTH + padding;
+        ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * HEIGHT);
+        ByteBuffer u = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+        ByteBuffer v = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) 200);
+        }
+        for (int i = 0; i < u.capacity(); i++) {
+            // Interleaved like a camera image - the odd bytes of U are V samples and must stay untouched
+            u.put(i, (byte) (i % 2 == 0 ? 100 : 7));
+            v.put(i, (byte) 50);
+        }
+        YuvPlanes planes = new YuvPlanes().set(WIDTH, HEIGHT, y, yRowStride, u, v, uvRowStride, 2);
+
+        new YuvPlaneBlur().blur(planes, 10, 20, 40, 30, 9);
+
+        for (int i = 0; i < y.capacity(); i++) {
+            assertEquals((byte) 200, y.get(i));
+        }
+        for (int i = 0; i < u.capacity(); i++) {
+            assertEquals((byte) (i % 2 == 0 ? 100 : 7), u.get(i));
+            assertEquals((byte) 50, v.get(i));
+        }
+        assertEquals(0, y.position());
+    }
+
+    // Mean of the (2r+1)^2 window, with coordinates clamped to the clipped area
+    private static void naiveBlur(byte[] nv21, int frameWidth, int frameHeight, int top, int left, int width, int height, int radius) {
+        int rowStart = Math.max(top, 0);
+        int rowEnd = Math.min(top + height, frameHeight);
+        int columnStart = Math.max(left, 0);
+        int columnEnd = Math.min(left + width, frameWidth);
+        if (rowStart >= rowEnd || columnStart >= columnEnd) {
+            return;
+        }
+
+        byte[] source = nv21.clone();
+        int count = (2 * radius + 1) * (2 * radius + 1);
+        for (int row = rowStart; row < rowEnd; row++) {
+            for (int column = columnStart; column < columnEnd; column++) {
+                int sum = 0;
+                for (int dy = -radius; dy <= radius; dy++) {
+                    int sampleRow = Math.min(Math.max(row + dy, rowStart), rowEnd - 1);
+                    for (int dx = -radius; dx <= radius; dx++) {
+                        int sampleColumn = Math.min(Math.max(column + dx, columnStart), columnEnd - 1);
+                        sum += source[sampleRow * frameWidth + sampleColumn] & 0xFF;
+                    }
+                }
+                nv21[row * frameWidth + column] = (byte) ((sum + count / 2) / count);
+            }
+        }
+    }
+}
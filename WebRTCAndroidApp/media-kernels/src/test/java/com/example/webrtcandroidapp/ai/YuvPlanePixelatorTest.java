@@ -0,0 +1,79 @@
+package com.example.webrtcandroidapp.ai;
+
+import com.example.webrtcandroidapp.capturers.YuvPlanes;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class YuvPlanePixelatorTest {
+
+    private static final int WIDTH = 96;
+    private static final int HEIGHT = 64;
+
+    @Test
+    public void pixelate_matchesNV21PixelatorOnLuma() {
+        Random random = new Random(3);
+        NV21Pixelator nv21Pixelator = new NV21Pixelator();
+        YuvPlanePixelator planePixelator = new YuvPlanePixelator();
+        for (int i = 0; i < 2000; i++) {
+            byte[] expected = new byte[WIDTH * HEIGHT * 3 / 2];
+            random.nextBytes(expected);
+            byte[] actual = expected.clone();
+            int top = random.nextInt(HEIGHT + 20) - 10;
+            int left = random.nextInt(WIDTH + 20) - 10;
+            int width = random.nextInt(WIDTH);
+            int height = random.nextInt(HEIGHT);
+            int blockSize = 2 + random.nextInt(10);
+
+            nv21Pixelator.pixelate(expected, WIDTH, HEIGHT, WIDTH * HEIGHT, top, left, width, height, blockSize);
+            planePixelator.pixelate(YuvPlanes.wrapNV21(actual, WIDTH, HEIGHT), top, left, width, height, blockSize);
+
+            assertArrayEquals(Arrays.copyOf(expected, WIDTH * HEIGHT), Arrays.copyOf(actual, WIDTH * HEIGHT));
+        }
+    }
+
+    @Test
+    public void pixelate_fillsChromaBlocksAndLeavesRowPaddingAlone() {
+        int padding = 12;
+        int yRowStride = WIDTH + padding;
+        int uvRowStride = WIDTH + padding;
+        ByteBuffer y = ByteBuffer.allocateDirect(yRowStride * HEIGHT);
+        ByteBuffer u = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+        ByteBuffer v = ByteBuffer.allocateDirect(uvRowStride * HEIGHT / 2);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) i);
+        }
+        for (int i = 0; i < u.capacity(); i++) {
+            u.put(i, (byte) (i * 3));
+            v.put(i, (byte) (i * 5));
+        }
+        YuvPlanes planes = new YuvPlanes().set(WIDTH, HEIGHT, y, yRowStride, u, v, uvRowStride, 2);
+
+        // The whole frame in 8x8 blocks
+        new YuvPlanePixelator().pixelate(planes, 0, 0, WIDTH, HEIGHT, 8);
+
+        for (int row = 0; row < HEIGHT; row++) {
+            for (int column = 0; column < WIDTH; column++) {
+                int anchor = (row / 8 * 8) * yRowStride + column / 8 * 8;
+                assertEquals((byte) anchor, y.get(row * yRowStride + column));
+            }
+            for (int column = WIDTH; column < yRowStride; column++) {
+                assertEquals((byte) (row * yRowStride + column), y.get(row * yRowStride + column));
+            }
+        }
+        for (int row = 0; row < HEIGHT / 2; row++) {
+            for (int column = 0; column < WIDTH / 2; column++) {
+                int anchor = (row / 4 * 4) * uvRowStride + (column / 4 * 4) * 2;
+                assertEquals((byte) (anchor * 3), u.get(row * uvRowStride + column * 2));
+                assertEquals((byte) (anchor * 5), v.get(row * uvRowStride + column * 2));
+                // Bytes between the samples of a plane belong to the other plane in a real image
+                assertEquals((byte) ((row * uvRowStride + column * 2 + 1) * 3), u.get(row * uvRowStride + column * 2 + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CameraFormatSelectorTest {
+
+    @Test
+    public void chooseSize_picksClosestSize() {
+        int[] widths = { 1920, 1280, 640, 352, 320 };
+        int[] heights = { 1080, 720, 480, 288, 240 };
+
+        assertEquals(2, CameraFormatSelector.chooseSize(widths, heights, 640, 480));
+        assertEquals(1, CameraFormatSelector.chooseSize(widths, heights, 1280, 960));
+        assertEquals(4, CameraFormatSelector.chooseSize(widths, heights, 320, 240));
+        assertEquals(-1, CameraFormatSelector.chooseSize(new int[0], new int[0], 640, 480));
+    }
+
+    @Test
+    public void chooseFpsRange_reachesFrameRateWithRoomForAutoExposure() {
+        int[] minimums = { 7, 15, 30, 15, 24 };
+        int[] maximums = { 30, 30, 30, 15, 24 };
+
+        assertEquals(1, CameraFormatSelector.chooseFpsRange(minimums, maximums, 30));
+        assertEquals(3, CameraFormatSelector.chooseFpsRange(minimums, maximums, 15));
+        // Only fixed ranges - the closest maximum wins
+        assertEquals(0, CameraFormatSelector.chooseFpsRange(new int[] { 30, 60 }, new int[] { 30, 60 }, 25));
+        assertEquals(-1, CameraFormatSelector.chooseFpsRange(new int[0], new int[0], 30));
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CaptureFormatControllerTest {
+
+    private static final List<CaptureFormatController.Format> LADDER = Arrays.asList(
+            new CaptureFormatController.Format(1280, 720, 30),
+            new CaptureFormatController.Format(640, 480, 30),
+            new CaptureFormatController.Format(640, 480, 15),
+            new CaptureFormatController.Format(320, 240, 15));
+    private static final long WINDOW_MS = 2000;
+    private static final long MS = 1_000_000L;
+    private static final int BITRATE = 5_000_000;
+
+    @Test
+    public void update_stepsDownOnLoadDropsAndBitrate() {
+        CaptureFormatController controller = new CaptureFormatController(LADDER, 1, 0.8F, 0.05F, 0.05F, 10000, 3);
+
+        // Busy for 90% of the window
+        assertTrue(controller.update(2000, WINDOW_MS, 60, 0, 1800 * MS, 0));
+        assertEquals(2, controller.getLevel());
+        // The window after a change is skipped
+        assertFalse(controller.update(4000, WINDOW_MS, 30, 10, 100 * MS, 0));
+        assertTrue(controller.update(6000, WINDOW_MS, 30, 10, 100 * MS, 0));
+        assertEquals(3, controller.getLevel());
+        assertEquals("320x240@15", controller.getFormat().toString());
+
+        // Already at the cheapest format
+        assertFalse(controller.update(8000, WINDOW_MS, 30, 0, 1900 * MS, 0));
+        assertFalse(controller.update(10000, WINDOW_MS, 30, 0, 1900 * MS, 0));
+        assertEquals(2, controller.getChangeCount());
+
+        // 640x480@30 needs about 460 kbps
+        CaptureFormatController network = new CaptureFormatController(LADDER, 1, 0.8F, 0.05F, 0.05F, 10000, 3);
+        assertTrue(network.update(2000, WINDOW_MS, 60, 0, 200 * MS, 300_000));
+        assertEquals(2, network.getLevel());
+    }
+
+    @Test
+    public void update_stepsUpAfterHeadroomWindowsAndHoldTime() {
+        CaptureFormatController controller = new CaptureFormatController(LADDER, 2, 0.8F, 0.05F, 0.05F, 10000, 3);
+        assertTrue(controller.update(0, WINDOW_MS, 30, 0, 1800 * MS, 0));
+        assertEquals(3, controller.getLevel());
+        controller.update(2000, WINDOW_MS, 15, 0, 100 * MS, BITRATE);
+
+        // Three good windows, but still within the hold time
+        for (long now = 4000; now <= 8000; now += WINDOW_MS) {
+            assertFalse(controller.update(now, WINDOW_MS, 15, 0, 100 * MS, BITRATE));
+        }
+        assertTrue(controller.update(10000, WINDOW_MS, 15, 0, 100 * MS, BITRATE));
+        assertEquals(2, controller.getLevel());
+
+        // Not enough bitrate for the better format
+        controller.update(12000, WINDOW_MS, 15, 0, 100 * MS, BITRATE);
+        for (long now = 14000; now <= 30000; now += WINDOW_MS) {
+            assertFalse(controller.update(now, WINDOW_MS, 15, 0, 100 * MS, 500_000));
+        }
+        assertEquals(2, controller.getLevel());
+    }
+
+    @Test
+    public void update_doesNotStepUpWhenTheLoadWouldNotFit() {
+        CaptureFormatController controller = new CaptureFormatController(LADDER, 1, 0.8F, 0.05F, 0.05F, 0, 1);
+
+        // 40% busy at 640x480@30 would be 120% at 1280x720@30
+        for (long now = 0; now <= 10000; now += WINDOW_MS) {
+            assertFalse(controller.update(now, WINDOW_MS, 60, 0, 800 * MS, BITRATE));
+        }
+        assertTrue(controller.update(12000, WINDOW_MS, 60, 0, 200 * MS, BITRATE));
+        assertEquals(0, controller.getLevel());
+    }
+
+    @Test
+    public void setMinLevel_keepsTheControllerOffTheBetterFormats() {
+        CaptureFormatController controller = new CaptureFormatController(LADDER, 1, 0.8F, 0.05F, 0.05F, 0, 1);
+
+        assertTrue(controller.setMinLevel(2, 0));
+        assertEquals(2, controller.getLevel());
+        assertFalse(controller.setMinLevel(1, 0));
+        controller.update(2000, WINDOW_MS, 30, 0, 100 * MS, BITRATE);
+        assertTrue(controller.update(4000, WINDOW_MS, 30, 0, 100 * MS, BITRATE));
+        assertEquals(1, controller.getLevel());
+        controller.update(6000, WINDOW_MS, 60, 0, 100 * MS, BITRATE);
+        assertFalse(controller.update(8000, WINDOW_MS, 60, 0, 100 * MS, BITRATE));
+        assertEquals(1, controller.getLevel());
+    }
+
+    @Test
+    public void update_doesNotStepUpWithoutMeasurements() {
+        CaptureFormatController controller = new CaptureFormatController(LADDER, 3, 0.8F, 0.05F, 0.05F, 0, 1);
+
+        // No captured frames, e.g. while anonymization is off and nothing is counted
+        for (long now = 0; now <= 20000; now += WINDOW_MS) {
+            assertFalse(controller.update(now, WINDOW_MS, 0, 0, 0, BITRATE));
+        }
+        // Frames but no bitrate estimate yet, e.g. before the call connects
+        for (long now = 22000; now <= 40000; now += WINDOW_MS) {
+            assertFalse(controller.update(now, WINDOW_MS, 15, 0, 100 * MS, 0));
+        }
+        assertEquals(3, controller.getLevel());
+        assertTrue(controller.update(42000, WINDOW_MS, 15, 0, 100 * MS, BITRATE));
+        assertEquals(2, controller.getLevel());
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class DeferredCloserTest {
+
+    @Test
+    public void retire_closesOnceTheLastFrameIsReleased() {
+        AtomicInteger closeCount = new AtomicInteger();
+        DeferredCloser closer = new DeferredCloser(closeCount::incrementAndGet);
+
+        closer.onAcquired();
+        closer.onAcquired();
+        closer.onReleased();
+        closer.retire();
+        assertFalse(closer.isClosed());
+        closer.onReleased();
+        assertTrue(closer.isClosed());
+        assertEquals(1, closeCount.get());
+
+        // Without frames in use it closes right away, and only once
+        DeferredCloser idle = new DeferredCloser(closeCount::incrementAndGet);
+        idle.retire();
+        idle.retire();
+        assertTrue(idle.isClosed());
+        assertEquals(2, closeCount.get());
+    }
+
+    @Test
+    public void onReleased_doesNotCloseASourceInUse() {
+        AtomicInteger closeCount = new AtomicInteger();
+        DeferredCloser closer = new DeferredCloser(closeCount::incrementAndGet);
+
+        closer.onAcquired();
+        closer.onReleased();
+        assertFalse(closer.isClosed());
+        assertEquals(0, closer.getOpenCount());
+        assertEquals(0, closeCount.get());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class FrameProcessingStageTest {
+
+    // Blocks the stage on frame 0, queues 1..4 into a ring of 2 and returns the frames processed after unblocking
+    private static void runBlockedStage(FrameProcessingStage.DropPolicy dropPolicy, List<Integer> expectedProcessed,
+                                        List<Integer> expectedReleased) throws Exception {
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        CountDownLatch allProcessed = new CountDownLatch(expectedProcessed.size());
+        List<Integer> processed = new CopyOnWriteArrayList<>();
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        FrameProcessingStage<Integer> stage = new FrameProcessingStage<>("test", 2, dropPolicy, frame -> {
+            firstStarted.countDown();
+            try {
+                unblock.await(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            processed.add(frame);
+            allProcessed.countDown();
+        }, released::add);
+
+        stage.submit(0);
+        assertTrue(firstStarted.await(1, TimeUnit.SECONDS));
+        for (int frame = 1; frame <= 4; frame++) {
+            stage.submit(frame);
+        }
+        unblock.countDown();
+        assertTrue(allProcessed.await(1, TimeUnit.SECONDS));
+        stage.shutdown();
+
+        assertEquals(expectedProcessed, processed);
+        assertEquals(expectedReleased, released);
+        assertEquals(5, stage.getSubmittedCount());
+        assertEquals(2, stage.getDroppedCount());
+        assertEquals(3, stage.getProcessedCount());
+    }
+
+    @Test
+    public void submit_dropsOldestQueuedFrame() throws Exception {
+        runBlockedStage(FrameProcessingStage.DropPolicy.DROP_OLDEST, List.of(0, 3, 4), List.of(1, 2));
+    }
+
+    @Test
+    public void submit_dropsIncomingFrame() throws Exception {
+        runBlockedStage(FrameProcessingStage.DropPolicy.DROP_NEWEST, List.of(0, 1, 2), List.of(3, 4));
+    }
+
+    @Test
+    public void shutdown_releasesQueuedAndLateFrames() throws Exception {
+        CountDownLatch unblock = new CountDownLatch(1);
+        List<Integer> released = new CopyOnWriteArrayList<>();
+        FrameProcessingStage<Integer> stage = new FrameProcessingStage<>("test", 4, FrameProcessingStage.DropPolicy.DROP_OLDEST,
+                frame -> {
+                    try {
+                        unblock.await(1, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }, released::add);
+
+        stage.submit(0);
+        stage.submit(1);
+        stage.submit(2);
+        unblock.countDown();
+        stage.shutdown();
+        stage.submit(3);
+
+        // Frame 0 (and possibly 1 or 2) reached the processor, which owns it from then on
+        assertTrue(released.contains(3));
+        assertEquals(4, released.size() + stage.getProcessedCount());
+        assertEquals(0, stage.getQueueSize());
+    }
+
+    @Test
+    public void shutdown_waitsForTheFrameBeingProcessed() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        FrameProcessingStage<Integer> stage = new FrameProcessingStage<>("test", 1, FrameProcessingStage.DropPolicy.DROP_OLDEST,
+                frame -> {
+                    started.countDown();
+                    try {
+                        Thread.sleep(800);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    finished.set(true);
+                }, frame -> { });
+
+        stage.submit(0);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        stage.shutdown();
+
+        assertTrue(finished.get());
+        assertEquals(1, stage.getProcessedCount());
+    }
+}
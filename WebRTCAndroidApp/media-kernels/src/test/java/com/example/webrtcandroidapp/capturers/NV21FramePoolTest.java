@@ -0,0 +1,69 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class NV21FramePoolTest {
+
+    @Test
+    public void acquire_reusesReleasedBuffers() {
+        NV21FramePool pool = new NV21FramePool(2);
+
+        byte[] first = pool.acquire(100);
+        pool.release(first);
+        byte[] second = pool.acquire(100);
+
+        assertSame(first, second);
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getHitCount());
+    }
+
+    @Test
+    public void acquire_keepsSizeClassesApart() {
+        NV21FramePool pool = new NV21FramePool(2);
+
+        byte[] small = pool.acquire(100);
+        pool.release(small);
+        byte[] large = pool.acquire(200);
+
+        assertEquals(200, large.length);
+        assertEquals(2, pool.getMissCount());
+        assertEquals(0, pool.getHitCount());
+    }
+
+    @Test
+    public void acquire_countsExhaustionAndStaysBounded() {
+        NV21FramePool pool = new NV21FramePool(2);
+
+        byte[] first = pool.acquire(100);
+        byte[] second = pool.acquire(100);
+        byte[] third = pool.acquire(100);
+        assertEquals(1, pool.getExhaustedCount());
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        pool.acquire(100);
+        pool.acquire(100);
+        pool.acquire(100);
+
+        assertEquals(2, pool.getHitCount());
+        assertEquals(2, pool.getExhaustedCount());
+    }
+
+    @Test
+    public void trim_dropsOtherSizeClasses() {
+        NV21FramePool pool = new NV21FramePool(2);
+        byte[] small = pool.acquire(100);
+        byte[] large = pool.acquire(200);
+        pool.release(small);
+
+        pool.trim(200);
+        // The old size class is gone: a released array is dropped, a new one allocated
+        pool.release(pool.acquire(100));
+        assertNotSame(small, pool.acquire(100));
+        pool.release(large);
+        assertSame(large, pool.acquire(200));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NV21PlaneAssemblerTest {
+
+    // Copies an NV21 frame into strided planes, with PADDING bytes of 0x7F garbage at the end of every row
+    static YuvPlanes toStridedPlanes(byte[] nv21, int width, int height, int padding, int uvPixelStride) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int yRowStride = width + padding;
+        int uvRowStride = chromaWidth * uvPixelStride + padding;
+        ByteBuffer y = filledBuffer(yRowStride * height);
+        ByteBuffer u = filledBuffer(uvRowStride * chromaHeight);
+        ByteBuffer v = filledBuffer(uvRowStride * chromaHeight);
+        for (int row = 0; row < height; row++) {
+            for (int column = 0; column < width; column++) {
+                y.put(row * yRowStride + column, nv21[row * width + column]);
+            }
+        }
+        for (int row = 0; row < chromaHeight; row++) {
+            for (int column = 0; column < chromaWidth; column++) {
+                int index = width * height + (row * chromaWidth + column) * 2;
+                v.put(row * uvRowStride + column * uvPixelStride, nv21[index]);
+                u.put(row * uvRowStride + column * uvPixelStride, nv21[index + 1]);
+            }
+        }
+        return new YuvPlanes().set(width, height, y, yRowStride, u, v, uvRowStride, uvPixelStride);
+    }
+
+    static ByteBuffer filledBuffer(int capacity) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(capacity);
+        for (int i = 0; i < capacity; i++) {
+            buffer.put(i, (byte) 0x7F);
+        }
+        return buffer;
+    }
+
+    @Test
+    public void assemble_honoursRowAndPixelStrides() {
+        int width = 64;
+        int height = 48;
+        byte[] expected = new byte[NV21PlaneAssembler.getFrameLength(width, height)];
+        new Random(7).nextBytes(expected);
+
+        for (int uvPixelStride = 1; uvPixelStride <= 2; uvPixelStride++) {
+            for (int padding : new int[] { 0, 16 }) {
+                byte[] nv21 = new byte[expected.length];
+                NV21PlaneAssembler.assemble(toStridedPlanes(expected, width, height, padding, uvPixelStride), nv21);
+                assertArrayEquals("pixel stride " + uvPixelStride + ", padding " + padding, expected, nv21);
+            }
+        }
+    }
+}
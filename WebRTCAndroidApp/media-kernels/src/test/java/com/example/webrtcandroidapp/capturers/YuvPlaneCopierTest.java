@@ -0,0 +1,28 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class YuvPlaneCopierTest {
+
+    @Test
+    public void copy_convertsPaddedInterleavedChromaToPlanar() {
+        int width = 64;
+        int height = 48;
+        byte[] expected = new byte[NV21PlaneAssembler.getFrameLength(width, height)];
+        new Random(11).nextBytes(expected);
+        YuvPlanes source = NV21PlaneAssemblerTest.toStridedPlanes(expected, width, height, 16, 2);
+        YuvPlanes i420 = new YuvPlanes().set(width, height, ByteBuffer.allocateDirect(width * height), width,
+                ByteBuffer.allocateDirect(width * height / 4), ByteBuffer.allocateDirect(width * height / 4), width / 2, 1);
+
+        YuvPlaneCopier.copy(source, i420);
+
+        byte[] nv21 = new byte[expected.length];
+        NV21PlaneAssembler.assemble(i420, nv21);
+        assertArrayEquals(expected, nv21);
+    }
+}
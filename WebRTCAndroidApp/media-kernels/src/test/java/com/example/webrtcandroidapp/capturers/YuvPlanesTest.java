@@ -0,0 +1,39 @@
+package com.example.webrtcandroidapp.capturers;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class YuvPlanesTest {
+
+    @Test
+    public void getChromaLayout_findsSharedInterleavedPlanes() {
+        int width = 64;
+        int height = 48;
+        byte[] nv21 = new byte[NV21PlaneAssembler.getFrameLength(width, height)];
+
+        YuvPlanes nv21Planes = YuvPlanes.wrapNV21(nv21, width, height);
+        assertEquals(YuvPlanes.ChromaLayout.NV21, nv21Planes.getChromaLayout());
+        YuvPlanes nv12Planes = new YuvPlanes().set(width, height, nv21Planes.getY(), width,
+                nv21Planes.getV(), nv21Planes.getU(), width, 2);
+        assertEquals(YuvPlanes.ChromaLayout.NV12, nv12Planes.getChromaLayout());
+
+        assertEquals(YuvPlanes.ChromaLayout.SEPARATE,
+                NV21PlaneAssemblerTest.toStridedPlanes(nv21, width, height, 0, 2).getChromaLayout());
+        assertEquals(YuvPlanes.ChromaLayout.PLANAR,
+                NV21PlaneAssemblerTest.toStridedPlanes(nv21, width, height, 0, 1).getChromaLayout());
+        assertEquals(YuvPlanes.ChromaLayout.SEPARATE, new YuvPlanes().set(width, height, ByteBuffer.allocate(1), width,
+                ByteBuffer.allocateDirect(1), ByteBuffer.allocateDirect(1), width, 2).getChromaLayout());
+    }
+
+    @Test
+    public void getChromaLayout_comparesPlaneAddresses() {
+        assertEquals(YuvPlanes.ChromaLayout.NV12, YuvPlanes.getChromaLayout(2, 1000, 1001));
+        assertEquals(YuvPlanes.ChromaLayout.NV21, YuvPlanes.getChromaLayout(2, 1001, 1000));
+        assertEquals(YuvPlanes.ChromaLayout.SEPARATE, YuvPlanes.getChromaLayout(2, 1000, 5000));
+        assertEquals(YuvPlanes.ChromaLayout.SEPARATE, YuvPlanes.getChromaLayout(2, -1, -1));
+        assertEquals(YuvPlanes.ChromaLayout.PLANAR, YuvPlanes.getChromaLayout(1, 1000, 5000));
+    }
+}
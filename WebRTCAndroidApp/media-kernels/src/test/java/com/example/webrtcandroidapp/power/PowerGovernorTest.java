@@ -0,0 +1,62 @@
+package com.example.webrtcandroidapp.power;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PowerGovernorTest {
+
+    private static final int MODERATE = 2;
+    private static final int CRITICAL = 4;
+    private static final int SHUTDOWN = 6;
+
+    @Test
+    public void update_stepsDownRightAwayAndUpOneLevelPerHoldTime() {
+        PowerGovernor governor = new PowerGovernor(20, 10, 5, 60000);
+
+        assertFalse(governor.update(0, 0, 80, false));
+        assertTrue(governor.update(1000, CRITICAL, 80, false));
+        assertEquals(PowerGovernor.Level.CAPPED_BITRATE, governor.getLevel());
+        assertFalse(governor.update(2000, SHUTDOWN, 80, false));
+
+        // Cooled down, but only one level per hold time
+        assertFalse(governor.update(3000, 0, 80, false));
+        assertFalse(governor.update(62000, 0, 80, false));
+        assertTrue(governor.update(63000, 0, 80, false));
+        assertEquals(PowerGovernor.Level.REDUCED_CAPTURE, governor.getLevel());
+        assertFalse(governor.update(64000, 0, 80, false));
+        assertTrue(governor.update(124000, 0, 80, false));
+        assertEquals(PowerGovernor.Level.CHEAPER_ANONYMIZATION, governor.getLevel());
+
+        // Heating up again restarts the hold time
+        assertFalse(governor.update(125000, MODERATE, 80, false));
+        assertFalse(governor.update(126000, 0, 80, false));
+        assertFalse(governor.update(185000, 0, 80, false));
+        assertTrue(governor.update(186000, 0, 80, false));
+
+        assertEquals(1, governor.getStepDownCount());
+        assertEquals(3, governor.getStepUpCount());
+        assertEquals(62000, governor.getTimeAtLevelMs(PowerGovernor.Level.CAPPED_BITRATE));
+    }
+
+    @Test
+    public void update_followsTheBatteryWithAMargin() {
+        PowerGovernor governor = new PowerGovernor(20, 10, 5, 0);
+
+        assertTrue(governor.update(0, 0, 20, false));
+        assertEquals(PowerGovernor.Level.CHEAPER_ANONYMIZATION, governor.getLevel());
+        assertTrue(governor.update(1000, 0, 9, false));
+        assertEquals(PowerGovernor.Level.REDUCED_CAPTURE, governor.getLevel());
+
+        // Within the margin of the thresholds
+        assertFalse(governor.update(2000, 0, 15, false));
+        assertTrue(governor.update(3000, 0, 16, false));
+        assertEquals(PowerGovernor.Level.CHEAPER_ANONYMIZATION, governor.getLevel());
+        assertFalse(governor.update(4000, 0, 25, false));
+
+        // Charging or unknown battery levels do not count
+        assertTrue(governor.update(5000, 0, 25, true));
+        assertEquals(PowerGovernor.Level.REDUCED_DETECTION, governor.getLevel());
+        assertFalse(new PowerGovernor(20, 10, 5, 0).update(0, 0, -1, false));
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.webrtcandroidapp.replay;
+
+import com.example.webrtcandroidapp.ai.AnonymizationMode;
+import com.example.webrtcandroidapp.ai.FDBoundingBox;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ReplayHarnessTest {
+
+    private static final int WIDTH = 320;
+    private static final int HEIGHT = 240;
+    private static final int FRAME_RATE = 30;
+    private static final int FRAME_COUNT = 90;
+    private static final String SCRIPT = "# face in the centre for the first second\n"
+            + "0 0.40 0.30 0.20 0.30\n"
+            + "1000\n";
+
+    @Test
+    public void run_masksScriptedFacesUntilTheyAreGone() throws IOException {
+        ReplayReport report = replay(SCRIPT);
+
+        assertEquals(FRAME_COUNT, report.getFrameCount());
+        // Fails closed - the first frame is covered whole, before any detection has completed
+        assertTrue(report.getCoverage(0) > 0.9);
+        assertTrue(report.getCoverage(15) < 0.5);
+        assertTrue(report.getCoverage(15) > 0.02);
+        assertEquals(0.0, report.getCoverage(FRAME_COUNT - 1), 0.0);
+        assertEquals(FRAME_COUNT, report.getFrameLatency().getCount());
+    }
+
+    @Test
+    public void run_isReproducibleAgainstGoldenCoverage() throws IOException {
+        StringWriter golden = new StringWriter();
+        replay(SCRIPT).writeCoverage(golden);
+        double[] goldenCoverage = ReplayReport.readCoverage(new StringReader(golden.toString()));
+
+        assertEquals(List.of(), replay(SCRIPT).findCoverageRegressions(goldenCoverage, 1e-6));
+
+        // A face that is masked smaller shows up as a coverage regression
+        List<Integer> regressions = replay(SCRIPT.replace("0.20 0.30", "0.10 0.15"))
+                .findCoverageRegressions(goldenCoverage, 0.001);
+        assertFalse(regressions.isEmpty());
+    }
+
+    @Test
+    public void run_measuresRecallAgainstGroundTruth() throws IOException {
+        String groundTruth = "0 0.40 0.30 0.20 0.30\n"
+                + "0 0.05 0.05 0.06 0.08\n";
+        TreeMap<Long, List<FDBoundingBox>> truth = ScriptedFaceDetector.parse(new StringReader(groundTruth));
+
+        // A tier that misses the small face, and one that finds both
+        ReplayReport missing = replay("0 0.40 0.30 0.20 0.30\n", truth);
+        ReplayReport complete = replay(groundTruth, truth);
+
+        assertTrue(missing.getSmallFaceRecall() < 0.1);
+        assertTrue(missing.getRecall() > 0.45 && missing.getRecall() < 0.6);
+        assertTrue(complete.getSmallFaceRecall() > 0.95);
+        assertTrue(complete.getRecall() > 0.95);
+        assertEquals(-1.0, replay(SCRIPT).getRecall(), 0.0);
+    }
+
+    private static ReplayReport replay(String script) throws IOException {
+        return replay(script, null);
+    }
+
+    private static ReplayReport replay(String script, TreeMap<Long, List<FDBoundingBox>> groundTruth) throws IOException {
+        TreeMap<Long, List<FDBoundingBox>> faces = ScriptedFaceDetector.parse(new StringReader(script));
+        Random random = new Random(7);
+        int[] remaining = { FRAME_COUNT };
+        ReplayHarness.FrameSource frames = nv21 -> {
+            if (remaining[0]-- == 0) {
+                return false;
+            }
+            random.nextBytes(nv21);
+            return true;
+        };
+        return new ReplayHarness().run(frames, WIDTH, HEIGHT, FRAME_RATE, new ScriptedFaceDetector(faces, 30),
+                AnonymizationMode.PIXELATE, groundTruth);
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.webrtcandroidapp.services;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReconnectBackoffTest {
+
+    @Test
+    public void nextDelayMs_doublesUpToTheMaximum() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 30000, 0F);
+
+        long[] expected = { 1000, 2000, 4000, 8000, 16000, 30000, 30000 };
+        for (long delayMs : expected) {
+            assertEquals(delayMs, backoff.nextDelayMs());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(30000, backoff.nextDelayMs());
+        }
+
+        backoff.reset();
+        assertEquals(0, backoff.getAttempt());
+        assertEquals(1000, backoff.nextDelayMs());
+    }
+
+    @Test
+    public void nextDelayMs_staysWithinTheJitter() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 30000, 0.5F, new Random(42));
+
+        boolean varies = false;
+        long first = -1;
+        for (int i = 0; i < 50; i++) {
+            backoff.reset();
+            long delayMs = backoff.nextDelayMs();
+            assertTrue(delayMs >= 500 && delayMs <= 1000);
+            varies |= first >= 0 && delayMs != first;
+            first = first < 0 ? delayMs : first;
+        }
+        assertTrue(varies);
+    }
+}